@@ -36,6 +36,11 @@ android {
         compose = true
         buildConfig = true
     }
+
+    testOptions {
+        // JVM unit tests run the matcher code, which logs through android.util.Log
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 tasks.withType<org.jetbrains.kotlin.gradle.tasks.KotlinCompile>().configureEach {
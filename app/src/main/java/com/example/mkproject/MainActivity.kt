@@ -19,6 +19,9 @@ import androidx.compose.ui.text.input.TextFieldValue
 import androidx.compose.ui.tooling.preview.Preview
 import androidx.compose.ui.unit.dp
 import androidx.core.content.ContextCompat
+import androidx.lifecycle.Lifecycle
+import androidx.lifecycle.LifecycleEventObserver
+import androidx.lifecycle.compose.LocalLifecycleOwner
 import com.example.mkproject.javaPackages.MantraRecognizer
 import com.example.mkproject.ui.theme.MkprojectTheme
 
@@ -75,6 +78,28 @@ fun MantraMatchApp() {
         }
     }
 
+    DisposableEffect(recognizer) {
+        onDispose {
+            Log.d(TAG, "DisposableEffect: Releasing MantraRecognizer")
+            recognizer.release()
+        }
+    }
+
+    // The composition outlives the app going to the background; the microphone must not
+    val lifecycleOwner = LocalLifecycleOwner.current
+    DisposableEffect(lifecycleOwner, recognizer) {
+        val observer = LifecycleEventObserver { _, event ->
+            if (event == Lifecycle.Event.ON_STOP) {
+                Log.d(TAG, "Lifecycle ON_STOP: Releasing the microphone")
+                recognizer.releaseMicrophone()
+            }
+        }
+        lifecycleOwner.lifecycle.addObserver(observer)
+        onDispose {
+            lifecycleOwner.lifecycle.removeObserver(observer)
+        }
+    }
+
     LaunchedEffect(Unit, key2 = "permissionCheck") {
         Log.d(TAG, "LaunchedEffect: Checking/Requesting RECORD_AUDIO permission")
         if (ContextCompat.checkSelfPermission(context, Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
@@ -250,6 +275,17 @@ fun MantraMatchApp() {
             }
             Spacer(modifier = Modifier.height(8.dp))
 
+            Button(
+                onClick = {
+                    Log.d(TAG, "Record Another Take button clicked. Selected: $selectedMantra")
+                    recognizer.recordTake(selectedMantra)
+                },
+                enabled = !isRecognizing && !isRecording && selectedMantra.isNotEmpty()
+            ) {
+                Text("Record Another Take")
+            }
+            Spacer(modifier = Modifier.height(8.dp))
+
             Button(
                 onClick = {
                     Log.d(TAG, "Stop Recording button clicked.")
@@ -408,6 +444,11 @@ fun MantraMatchAppPreview() {
             }
             Spacer(modifier = Modifier.height(8.dp))
 
+            Button(onClick = {}, enabled = false) {
+                Text("Record Another Take")
+            }
+            Spacer(modifier = Modifier.height(8.dp))
+
             Button(onClick = {}, enabled = false) {
                 Text("Stop Recording")
             }
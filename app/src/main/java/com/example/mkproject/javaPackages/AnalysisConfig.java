@@ -0,0 +1,90 @@
+package com.example.mkproject.javaPackages;
+
+// Rate and framing at which features are computed, independent of the capture/storage rate. Audio is captured and
+// stored at AudioMatcher.SAMPLE_RATE and decimated by an integer factor before MFCC extraction and VAD. The VAD
+// thresholds depend on the framing (C0 scales with the FFT size, ZCR is per sample), so each config carries its own.
+// The frame size must be a whole number of hops (the VoiceActivityDetector sums per hop).
+public final class AnalysisConfig {
+    private static final int DECIMATOR_TAPS_PER_PHASE = 24; // 72 taps at 3x: flat to 6 kHz, >60 dB down above 8.5 kHz
+
+    // Original front end: no decimation, 2048/1024 frames at 48 kHz
+    public static final AnalysisConfig FULL_RATE = new AnalysisConfig(1, 2048, 1024, -40.0f, 0.01f, 0.1f);
+    // 16 kHz analysis, 768/384 frames (48/24 ms): 41.7 frames/s against FULL_RATE's 46.9, so templates, the live
+    // utterance and every DTW shrink too, and about a third of the FFT work per frame (768 = 2^8 * 3, mixed radix).
+    // C0 runs ~3 lower than at FULL_RATE for the same signal and ZCR per sample 3x higher, hence the thresholds.
+    public static final AnalysisConfig DECIMATED_16K = new AnalysisConfig(3, 768, 384, -43.0f, 0.01f, 0.3f);
+
+    private final int decimation;
+    private final int sampleRate;
+    private final int frameSize;
+    private final int hopSize;
+    private final float c0SilenceThreshold; // Log energy threshold for silence
+    private final float energyThreshold; // VAD energy threshold
+    private final float zcrThreshold; // VAD zero-crossing rate threshold
+
+    public AnalysisConfig(int decimation, int frameSize, int hopSize, float c0SilenceThreshold,
+                          float energyThreshold, float zcrThreshold) {
+        if (decimation < 1 || AudioMatcher.SAMPLE_RATE % decimation != 0 || frameSize < 2 || hopSize <= 0 || frameSize % hopSize != 0) {
+            throw new IllegalArgumentException("Invalid analysis config: decimation=" + decimation
+                    + ", frameSize=" + frameSize + ", hopSize=" + hopSize);
+        }
+        this.decimation = decimation;
+        this.sampleRate = AudioMatcher.SAMPLE_RATE / decimation;
+        this.frameSize = frameSize;
+        this.hopSize = hopSize;
+        this.c0SilenceThreshold = c0SilenceThreshold;
+        this.energyThreshold = energyThreshold;
+        this.zcrThreshold = zcrThreshold;
+    }
+
+    public int getDecimation() {
+        return decimation;
+    }
+
+    // Analysis rate in Hz
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    public int getHopSize() {
+        return hopSize;
+    }
+
+    public float getC0SilenceThreshold() {
+        return c0SilenceThreshold;
+    }
+
+    public float getEnergyThreshold() {
+        return energyThreshold;
+    }
+
+    public float getZcrThreshold() {
+        return zcrThreshold;
+    }
+
+    public double getSecondsPerFrame() {
+        return (double) hopSize / sampleRate;
+    }
+
+    // Frame count closest to a duration, at least one
+    public int framesForSeconds(double seconds) {
+        return Math.max(1, (int) Math.round(seconds / getSecondsPerFrame()));
+    }
+
+    public PolyphaseDecimator newDecimator() {
+        return new PolyphaseDecimator(decimation, DECIMATOR_TAPS_PER_PHASE);
+    }
+
+    public StreamingMfccExtractor newExtractor() {
+        return new StreamingMfccExtractor(sampleRate, frameSize, hopSize, AudioMatcher.MFCC_SIZE);
+    }
+
+    @Override
+    public String toString() {
+        return sampleRate + " Hz, frame " + frameSize + ", hop " + hopSize;
+    }
+}
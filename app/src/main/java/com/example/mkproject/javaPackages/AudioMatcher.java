@@ -1,44 +1,135 @@
 package com.example.mkproject.javaPackages;
 
 import android.util.Log;
-import be.tarsos.dsp.mfcc.MFCC;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class AudioMatcher {
     private static final String TAG = "AudioMatcher";
-    private static final int SAMPLE_RATE = 48000;
-    private static final int BUFFER_SIZE = 2048;
-    private static final float C0_SILENCE_THRESHOLD = -40.0f; // Log energy threshold for silence
-    private static final float ENERGY_THRESHOLD = 0.01f; // VAD energy threshold
-    private static final float ZCR_THRESHOLD = 0.1f; // VAD zero-crossing rate threshold
-    private static final int MFCC_SIZE = 13; // Number of MFCC coefficients
-
-    // Pre-emphasis filter
+    static final int SAMPLE_RATE = 48000; // Capture and storage rate
+    static final int BUFFER_SIZE = 2048;
+    static final int MFCC_SIZE = 13; // Number of MFCC coefficients
+    // Rate and framing features are computed at; recordings are decimated to it first
+    static final AnalysisConfig ANALYSIS = AnalysisConfig.DECIMATED_16K;
+    // Bump whenever extraction, VAD or trimming changes the compiled features, so FeatureCache files are rebuilt
+    static final int FEATURE_PIPELINE_VERSION = 3;
+
+    // Unit rows kept by compiled templates; see TemplateEncoding for the measured accuracy of each
+    static final TemplateEncoding TEMPLATE_ENCODING = TemplateEncoding.INT8;
+    // Templates from this length on are matched coarse to fine (MultiResolutionDtw) instead of with the full band
+    static final int MULTI_RESOLUTION_MIN_FRAMES = ANALYSIS.framesForSeconds(10.0);
+    private static final float NORM_EPSILON = 1e-9f;
+
+    static final float PRE_EMPHASIS = 0.95f;
+    public static final float FULL_BAND_PERCENT = 100.0f; // DTW warping window that covers the whole matrix
+
+    // Pre-emphasis filter (frame-local: the first sample is passed through unfiltered)
     public static float[] preEmphasis(float[] signal) {
         if (signal == null || signal.length < 2) return signal;
-        float[] result = new float[signal.length];
-        result[0] = signal[0];
-        for (int i = 1; i < signal.length; i++) {
-            result[i] = signal[i] - 0.95f * signal[i - 1];
-        }
+        float[] result = signal.clone();
+        new PreEmphasisFilter().process(result, 0, result.length);
         return result;
     }
 
     // Hamming window (used by TarsosDSP, but included for completeness)
     public static float[] hammingWindow(float[] frame) {
         if (frame == null || frame.length < 2) return frame;
-        float[] result = new float[frame.length];
-        for (int i = 0; i < frame.length; i++) {
-            double angle = 2.0 * Math.PI * i / (frame.length - 1);
-            result[i] = (float) (frame[i] * (0.54 - 0.46 * Math.cos(angle)));
-        }
+        float[] result = frame.clone();
+        applyWindow(result, 0, result.length, WindowType.HAMMING);
         return result;
     }
 
+    // In-place windowing against a cached table for the given frame length
+    public static void applyWindow(float[] frame, int offset, int length, WindowType type) {
+        float[] table = type.table(length);
+        for (int i = 0; i < length; i++) {
+            frame[offset + i] *= table[i];
+        }
+    }
+
+    // First-order pre-emphasis y[n] = x[n] - 0.95 * x[n-1] that remembers x[n-1] across calls,
+    // so a stream split into arbitrary chunks is filtered exactly as if it were one array.
+    public static final class PreEmphasisFilter {
+        private float previous = 0.0f; // x[n-1]; zero before the first sample so it passes through unchanged
+
+        // Filters samples in place
+        public void process(float[] signal, int offset, int length) {
+            process(signal, offset, signal, offset, length);
+        }
+
+        // Filters src into dst; src and dst may be the same array
+        public void process(float[] src, int srcOffset, float[] dst, int dstOffset, int length) {
+            if (length <= 0) return;
+            float prev = previous;
+            for (int i = 0; i < length; i++) {
+                float x = src[srcOffset + i];
+                dst[dstOffset + i] = x - PRE_EMPHASIS * prev;
+                prev = x;
+            }
+            previous = prev;
+        }
+
+        public void reset() {
+            previous = 0.0f;
+        }
+    }
+
+    // Precomputed analysis windows. Tables are shared and must not be modified by callers.
+    public enum WindowType {
+        HAMMING, HANN, BLACKMAN;
+
+        private final ConcurrentHashMap<Integer, float[]> tables = new ConcurrentHashMap<>();
+        private volatile float[] lastTable = new float[0]; // Avoids the map lookup when the frame size does not change
+
+        public float[] table(int size) {
+            float[] table = lastTable;
+            if (table.length == size) return table;
+            table = tables.computeIfAbsent(size, this::build);
+            lastTable = table;
+            return table;
+        }
+
+        private float[] build(int size) {
+            float[] table = new float[size];
+            if (size == 1) {
+                table[0] = 1.0f;
+                return table;
+            }
+            for (int i = 0; i < size; i++) {
+                double angle = 2.0 * Math.PI * i / (size - 1);
+                double w;
+                switch (this) {
+                    case HANN:
+                        w = 0.5 - 0.5 * Math.cos(angle);
+                        break;
+                    case BLACKMAN:
+                        w = 0.42 - 0.5 * Math.cos(angle) + 0.08 * Math.cos(2.0 * angle);
+                        break;
+                    default:
+                        w = 0.54 - 0.46 * Math.cos(angle);
+                        break;
+                }
+                table[i] = (float) w;
+            }
+            return table;
+        }
+    }
+
     // Voice Activity Detection (VAD)
     public static boolean isSilentFrame(float[] frame, float[] mfcc) {
         if (frame == null || mfcc == null || mfcc.length == 0) return true; // Treat as silent if data is invalid
+        return isSilentFrame(frame, mfcc[0]);
+    }
+
+    // VAD given the frame's C0 (log energy) coefficient
+    public static boolean isSilentFrame(float[] frame, float c0) {
+        return isSilentFrame(frame, c0, ANALYSIS);
+    }
+
+    // Stateless VAD on one analysis-rate frame with the thresholds calibrated for config's framing. The streaming
+    // paths use VoiceActivityDetector, which adds noise-floor tracking and hangover on top of these checks.
+    public static boolean isSilentFrame(float[] frame, float c0, AnalysisConfig config) {
+        if (frame == null) return true;
         // Compute energy
         float energy = 0.0f;
         for (float sample : frame) {
@@ -56,29 +147,30 @@ public class AudioMatcher {
         float zcr = (frame.length > 0) ? (float) zcrCount / frame.length : 0.0f;
 
         // Check C0 (log energy) and VAD thresholds
-        boolean isSilent = mfcc[0] < C0_SILENCE_THRESHOLD || energy < ENERGY_THRESHOLD || zcr > ZCR_THRESHOLD;
-        Log.d(TAG, String.format("VAD: C0=%f, Energy=%f, ZCR=%f, Silent=%b", mfcc[0], energy, zcr, isSilent));
-        return isSilent;
+        // No per-frame logging here: this runs for every live hop. Count frames through RecognizerMetrics instead.
+        return c0 < config.getC0SilenceThreshold() || energy < config.getEnergyThreshold() || zcr > config.getZcrThreshold();
     }
 
-    // Trim silence from MFCC sequence
-    public static List<float[]> trimSilence(List<float[]> mfccSeq, float[] audio) {
+    // Trim silence from MFCC sequence; audio is the capture-rate recording mfccSeq was extracted from
+    public static FeatureMatrix trimSilence(FeatureMatrix mfccSeq, float[] audio) {
         if (mfccSeq == null || mfccSeq.isEmpty()) {
-            Log.d(TAG, "trimSilence: mfccSeq is null or empty, returning empty list.");
-            return new ArrayList<>();
+            Log.d(TAG, "trimSilence: mfccSeq is null or empty, returning empty matrix.");
+            return FeatureMatrix.empty(MFCC_SIZE);
         }
-        if (audio == null || audio.length < BUFFER_SIZE) {
+        int frameSize = ANALYSIS.getFrameSize();
+        int hopSize = ANALYSIS.getHopSize();
+        if (audio != null) audio = ANALYSIS.newDecimator().process(audio); // Frames are cut at the analysis rate
+        if (audio == null || audio.length < frameSize) {
             Log.d(TAG, "trimSilence: audio data is null or too short for a frame. Audio length: " + (audio != null ? audio.length : "null") + ", returning original mfccSeq as fallback or empty if it was meant to be processed.");
             // Depending on use case, either return mfccSeq as is, or an empty list if processing is critical.
             // For now, returning empty as the expectation is to process if audio is valid.
-            return new ArrayList<>();
+            return FeatureMatrix.empty(mfccSeq.dimension());
         }
 
-        List<float[]> trimmed = new ArrayList<>();
-        int frameSize = BUFFER_SIZE;
-        int hopSize = frameSize / 2;
+        int[] kept = new int[mfccSeq.frameCount()];
+        int keptCount = 0;
 
-        for (int i = 0; i < mfccSeq.size(); i++) {
+        for (int i = 0; i < mfccSeq.frameCount(); i++) {
             int start = i * hopSize;
 
             if (start >= audio.length) {
@@ -100,42 +192,25 @@ public class AudioMatcher {
 
             System.arraycopy(audio, start, frameForVAD, 0, lenToCopy);
 
-            if (!isSilentFrame(frameForVAD, mfccSeq.get(i))) {
-                trimmed.add(mfccSeq.get(i));
+            if (!isSilentFrame(frameForVAD, mfccSeq.get(i, 0))) {
+                kept[keptCount++] = i;
             }
         }
-        Log.d(TAG, "trimSilence: Input mfccSeq size: " + mfccSeq.size() + ", audio length: " + audio.length + ", trimmed size: " + trimmed.size());
-        return trimmed;
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "trimSilence: Input mfccSeq size: " + mfccSeq.frameCount() + ", audio length: " + audio.length + ", trimmed size: " + keptCount);
+        }
+        return mfccSeq.selectFrames(kept, keptCount);
     }
 
-    // Extract MFCC using TarsosDSP
-    public static List<float[]> extractMFCC(float[] audioData) {
-        List<float[]> mfccSeq = new ArrayList<>();
-        if (audioData == null || audioData.length == 0) return mfccSeq;
-
-        be.tarsos.dsp.io.TarsosDSPAudioFormat format = new be.tarsos.dsp.io.TarsosDSPAudioFormat(
-            SAMPLE_RATE, 16, 1, true, false
-        );
-        MFCC mfccProcessor = new MFCC(BUFFER_SIZE, SAMPLE_RATE, MFCC_SIZE, 40, 50.0f, 8000.0f);
-
-        for (int i = 0; i + BUFFER_SIZE <= audioData.length; i += BUFFER_SIZE / 2) {
-            float[] frame = new float[BUFFER_SIZE];
-            System.arraycopy(audioData, i, frame, 0, BUFFER_SIZE);
-            frame = preEmphasis(frame);
-            frame = hammingWindow(frame);
+    // Extract MFCC frames at the ANALYSIS rate and framing from a complete capture-rate recording
+    public static FeatureMatrix extractMFCC(float[] audioData) {
+        if (audioData == null || audioData.length == 0) return FeatureMatrix.empty(MFCC_SIZE);
 
-            be.tarsos.dsp.AudioEvent audioEvent = new be.tarsos.dsp.AudioEvent(format);
-            audioEvent.setFloatBuffer(frame);
-            mfccProcessor.process(audioEvent);
-            float[] mfcc = mfccProcessor.getMFCC();
-
-            if (mfcc != null && mfcc.length == MFCC_SIZE) {
-                mfccSeq.add(mfcc);
-            } else {
-                Log.w(TAG, String.format("Invalid MFCC frame at index %d", i));
-            }
-        }
-        return mfccSeq;
+        audioData = ANALYSIS.newDecimator().process(audioData);
+        StreamingMfccExtractor extractor = ANALYSIS.newExtractor();
+        float[] coefficients = new float[extractor.framesFor(audioData.length) * MFCC_SIZE];
+        int frames = extractor.process(audioData, 0, audioData.length, coefficients, 0);
+        return new FeatureMatrix(coefficients, frames, MFCC_SIZE);
     }
 
     // Cosine similarity for DTW
@@ -156,8 +231,20 @@ public class AudioMatcher {
         return (float) (dot / denom);
     }
 
-    // DTW with silence trimming for reference sequence (mfccSeq2)
-    public static float computeDTW(List<float[]> mfccSeq1, List<float[]> mfccSeq2, float[] audio2) {
+    // DTW with silence trimming for reference sequence (mfccSeq2), unconstrained and without early abandoning
+    public static float computeDTW(FeatureMatrix mfccSeq1, FeatureMatrix mfccSeq2, float[] audio2) {
+        return computeDTW(mfccSeq1, mfccSeq2, audio2, FULL_BAND_PERCENT, 0.0f);
+    }
+
+    /**
+     * DTW with silence trimming for the reference sequence (mfccSeq2).
+     * @param bandPercent Sakoe-Chiba window half-width as a percentage of the longer sequence; 100 disables the constraint.
+     *                    The window follows the diagonal between the two ends, so sequences of different length still align.
+     * @param similarityThreshold similarity the caller will accept. Once every cell of a row already costs more than that
+     *                            allows, the remaining rows cannot produce a match and 0 is returned. Pass 0 to disable.
+     */
+    public static float computeDTW(FeatureMatrix mfccSeq1, FeatureMatrix mfccSeq2, float[] audio2,
+                                   float bandPercent, float similarityThreshold) {
         if (mfccSeq1 == null || mfccSeq1.isEmpty() || mfccSeq2 == null || mfccSeq2.isEmpty()) {
             Log.e(TAG, String.format("computeDTW: Empty or null MFCC sequence. Seq1 null? %b, empty? %b. Seq2 null? %b, empty? %b.",
                     mfccSeq1 == null, mfccSeq1 != null && mfccSeq1.isEmpty(),
@@ -165,45 +252,108 @@ public class AudioMatcher {
             return 0.0f;
         }
 
-        // mfccSeq1 (live utterance) is used as-is.
-        List<float[]> trimmedSeq1 = mfccSeq1; // No trimming for live sequence here
-        // Trim reference sequence (mfccSeq2) using its full audio (audio2)
-        List<float[]> trimmedSeq2 = trimSilence(mfccSeq2, audio2);
+        // mfccSeq1 (live utterance) is used as-is; the reference (mfccSeq2) is trimmed using its full audio (audio2)
+        return alignmentSimilarity(mfccSeq1, trimSilence(mfccSeq2, audio2), bandPercent, similarityThreshold);
+    }
 
-        if (trimmedSeq1.isEmpty() || trimmedSeq2.isEmpty()) {
-            Log.d(TAG, String.format("DTW: One or both sequences became empty after processing/trimming. Trimmed sizes: seq1=%d, seq2=%d",
-                    trimmedSeq1.size(), trimmedSeq2.size()));
+    // DTW against a reference that was trimmed and packed once at load time; nothing about the reference is recomputed.
+    // Long templates (see MULTI_RESOLUTION_MIN_FRAMES) are aligned coarse to fine.
+    public static float computeDTW(FrameSequence liveSeq, CompiledTemplate template, float bandPercent, float similarityThreshold) {
+        if (liveSeq == null || liveSeq.isEmpty() || template == null) {
+            Log.e(TAG, "computeDTW: Empty or null live sequence or template.");
             return 0.0f;
         }
+        ReferenceFrames[] coarseLevels = template.getCoarseLevels();
+        if (coarseLevels.length > 0) {
+            return MultiResolutionDtw.similarity(liveSeq, template.getFrames(), coarseLevels, bandPercent, similarityThreshold);
+        }
+        return alignmentSimilarity(liveSeq, template.getFrames(), bandPercent, similarityThreshold);
+    }
 
-        int R = trimmedSeq1.size() + 1;
-        int C = trimmedSeq2.size() + 1;
-        float[][] dp = new float[R][C];
-        for (int i = 0; i < R; i++) {
-            for (int j = 0; j < C; j++) {
-                dp[i][j] = Float.POSITIVE_INFINITY;
+    // Banded, early-abandoning DTW between two already-trimmed sequences, normalised to a [0, 1] similarity
+    static float alignmentSimilarity(FrameSequence trimmedSeq1, ReferenceFrames trimmedSeq2, float bandPercent, float similarityThreshold) {
+        if (trimmedSeq1.isEmpty() || trimmedSeq2.isEmpty()) {
+            if (Log.isLoggable(TAG, Log.DEBUG)) {
+                Log.d(TAG, "DTW: One or both sequences became empty after processing/trimming. Trimmed sizes: seq1="
+                        + trimmedSeq1.frameCount() + ", seq2=" + trimmedSeq2.frameCount());
             }
+            return 0.0f;
         }
-        dp[0][0] = 0.0f;
 
-        for (int i = 1; i < R; i++) {
-            for (int j = 1; j < C; j++) {
-                float cost = 1.0f - cosineSimilarity(trimmedSeq1.get(i - 1), trimmedSeq2.get(j - 1));
-                dp[i][j] = cost + Math.min(Math.min(dp[i - 1][j], dp[i][j - 1]), dp[i - 1][j - 1]);
+        int n = trimmedSeq1.frameCount();
+        int m = trimmedSeq2.frameCount();
+        float denom = n + m;
+        int band = warpingBand(n, m, bandPercent);
+        // Any path to (n, m) crosses every row, so a row minimum above this budget means no match is possible
+        float costBudget = similarityThreshold > 0.0f ? (1.0f - similarityThreshold) * denom : Float.POSITIVE_INFINITY;
+
+        float[] unit1 = trimmedSeq1.unitData();
+        float[] query = trimmedSeq2.newQuery(); // Live row in the reference's query form
+
+        // Two rolling rows; column 0 is the virtual start column (0 only for row 0)
+        float[] prev = new float[m + 1];
+        float[] curr = new float[m + 1];
+        Arrays.fill(prev, Float.POSITIVE_INFINITY);
+        prev[0] = 0.0f;
+        int prevLo = 0;
+        int prevHi = 0;
+
+        for (int i = 1; i <= n; i++) {
+            int center = (int) ((long) i * m / n);
+            int lo = Math.max(1, center - band);
+            int hi = Math.min(m, center + band);
+            float norm1 = trimmedSeq1.norm(i - 1);
+            boolean silent1 = norm1 < NORM_EPSILON;
+            trimmedSeq2.prepareQuery(unit1, trimmedSeq1.unitOffset(i - 1), 1.0f, query);
+            float left = Float.POSITIVE_INFINITY; // curr[j - 1]
+            float rowMin = Float.POSITIVE_INFINITY;
+            for (int j = lo; j <= hi; j++) {
+                float up = (j >= prevLo && j <= prevHi) ? prev[j] : Float.POSITIVE_INFINITY;
+                float diag = (j - 1 >= prevLo && j - 1 <= prevHi) ? prev[j - 1] : Float.POSITIVE_INFINITY;
+                float norm2 = trimmedSeq2.norm(j - 1);
+                float cost = silent1 || norm2 < NORM_EPSILON
+                        ? (silent1 && norm2 < NORM_EPSILON ? 0.0f : 1.0f) // Same rule as FeatureMatrix.unitCosine
+                        : Math.max(0.0f, 1.0f - trimmedSeq2.dot(j - 1, query)); // Quantised rows can overshoot 1
+                float value = cost + Math.min(Math.min(up, left), diag);
+                curr[j] = value;
+                left = value;
+                if (value < rowMin) rowMin = value;
+            }
+            if (rowMin > costBudget) {
+                if (Log.isLoggable(TAG, Log.DEBUG)) {
+                    Log.d(TAG, "DTW abandoned at row " + i + "/" + n + ": row cost " + rowMin + " exceeds budget " + costBudget);
+                }
+                return 0.0f;
             }
+            float[] tmp = prev;
+            prev = curr;
+            curr = tmp;
+            prevLo = lo;
+            prevHi = hi;
         }
 
-        float denom = trimmedSeq1.size() + trimmedSeq2.size();
+        float totalCost = prev[m];
         float similarity = 0.0f;
         if (denom > 1e-6f) {
-            similarity = 1.0f - (dp[R - 1][C - 1] / denom);
-        } else if (dp[R - 1][C - 1] < 1e-6f && (R - 1 > 0 || C - 1 > 0)) {
+            similarity = 1.0f - (totalCost / denom);
+        } else if (totalCost < 1e-6f) {
             similarity = 1.0f; // Sequences were identical and very short, or empty leading to zero cost
         }
         similarity = Math.max(0.0f, Math.min(1.0f, similarity));
 
-        Log.d(TAG, String.format("DTW cost: %f, denom: %f, similarity: %f. Trimmed sizes: seq1=%d, seq2=%d",
-                dp[R - 1][C - 1], denom, similarity, trimmedSeq1.size(), trimmedSeq2.size()));
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "DTW cost: " + totalCost + ", denom: " + denom + ", similarity: " + similarity + ", band: " + band
+                    + ". Trimmed sizes: seq1=" + n + ", seq2=" + m);
+        }
         return similarity;
     }
+
+    // Half-width of the Sakoe-Chiba window in reference frames. Never narrower than the diagonal's
+    // slope, otherwise consecutive rows would not overlap and (n, m) would become unreachable.
+    static int warpingBand(int n, int m, float bandPercent) {
+        if (bandPercent >= FULL_BAND_PERCENT) return m;
+        int band = (int) Math.ceil(Math.max(n, m) * Math.max(0.0f, bandPercent) / 100.0f);
+        int slope = (m + n - 1) / n;
+        return Math.max(1, Math.max(band, slope));
+    }
 }
@@ -0,0 +1,131 @@
+package com.example.mkproject.javaPackages;
+
+import android.media.AudioFormat;
+import android.media.AudioRecord;
+import android.media.MediaRecorder;
+import android.util.Log;
+
+// Microphone capture that outlives recognition sessions. The AudioRecord and its capture thread are created by the
+// first open() and keep reading until close(); starting, stopping or pausing recognition only changes the sink the
+// hops go to (null discards them), so a restart costs no AudioRecord or thread setup and leaves no gap in capture.
+// Hands each sink hopSize fresh samples at a time as floats in [-1, 1), on the capture thread.
+final class AudioSession {
+    private static final String TAG = "AudioSession";
+    private static final int BUFFERED_HOPS = 4; // AudioRecord buffer, in hops, when larger than its minimum
+    private static final long JOIN_TIMEOUT_MS = 1000;
+
+    // Runs on the capture thread; must not block
+    interface Sink {
+        void onAudio(float[] samples, int offset, int length);
+    }
+
+    private final int sampleRate;
+    private final int hopSize;
+    private volatile Sink sink;
+    // Being read by the capture thread; null while closed. A capture thread stops once this is no longer its own
+    // AudioRecord and releases that record on its way out.
+    private volatile AudioRecord record;
+    private Thread thread;
+
+    AudioSession(int sampleRate, int hopSize) {
+        this.sampleRate = sampleRate;
+        this.hopSize = hopSize;
+    }
+
+    // Starts capturing unless already capturing. False if the microphone could not be opened.
+    synchronized boolean open() {
+        if (record != null) return true;
+        int minBytes = AudioRecord.getMinBufferSize(sampleRate, AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
+        int bufferBytes = Math.max(minBytes, BUFFERED_HOPS * hopSize * 2);
+        AudioRecord opened = null;
+        try {
+            opened = new AudioRecord(MediaRecorder.AudioSource.MIC, sampleRate, AudioFormat.CHANNEL_IN_MONO,
+                    AudioFormat.ENCODING_PCM_16BIT, bufferBytes);
+            if (opened.getState() != AudioRecord.STATE_INITIALIZED) {
+                Log.e(TAG, "AudioRecord failed to initialize. State: " + opened.getState());
+                opened.release();
+                return false;
+            }
+            opened.startRecording();
+        } catch (IllegalArgumentException | IllegalStateException | SecurityException e) {
+            Log.e(TAG, "Failed to open the microphone", e);
+            if (opened != null) opened.release();
+            return false;
+        }
+        AudioRecord source = opened;
+        record = source;
+        thread = new Thread(() -> capture(source), "AudioCaptureThread");
+        thread.start();
+        Log.d(TAG, "Capture started: " + sampleRate + " Hz, " + hopSize + "-sample hops, " + bufferBytes + " buffer bytes");
+        return true;
+    }
+
+    boolean isOpen() {
+        return record != null;
+    }
+
+    // Where the following hops go; null drops them while the microphone stays open
+    void setSink(Sink sink) {
+        this.sink = sink;
+    }
+
+    // Stops capturing and releases the microphone, e.g. before another AudioRecord needs it. Waits up to
+    // JOIN_TIMEOUT_MS for the capture thread, which releases the AudioRecord itself once its last read returned.
+    void close() {
+        Thread capturing;
+        synchronized (this) {
+            AudioRecord current = record;
+            if (current == null) return;
+            record = null;
+            try {
+                current.stop(); // Unblocks the pending read; the capture thread cannot release it while we hold the lock
+            } catch (IllegalStateException e) {
+                Log.e(TAG, "Failed to stop AudioRecord", e);
+            }
+            capturing = thread;
+            thread = null;
+        }
+        if (capturing != Thread.currentThread()) {
+            try {
+                capturing.join(JOIN_TIMEOUT_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (capturing.isAlive()) Log.w(TAG, "Capture thread still reading; it releases the AudioRecord when done");
+        }
+        Log.d(TAG, "Capture closed");
+    }
+
+    private void capture(AudioRecord source) {
+        short[] pcm = new short[hopSize];
+        float[] samples = new float[hopSize];
+        try {
+            while (record == source) {
+                int read = source.read(pcm, 0, hopSize);
+                if (read < 0) {
+                    Log.e(TAG, "AudioRecord read error: " + read);
+                    break;
+                }
+                Sink current = sink;
+                if (read == 0 || current == null) continue;
+                for (int i = 0; i < read; i++) {
+                    samples[i] = pcm[i] / 32768.0f;
+                }
+                current.onAudio(samples, 0, read);
+            }
+        } finally {
+            synchronized (this) {
+                if (record == source) { // Read error or failing sink: close here, the next open() starts over
+                    record = null;
+                    thread = null;
+                    try {
+                        source.stop();
+                    } catch (IllegalStateException e) {
+                        Log.e(TAG, "Failed to stop AudioRecord", e);
+                    }
+                }
+                source.release();
+            }
+        }
+    }
+}
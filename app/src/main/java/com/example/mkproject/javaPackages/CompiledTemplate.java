@@ -0,0 +1,184 @@
+package com.example.mkproject.javaPackages;
+
+import java.util.Arrays;
+
+// Reference mantra prepared once at load or enrollment time: silence-trimmed frames in the configured
+// TemplateEncoding, a per-coefficient bounding envelope and source metadata. Templates of at least
+// AudioMatcher.MULTI_RESOLUTION_MIN_FRAMES also keep halved copies of their frames for MultiResolutionDtw. The live path only reads this object,
+// so matching never re-runs VAD on the reference or touches its WAV file.
+public final class CompiledTemplate {
+    private final String name;
+    private final ReferenceFrames frames; // Trimmed
+    private final ReferenceFrames[] coarseLevels; // Finest first, same encoding; empty for short templates
+    private final int untrimmedFrameCount;
+    private final int sampleCount;
+    private final int sampleRate;
+    private final float[] envelopeLower; // Per-coefficient minimum over all trimmed frames
+    private final float[] envelopeUpper; // Per-coefficient maximum over all trimmed frames
+
+    CompiledTemplate(String name, ReferenceFrames frames, int untrimmedFrameCount, int sampleCount, int sampleRate) {
+        this.name = name;
+        this.frames = frames;
+        this.untrimmedFrameCount = untrimmedFrameCount;
+        this.sampleCount = sampleCount;
+        this.sampleRate = sampleRate;
+
+        FeatureMatrix features = toMatrix(frames);
+        int dim = features.dimension();
+        this.envelopeLower = new float[dim];
+        this.envelopeUpper = new float[dim];
+        if (!features.isEmpty()) {
+            float[] data = features.data();
+            System.arraycopy(data, 0, envelopeLower, 0, dim);
+            System.arraycopy(data, 0, envelopeUpper, 0, dim);
+            for (int i = 1; i < features.frameCount(); i++) {
+                int base = features.offset(i);
+                for (int k = 0; k < dim; k++) {
+                    float v = data[base + k];
+                    if (v < envelopeLower[k]) envelopeLower[k] = v;
+                    if (v > envelopeUpper[k]) envelopeUpper[k] = v;
+                }
+            }
+        }
+        this.coarseLevels = coarseLevels(features, getEncoding());
+        if (frames == features) features.unitData(); // Build now rather than on the first live comparison
+    }
+
+    private CompiledTemplate(String name, ReferenceFrames frames, ReferenceFrames[] coarseLevels, CompiledTemplate source) {
+        this.name = name;
+        this.frames = frames;
+        this.coarseLevels = coarseLevels;
+        this.untrimmedFrameCount = source.untrimmedFrameCount;
+        this.sampleCount = source.sampleCount;
+        this.sampleRate = source.sampleRate;
+        this.envelopeLower = source.envelopeLower;
+        this.envelopeUpper = source.envelopeUpper;
+    }
+
+    // Extracts, trims and packs a capture-rate reference recording in one pass through the analysis front end
+    public static CompiledTemplate compile(String name, float[] audio) {
+        return compile(name, audio, AudioMatcher.TEMPLATE_ENCODING);
+    }
+
+    // Same, in another encoding; FLOAT32 for takes that are averaged before use (see TemplateAverager)
+    static CompiledTemplate compile(String name, float[] audio, TemplateEncoding encoding) {
+        Builder builder = new Builder();
+        if (audio != null) {
+            new FeatureFrontEnd(AudioMatcher.ANALYSIS, RecognizerMetrics.NONE).process(audio, 0, audio.length, builder);
+        }
+        return builder.build(name, audio != null ? audio.length : 0, AudioMatcher.SAMPLE_RATE, encoding);
+    }
+
+    // Collects a FeatureFrontEnd's output, keeping only the non-silent frames
+    static final class Builder implements RecognitionPipeline.FrameConsumer {
+        private float[] kept = new float[64 * AudioMatcher.MFCC_SIZE]; // Grown by doubling
+        private int keptCount = 0;
+        private int untrimmedCount = 0;
+
+        @Override
+        public void onFrame(float[] frame, int offset, boolean silent) {
+            untrimmedCount++;
+            if (silent) return;
+            int dim = AudioMatcher.MFCC_SIZE;
+            if ((keptCount + 1) * dim > kept.length) kept = Arrays.copyOf(kept, kept.length * 2);
+            System.arraycopy(frame, offset, kept, keptCount * dim, dim);
+            keptCount++;
+        }
+
+        CompiledTemplate build(String name, int sampleCount, int sampleRate) {
+            return build(name, sampleCount, sampleRate, AudioMatcher.TEMPLATE_ENCODING);
+        }
+
+        CompiledTemplate build(String name, int sampleCount, int sampleRate, TemplateEncoding encoding) {
+            int dim = AudioMatcher.MFCC_SIZE;
+            FeatureMatrix features = new FeatureMatrix(Arrays.copyOf(kept, keptCount * dim), keptCount, dim);
+            return new CompiledTemplate(name, features, untrimmedCount, sampleCount, sampleRate).encode(encoding);
+        }
+    }
+
+    // Same features under another name (mantra renamed on disk)
+    public CompiledTemplate withName(String newName) {
+        return new CompiledTemplate(newName, frames, coarseLevels, this);
+    }
+
+    // Same template with its rows in another encoding; the envelope keeps its full-precision values
+    public CompiledTemplate encode(TemplateEncoding encoding) {
+        if (encoding == getEncoding()) return this;
+        FeatureMatrix features = toMatrix(frames);
+        return new CompiledTemplate(name, encoding.encode(features), coarseLevels(features, encoding), this);
+    }
+
+    public TemplateEncoding getEncoding() {
+        return frames instanceof QuantizedFrames ? ((QuantizedFrames) frames).getEncoding() : TemplateEncoding.FLOAT32;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    // What the matchers score against
+    public ReferenceFrames getFrames() {
+        return frames;
+    }
+
+    // Float features; a dequantised copy (allocated per call) unless the encoding is FLOAT32
+    public FeatureMatrix getFeatures() {
+        return toMatrix(frames);
+    }
+
+    // Halved copies of the frames for coarse-to-fine matching, finest first; empty below MULTI_RESOLUTION_MIN_FRAMES
+    ReferenceFrames[] getCoarseLevels() {
+        return coarseLevels;
+    }
+
+    // Heap bytes held by the frames and their coarse levels
+    public long getMemoryBytes() {
+        long bytes = frames.memoryBytes();
+        for (ReferenceFrames level : coarseLevels) bytes += level.memoryBytes();
+        return bytes;
+    }
+
+    // No speech frames survived trimming; such a template can never match
+    public boolean isEmpty() {
+        return frames.isEmpty();
+    }
+
+    public int getFrameCount() {
+        return frames.frameCount();
+    }
+
+    public int getUntrimmedFrameCount() {
+        return untrimmedFrameCount;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public float getDurationSeconds() {
+        return sampleRate > 0 ? (float) sampleCount / sampleRate : 0.0f;
+    }
+
+    // Must not be modified
+    public float[] getEnvelopeLower() {
+        return envelopeLower;
+    }
+
+    // Must not be modified
+    public float[] getEnvelopeUpper() {
+        return envelopeUpper;
+    }
+
+    private static ReferenceFrames[] coarseLevels(FeatureMatrix features, TemplateEncoding encoding) {
+        return features.frameCount() >= AudioMatcher.MULTI_RESOLUTION_MIN_FRAMES
+                ? MultiResolutionDtw.coarseLevels(features, encoding) : new ReferenceFrames[0];
+    }
+
+    private static FeatureMatrix toMatrix(ReferenceFrames frames) {
+        return frames instanceof FeatureMatrix ? (FeatureMatrix) frames : ((QuantizedFrames) frames).dequantize();
+    }
+}
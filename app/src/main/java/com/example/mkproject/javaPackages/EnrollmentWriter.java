@@ -0,0 +1,139 @@
+package com.example.mkproject.javaPackages;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+// Writes a new mantra recording and compiles its template while it is being recorded. PCM goes from the caller's
+// direct buffer to a FileChannel on "<name>.wav.tmp"; the same samples feed the analysis front end and the VAD,
+// so the trimmed features exist as soon as the last buffer arrives. finish() patches the header, syncs and renames
+// the temp file into place, so a crash never leaves a half-written WAV under the mantra's name.
+// The result is identical to CompiledTemplate.compile() on the finished file. Single-threaded.
+final class EnrollmentWriter implements Closeable {
+    static final String TEMP_SUFFIX = ".tmp";
+    private static final int HEADER_BYTES = 44;
+    private static final int CONVERT_SAMPLES = 4096;
+
+    private final File target;
+    private final File tempFile;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final FeatureFrontEnd frontEnd = new FeatureFrontEnd(AudioMatcher.ANALYSIS, RecognizerMetrics.NONE);
+    private final CompiledTemplate.Builder template = new CompiledTemplate.Builder();
+    private final float[] samples = new float[CONVERT_SAMPLES]; // Conversion scratch
+    private long dataBytes = 0;
+    private boolean closed = false;
+
+    EnrollmentWriter(File target) throws IOException {
+        this.target = target;
+        this.tempFile = new File(target.getPath() + TEMP_SUFFIX);
+        this.raf = new RandomAccessFile(tempFile, "rw");
+        this.channel = raf.getChannel();
+        try {
+            channel.truncate(0);
+            ByteBuffer header = header(0);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        } catch (IOException e) {
+            abort();
+            throw e;
+        }
+    }
+
+    File getTempFile() {
+        return tempFile;
+    }
+
+    long getSampleCount() {
+        return dataBytes / 2;
+    }
+
+    // Appends little-endian 16-bit PCM from pcm's position to its limit; the buffer is consumed
+    void write(ByteBuffer pcm) throws IOException {
+        pcm.order(ByteOrder.LITTLE_ENDIAN);
+        int end = pcm.limit() & ~1;
+        while (pcm.position() < end) {
+            int base = pcm.position();
+            int count = Math.min((end - base) / 2, samples.length);
+            for (int i = 0; i < count; i++) {
+                samples[i] = pcm.getShort(base + 2 * i) / 32768.0f;
+            }
+            pcm.limit(base + count * 2);
+            while (pcm.hasRemaining()) {
+                dataBytes += channel.write(pcm);
+            }
+            pcm.limit(end);
+            frontEnd.process(samples, 0, count, template);
+        }
+    }
+
+    /**
+     * Completes the WAV under its final name and returns its template, or null if nothing was recorded
+     * (the temp file is then removed).
+     */
+    CompiledTemplate finish(String name) throws IOException {
+        if (dataBytes == 0) {
+            abort();
+            return null;
+        }
+        ByteBuffer header = header(dataBytes);
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+        channel.force(true);
+        closeQuietly();
+        if (!tempFile.renameTo(target)) {
+            abort();
+            throw new IOException("rename to " + target.getName() + " failed");
+        }
+        return template.build(name, (int) getSampleCount(), AudioMatcher.SAMPLE_RATE);
+    }
+
+    // Drops the recording
+    void abort() {
+        closeQuietly();
+        if (tempFile.exists() && !tempFile.delete()) {
+            tempFile.deleteOnExit();
+        }
+    }
+
+    @Override
+    public void close() {
+        abort();
+    }
+
+    private void closeQuietly() {
+        if (closed) return;
+        closed = true;
+        try {
+            raf.close();
+        } catch (IOException ignored) {
+            // Nothing left to flush that we still care about
+        }
+    }
+
+    // Canonical 44-byte mono 16-bit PCM header
+    private static ByteBuffer header(long dataBytes) {
+        int channels = 1;
+        int bitsPerSample = 16;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[]{'R', 'I', 'F', 'F'}).putInt((int) (dataBytes + 36)); // ChunkSize
+        header.put(new byte[]{'W', 'A', 'V', 'E'});
+        header.put(new byte[]{'f', 'm', 't', ' '}).putInt(16); // Subchunk1Size (16 for PCM)
+        header.putShort((short) 1); // AudioFormat (1 for PCM)
+        header.putShort((short) channels);
+        header.putInt(AudioMatcher.SAMPLE_RATE);
+        header.putInt(AudioMatcher.SAMPLE_RATE * channels * bitsPerSample / 8); // ByteRate
+        header.putShort((short) (channels * bitsPerSample / 8)); // BlockAlign
+        header.putShort((short) bitsPerSample);
+        header.put(new byte[]{'d', 'a', 't', 'a'}).putInt((int) dataBytes); // Subchunk2Size (data size)
+        header.flip();
+        return header;
+    }
+}
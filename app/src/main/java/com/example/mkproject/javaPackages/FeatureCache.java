@@ -0,0 +1,216 @@
+package com.example.mkproject.javaPackages;
+
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Binary cache of a compiled template stored beside its WAV as <name>.mfcc, so app start-up does not re-run the DSP.
+// The file records the feature pipeline version and extraction parameters plus the source WAV's size, mtime and CRC32,
+// and a key over any further WAVs the template was built from (a mantra's other takes, see sourcesKey); any mismatch
+// makes load() return null and the caller recompiles. Layout (little endian):
+//   magic "MFCC", format version, pipeline version, analysis rate, frame size, hop size, coefficients, encoding,
+//   source size (long), source mtime (long), source CRC32 (long), further sources key (long),
+//   untrimmed frames, sample count, template sample rate, frame count, then the frames:
+//   FLOAT32: frameCount * coefficients floats; FLOAT16/INT8: the QuantizedFrames payload (norms, INT8 scales,
+//   rows; INT8 rows padded).
+// A cache in another encoding than AudioMatcher.TEMPLATE_ENCODING is treated as stale.
+public final class FeatureCache {
+    private static final String TAG = "FeatureCache";
+    public static final String EXTENSION = ".mfcc";
+    private static final int MAGIC = 0x4D464343; // "MFCC"
+    private static final int FORMAT_VERSION = 4;
+    private static final int HEADER_BYTES = 4 * 8 + 8 * 4 + 4 * 4;
+    static final int SOURCE_MODIFIED_OFFSET = 4 * 8 + 8; // The source mtime in the header
+
+    private FeatureCache() {
+    }
+
+    public static File cacheFileFor(File wavFile) {
+        String name = wavFile.getName();
+        int dot = name.lastIndexOf('.');
+        return new File(wavFile.getParentFile(), (dot > 0 ? name.substring(0, dot) : name) + EXTENSION);
+    }
+
+    // Returns the cached template, or null if there is no usable cache for this WAV and extractor config
+    public static CompiledTemplate load(String name, File wavFile) {
+        return load(name, wavFile, 0L);
+    }
+
+    // As load(name, wavFile), for a template also built from the further sources with this sourcesKey
+    public static CompiledTemplate load(String name, File wavFile, long sourcesKey) {
+        File cacheFile = cacheFileFor(wavFile);
+        if (!cacheFile.isFile() || !wavFile.isFile()) return null;
+        long modified = wavFile.lastModified();
+        boolean touched;
+        CompiledTemplate template;
+        try (RandomAccessFile raf = new RandomAccessFile(cacheFile, "r"); FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) return null;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) return null;
+            if (buffer.getInt() != AudioMatcher.FEATURE_PIPELINE_VERSION
+                    || buffer.getInt() != AudioMatcher.ANALYSIS.getSampleRate()
+                    || buffer.getInt() != AudioMatcher.ANALYSIS.getFrameSize()
+                    || buffer.getInt() != AudioMatcher.ANALYSIS.getHopSize()
+                    || buffer.getInt() != AudioMatcher.MFCC_SIZE
+                    || buffer.getInt() != AudioMatcher.TEMPLATE_ENCODING.ordinal()) {
+                Log.d(TAG, "Extractor config or template encoding changed, ignoring cache for " + name);
+                return null;
+            }
+            long sourceSize = buffer.getLong();
+            long sourceModified = buffer.getLong();
+            long sourceCrc = buffer.getLong();
+            if (sourceSize != wavFile.length()) return null;
+            // Same size but touched since caching: only a content change invalidates
+            touched = sourceModified != modified;
+            if (touched && sourceCrc != crc32(wavFile)) return null;
+            if (buffer.getLong() != sourcesKey) {
+                Log.d(TAG, "Further sources changed, ignoring cache for " + name);
+                return null;
+            }
+
+            int untrimmedFrames = buffer.getInt();
+            int sampleCount = buffer.getInt();
+            int sampleRate = buffer.getInt();
+            int frameCount = buffer.getInt();
+            int dim = AudioMatcher.MFCC_SIZE;
+            TemplateEncoding encoding = AudioMatcher.TEMPLATE_ENCODING;
+            if (frameCount < 0 || payloadBytes(encoding, frameCount, dim) != buffer.remaining()) {
+                Log.w(TAG, "Truncated or corrupt feature cache for " + name);
+                return null;
+            }
+            ReferenceFrames frames;
+            if (encoding == TemplateEncoding.FLOAT32) {
+                float[] data = new float[frameCount * dim];
+                buffer.asFloatBuffer().get(data);
+                frames = new FeatureMatrix(data, frameCount, dim);
+            } else {
+                frames = QuantizedFrames.readFrom(buffer, encoding, frameCount, dim);
+            }
+            template = new CompiledTemplate(name, frames, untrimmedFrames, sampleCount, sampleRate);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read feature cache for " + name, e);
+            return null;
+        }
+        if (touched) refreshModified(cacheFile, modified);
+        return template;
+    }
+
+    // Records the new mtime of a touched but unchanged WAV, so the next load takes the size+mtime check instead of
+    // reading the whole file for its CRC again. Best effort: a failure only costs that CRC next time.
+    private static void refreshModified(File cacheFile, long modified) {
+        try (RandomAccessFile raf = new RandomAccessFile(cacheFile, "rw"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, modified);
+            long position = SOURCE_MODIFIED_OFFSET;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to refresh feature cache " + cacheFile.getName(), e);
+        }
+    }
+
+    // Writes the cache via a temp file and rename so a crash never leaves a half-written cache behind
+    public static void store(File wavFile, CompiledTemplate template) {
+        store(wavFile, template, 0L);
+    }
+
+    public static void store(File wavFile, CompiledTemplate template, long sourcesKey) {
+        File cacheFile = cacheFileFor(wavFile);
+        File tmpFile = new File(cacheFile.getPath() + ".tmp");
+        // Written in the configured encoding, since that is the only one load() accepts
+        ReferenceFrames frames = template.encode(AudioMatcher.TEMPLATE_ENCODING).getFrames();
+        int frameCount = frames.frameCount();
+        try {
+            long payload = payloadBytes(AudioMatcher.TEMPLATE_ENCODING, frameCount, frames.dimension());
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + (int) payload).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION)
+                    .putInt(AudioMatcher.FEATURE_PIPELINE_VERSION)
+                    .putInt(AudioMatcher.ANALYSIS.getSampleRate())
+                    .putInt(AudioMatcher.ANALYSIS.getFrameSize())
+                    .putInt(AudioMatcher.ANALYSIS.getHopSize())
+                    .putInt(AudioMatcher.MFCC_SIZE)
+                    .putInt(AudioMatcher.TEMPLATE_ENCODING.ordinal());
+            buffer.putLong(wavFile.length()).putLong(wavFile.lastModified()).putLong(crc32(wavFile)).putLong(sourcesKey);
+            buffer.putInt(template.getUntrimmedFrameCount())
+                    .putInt(template.getSampleCount())
+                    .putInt(template.getSampleRate())
+                    .putInt(frameCount);
+            if (frames instanceof FeatureMatrix) {
+                buffer.asFloatBuffer().put(((FeatureMatrix) frames).data(), 0, frameCount * frames.dimension());
+                buffer.position(buffer.capacity());
+            } else {
+                ((QuantizedFrames) frames).writeTo(buffer);
+            }
+            buffer.flip();
+
+            try (RandomAccessFile raf = new RandomAccessFile(tmpFile, "rw"); FileChannel channel = raf.getChannel()) {
+                channel.truncate(0);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            if (!tmpFile.renameTo(cacheFile)) {
+                throw new IOException("rename to " + cacheFile.getName() + " failed");
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write feature cache for " + wavFile.getName(), e);
+            if (tmpFile.exists() && !tmpFile.delete()) {
+                Log.w(TAG, "Could not remove temp cache file " + tmpFile.getName());
+            }
+        }
+    }
+
+    private static long payloadBytes(TemplateEncoding encoding, int frameCount, int dimension) {
+        long rows = (long) frameCount * dimension * encoding.getBytesPerCoefficient();
+        switch (encoding) {
+            case FLOAT32:
+                return rows;
+            case INT8:
+                return 4L * frameCount + 4L * dimension + (long) frameCount * FrameDistance.paddedDimension(dimension);
+            default:
+                return 4L * frameCount + rows;
+        }
+    }
+
+    public static void delete(File wavFile) {
+        File cacheFile = cacheFileFor(wavFile);
+        if (cacheFile.exists() && !cacheFile.delete()) {
+            Log.w(TAG, "Failed to delete feature cache " + cacheFile.getName());
+        }
+    }
+
+    // Key over the names, sizes and mtimes of the further files a template was built from, in order; 0 for none.
+    // Catches takes added, removed or replaced behind the app's back without reading them.
+    public static long sourcesKey(List<File> files) {
+        if (files.isEmpty()) return 0L;
+        CRC32 crc = new CRC32();
+        ByteBuffer entry = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        for (File file : files) {
+            crc.update(file.getName().getBytes(StandardCharsets.UTF_8));
+            entry.clear();
+            entry.putLong(file.length()).putLong(file.lastModified());
+            crc.update(entry.array());
+        }
+        return crc.getValue() | 1L << 32; // Never 0, even for a CRC of 0
+    }
+
+    private static long crc32(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.mkproject.javaPackages;
+
+import android.os.Trace;
+
+// Capture-rate samples in, MFCC frames with their VAD decision out: decimator, streaming extractor and the stateful
+// VoiceActivityDetector chained for one AnalysisConfig. Used by the live pipeline's feature stage, the offline counter, enrollment and template
+// compilation, so every path computes identical features. Input may arrive in chunks of any size; it is consumed
+// one analysis hop at a time, which yields at most one frame per step. With enabled RecognizerMetrics, extraction
+// (including decimation and the VAD's per-hop sums) and the VAD decision are timed and traced per frame.
+// Does not allocate after construction; single-threaded.
+final class FeatureFrontEnd {
+    private final AnalysisConfig config;
+    private final PolyphaseDecimator decimator;
+    private final StreamingMfccExtractor extractor;
+    private final VoiceActivityDetector vad;
+    private final RecognizerMetrics metrics;
+    private final boolean timed;
+    private final int step; // Capture samples per analysis hop
+    private final float[] analysis; // Decimated samples of the current step
+    private final float[] frame;
+
+    // Default VAD tuning: what templates, enrollment and FeatureCache files are compiled with
+    FeatureFrontEnd(AnalysisConfig config, RecognizerMetrics metrics) {
+        this(config, VadConfig.DEFAULT, metrics);
+    }
+
+    FeatureFrontEnd(AnalysisConfig config, VadConfig vadConfig, RecognizerMetrics metrics) {
+        this.config = config;
+        this.decimator = config.newDecimator();
+        this.extractor = config.newExtractor();
+        this.vad = new VoiceActivityDetector(config, vadConfig);
+        this.metrics = metrics != null ? metrics : RecognizerMetrics.NONE;
+        this.timed = this.metrics.isEnabled();
+        this.step = config.getHopSize() * config.getDecimation();
+        this.analysis = new float[config.getHopSize() + 1];
+        this.frame = new float[extractor.getCoefficientCount()];
+    }
+
+    AnalysisConfig getConfig() {
+        return config;
+    }
+
+    int getCoefficientCount() {
+        return extractor.getCoefficientCount();
+    }
+
+    // Feeds capture-rate samples; every completed frame goes to sink before this returns. Returns the frame count.
+    int process(float[] samples, int offset, int length, RecognitionPipeline.FrameConsumer sink) {
+        int frames = 0;
+        int end = offset + length;
+        while (offset < end) {
+            int chunk = Math.min(step, end - offset);
+            long extractStart = timed ? System.nanoTime() : 0L;
+            if (timed) Trace.beginSection(RecognizerMetrics.Stage.EXTRACT.traceName);
+            int decimated = decimator.process(samples, offset, chunk, analysis, 0);
+            vad.addSamples(analysis, 0, decimated);
+            boolean emitted = extractor.process(analysis, 0, decimated, frame, 0) > 0;
+            offset += chunk;
+            if (timed) Trace.endSection();
+            if (!emitted) continue;
+
+            boolean silent;
+            if (timed) {
+                long vadStart = System.nanoTime();
+                Trace.beginSection(RecognizerMetrics.Stage.VAD.traceName);
+                silent = vad.isSilent(frame[0]);
+                long vadEnd = System.nanoTime();
+                Trace.endSection();
+                metrics.onLatency(RecognizerMetrics.Stage.EXTRACT, vadStart - extractStart);
+                metrics.onLatency(RecognizerMetrics.Stage.VAD, vadEnd - vadStart);
+                metrics.onFrame(silent);
+            } else {
+                silent = vad.isSilent(frame[0]);
+            }
+            sink.onFrame(frame, 0, silent);
+            frames++;
+        }
+        return frames;
+    }
+
+    void reset() {
+        decimator.reset();
+        extractor.reset();
+        vad.reset();
+    }
+}
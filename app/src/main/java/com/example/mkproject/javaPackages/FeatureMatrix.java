@@ -0,0 +1,157 @@
+package com.example.mkproject.javaPackages;
+
+import java.util.List;
+
+// Contiguous frames x coefficients feature storage. Row i occupies data[i * dimension .. (i + 1) * dimension).
+// Per-frame L2 norms are computed once on construction; a unit-normalised copy, its rows zero-padded to
+// FrameDistance.paddedDimension, is built on first use so that cosine similarity between two frames becomes a single
+// FrameDistance kernel call over adjacent memory. As ReferenceFrames this is the FLOAT32 template encoding.
+public final class FeatureMatrix implements FrameSequence, ReferenceFrames {
+    private static final float NORM_EPSILON = 1e-9f;
+
+    private final float[] data;
+    private final int frameCount;
+    private final int dimension;
+    private final int unitStride; // Padded row length of the unit copy
+    private final float[] norms;
+    private volatile float[] unit; // Lazily built; all-zero rows for zero-norm frames
+
+    // Takes ownership of data; only the first frameCount rows are used
+    public FeatureMatrix(float[] data, int frameCount, int dimension) {
+        if (dimension <= 0 || frameCount < 0 || data.length < frameCount * dimension) {
+            throw new IllegalArgumentException("Invalid feature matrix: " + frameCount + " x " + dimension + " over " + data.length + " floats");
+        }
+        this.data = data;
+        this.frameCount = frameCount;
+        this.dimension = dimension;
+        this.unitStride = FrameDistance.paddedDimension(dimension);
+        this.norms = new float[frameCount];
+        for (int i = 0; i < frameCount; i++) {
+            int base = i * dimension;
+            double sum = 0.0;
+            for (int k = 0; k < dimension; k++) {
+                sum += data[base + k] * data[base + k];
+            }
+            norms[i] = (float) Math.sqrt(sum);
+        }
+    }
+
+    public static FeatureMatrix empty(int dimension) {
+        return new FeatureMatrix(new float[0], 0, dimension);
+    }
+
+    public static FeatureMatrix fromFrames(List<float[]> frames, int dimension) {
+        float[] data = new float[frames.size() * dimension];
+        for (int i = 0; i < frames.size(); i++) {
+            System.arraycopy(frames.get(i), 0, data, i * dimension, dimension);
+        }
+        return new FeatureMatrix(data, frames.size(), dimension);
+    }
+
+    @Override
+    public int frameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return frameCount == 0;
+    }
+
+    // Backing array; row i starts at offset(i). Must not be modified.
+    public float[] data() {
+        return data;
+    }
+
+    public int offset(int frame) {
+        return frame * dimension;
+    }
+
+    public float get(int frame, int coefficient) {
+        return data[frame * dimension + coefficient];
+    }
+
+    @Override
+    public float norm(int frame) {
+        return norms[frame];
+    }
+
+    public float[] copyFrame(int frame) {
+        float[] copy = new float[dimension];
+        System.arraycopy(data, frame * dimension, copy, 0, dimension);
+        return copy;
+    }
+
+    @Override
+    public int unitOffset(int frame) {
+        return frame * unitStride;
+    }
+
+    // Rows scaled to unit length, each followed by zeros up to the padded stride. Must not be modified.
+    @Override
+    public float[] unitData() {
+        float[] u = unit;
+        if (u == null) {
+            u = new float[frameCount * unitStride];
+            for (int i = 0; i < frameCount; i++) {
+                if (norms[i] < NORM_EPSILON) continue;
+                float scale = 1.0f / norms[i];
+                int base = i * dimension;
+                int unitBase = i * unitStride;
+                for (int k = 0; k < dimension; k++) {
+                    u[unitBase + k] = data[base + k] * scale;
+                }
+            }
+            unit = u;
+        }
+        return u;
+    }
+
+    @Override
+    public void prepareQuery(float[] row, int offset, float scale, float[] query) {
+        for (int k = 0; k < dimension; k++) {
+            query[k] = row[offset + k] * scale;
+        }
+    }
+
+    @Override
+    public float dot(int frame, float[] query) {
+        return FrameDistances.KERNEL.dot(query, 0, unitData(), frame * unitStride, unitStride);
+    }
+
+    @Override
+    public long memoryBytes() {
+        return 4L * (frameCount * dimension + frameCount) + (unit != null ? 4L * unit.length : 0L);
+    }
+
+    // New matrix holding the listed rows, in order
+    public FeatureMatrix selectFrames(int[] frames, int count) {
+        float[] selected = new float[count * dimension];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(data, frames[i] * dimension, selected, i * dimension, dimension);
+        }
+        return new FeatureMatrix(selected, count, dimension);
+    }
+
+    // Same result as AudioMatcher.cosineSimilarity(row a of this, row b of other)
+    public float cosineSimilarity(int a, FeatureMatrix other, int b) {
+        return unitCosine(unitData(), unitOffset(a), norms[a], other.unitData(), other.unitOffset(b), other.norms[b], dimension);
+    }
+
+    // Cosine of two rows given their unit-normalised data; hot loops fetch unitData() once and call this directly
+    static float unitCosine(float[] ua, int baseA, float normA, float[] ub, int baseB, float normB, int dimension) {
+        if (normA < NORM_EPSILON || normB < NORM_EPSILON) {
+            return (normA < NORM_EPSILON && normB < NORM_EPSILON) ? 1.0f : 0.0f;
+        }
+        float dot = 0.0f;
+        for (int k = 0; k < dimension; k++) {
+            dot += ua[baseA + k] * ub[baseB + k];
+        }
+        return dot;
+    }
+}
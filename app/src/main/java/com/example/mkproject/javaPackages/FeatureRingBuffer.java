@@ -0,0 +1,104 @@
+package com.example.mkproject.javaPackages;
+
+// Fixed-capacity circular buffer of feature frames backed by one float[] (capacity x dimension). Appending is O(dimension)
+// and overwrites the oldest frame once full. Unit rows and norms are maintained on append, so the buffer itself is the
+// zero-copy FrameSequence view the DTW reads; frame 0 is always the oldest frame still held.
+public final class FeatureRingBuffer implements FrameSequence {
+    private static final float NORM_EPSILON = 1e-9f;
+
+    private final int capacity;
+    private final int dimension;
+    private final float[] data;
+    private final float[] unit;
+    private final float[] norms;
+    private int head = 0; // Physical slot of frame 0
+    private int size = 0;
+
+    public FeatureRingBuffer(int capacity, int dimension) {
+        if (capacity <= 0 || dimension <= 0) {
+            throw new IllegalArgumentException("Invalid ring buffer: " + capacity + " x " + dimension);
+        }
+        this.capacity = capacity;
+        this.dimension = dimension;
+        this.data = new float[capacity * dimension];
+        this.unit = new float[capacity * dimension];
+        this.norms = new float[capacity];
+    }
+
+    // Copies one frame (dimension floats at offset), evicting the oldest frame if the buffer is full
+    public void append(float[] frame, int offset) {
+        int slot;
+        if (size < capacity) {
+            slot = (head + size) % capacity;
+            size++;
+        } else {
+            slot = head;
+            head = (head + 1) % capacity;
+        }
+        int base = slot * dimension;
+        double sum = 0.0;
+        for (int k = 0; k < dimension; k++) {
+            float v = frame[offset + k];
+            data[base + k] = v;
+            sum += v * v;
+        }
+        float norm = (float) Math.sqrt(sum);
+        norms[slot] = norm;
+        float scale = norm < NORM_EPSILON ? 0.0f : 1.0f / norm;
+        for (int k = 0; k < dimension; k++) {
+            unit[base + k] = data[base + k] * scale;
+        }
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public int frameCount() {
+        return size;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    public float get(int frame, int coefficient) {
+        return data[slot(frame) * dimension + coefficient];
+    }
+
+    @Override
+    public float[] unitData() {
+        return unit;
+    }
+
+    @Override
+    public int unitOffset(int frame) {
+        return slot(frame) * dimension;
+    }
+
+    @Override
+    public float norm(int frame) {
+        return norms[slot(frame)];
+    }
+
+    // Copies the held frames, oldest first, into a standalone matrix
+    public FeatureMatrix toMatrix() {
+        float[] copy = new float[size * dimension];
+        int first = Math.min(size, capacity - head);
+        System.arraycopy(data, head * dimension, copy, 0, first * dimension);
+        System.arraycopy(data, 0, copy, first * dimension, (size - first) * dimension);
+        return new FeatureMatrix(copy, size, dimension);
+    }
+
+    private int slot(int frame) {
+        int slot = head + frame;
+        return slot >= capacity ? slot - capacity : slot;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.mkproject.javaPackages;
+
+// Inner-loop kernel of the matchers: the dot product of a prepared query with one unit-normalised reference row,
+// which is the cosine every DTW cell needs. Reference rows are padded with zeros to a multiple of LANES coefficients
+// (13 MFCCs -> 16), so kernels run whole 16-lane blocks with no tail. Implementations must be stateless and
+// thread-safe. FrameDistances picks one at startup; additional kernels are found through java.util.ServiceLoader.
+public interface FrameDistance {
+    int LANES = 16;
+
+    // Row stride of padded reference rows and length of query buffers
+    static int paddedDimension(int dimension) {
+        return (dimension + LANES - 1) / LANES * LANES;
+    }
+
+    // Short name for logs, benchmarks and the mkproject.frameDistance system property
+    String getName();
+
+    // Sum of a[aOffset + k] * b[bOffset + k] over k < length; length is a multiple of LANES
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    // Sum of query[k] * codes[offset + k] over k < length; length is a multiple of LANES
+    float dot(float[] query, byte[] codes, int offset, int length);
+}
@@ -0,0 +1,71 @@
+package com.example.mkproject.javaPackages;
+
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+// Startup selection of the FrameDistance kernel. Kernels registered with ServiceLoader (the Vector API kernel of the
+// :offline build) are preferred; a provider that cannot load on this runtime, e.g. because jdk.incubator.vector is
+// not resolved, is skipped. Android ships no providers and gets the unrolled kernel. The system property
+// mkproject.frameDistance forces a kernel by name.
+public final class FrameDistances {
+    private static final String TAG = "FrameDistances";
+    public static final String PROPERTY = "mkproject.frameDistance";
+
+    // Read once per process; the matchers' hot loops call through this field
+    static final FrameDistance KERNEL = select();
+
+    private FrameDistances() {
+    }
+
+    public static FrameDistance get() {
+        return KERNEL;
+    }
+
+    // Every kernel usable on this runtime, built-in ones first
+    public static List<FrameDistance> available() {
+        List<FrameDistance> kernels = new ArrayList<>();
+        kernels.add(new ScalarFrameDistance());
+        kernels.add(new UnrolledFrameDistance());
+        Iterator<FrameDistance> providers = ServiceLoader.load(FrameDistance.class, FrameDistance.class.getClassLoader()).iterator();
+        while (true) {
+            try {
+                if (!providers.hasNext()) break;
+                kernels.add(providers.next());
+            } catch (ServiceConfigurationError | LinkageError e) {
+                Log.w(TAG, "Skipping a distance kernel that cannot load here: " + e);
+            }
+        }
+        return kernels;
+    }
+
+    // Kernel with the given name, or null if it is not available on this runtime
+    public static FrameDistance byName(String name) {
+        for (FrameDistance kernel : available()) {
+            if (kernel.getName().equals(name)) return kernel;
+        }
+        return null;
+    }
+
+    private static FrameDistance select() {
+        List<FrameDistance> kernels = available();
+        FrameDistance selected = kernels.get(kernels.size() - 1); // The last provider, else the unrolled kernel
+        String forced = System.getProperty(PROPERTY);
+        if (forced != null) {
+            FrameDistance match = null;
+            for (FrameDistance kernel : kernels) {
+                if (kernel.getName().equals(forced)) match = kernel;
+            }
+            if (match != null) {
+                selected = match;
+            } else {
+                Log.w(TAG, "Distance kernel '" + forced + "' is not available, using " + selected.getName());
+            }
+        }
+        Log.d(TAG, "Distance kernel: " + selected.getName());
+        return selected;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.mkproject.javaPackages;
+
+// Read access to a sequence of feature frames as the DTW inner loop needs it: unit-normalised rows plus their
+// original L2 norms. Rows need not be adjacent to each other (see FeatureRingBuffer), only each row's coefficients.
+public interface FrameSequence {
+    int frameCount();
+
+    int dimension();
+
+    // Array holding the unit-normalised rows; row i starts at unitOffset(i). Must not be modified.
+    float[] unitData();
+
+    int unitOffset(int frame);
+
+    float norm(int frame);
+
+    default boolean isEmpty() {
+        return frameCount() == 0;
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.mkproject.javaPackages;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// RecognizerMetrics that keeps counters and a power-of-two latency histogram per stage. Recording is lock-free and
+// allocation-free, so it can stay installed in a profiling build of the app.
+public final class HistogramRecognizerMetrics implements RecognizerMetrics {
+
+    // Bucket i counts samples in [2^i, 2^(i+1)) ns; bucket 0 also takes 0 ns. 40 buckets reach ~18 minutes.
+    public static final class LatencyHistogram {
+        private static final int BUCKETS = 40;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            if (nanos < 0) nanos = 0;
+            int bucket = Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(nanos | 1));
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+                // Retry until the larger value is stored
+            }
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getMeanNanos() {
+            long n = count.get();
+            return n > 0 ? totalNanos.get() / n : 0;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        // Upper bound of the bucket holding the given quantile (0..1); accurate to within a factor of two
+        public long getPercentileNanos(double quantile) {
+            long n = count.get();
+            if (n == 0) return 0;
+            long rank = (long) Math.ceil(Math.max(0.0, Math.min(1.0, quantile)) * n);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank && seen > 0) return Math.min((1L << (i + 1)) - 1, maxNanos.get());
+            }
+            return maxNanos.get();
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+            count.set(0);
+            totalNanos.set(0);
+            maxNanos.set(0);
+        }
+
+        @Override
+        public String toString() {
+            return "n=" + getCount() + " mean=" + getMeanNanos() / 1000 + "us p50<" + getPercentileNanos(0.5) / 1000
+                    + "us p99<" + getPercentileNanos(0.99) / 1000 + "us max=" + getMaxNanos() / 1000 + "us";
+        }
+    }
+
+    private final AtomicLong frames = new AtomicLong();
+    private final AtomicLong silentFrames = new AtomicLong();
+    private final AtomicLong dtwCalls = new AtomicLong();
+    private final AtomicLong matches = new AtomicLong();
+    private final Map<Stage, LatencyHistogram> latencies = new EnumMap<>(Stage.class);
+
+    public HistogramRecognizerMetrics() {
+        for (Stage stage : Stage.values()) {
+            latencies.put(stage, new LatencyHistogram());
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void onFrame(boolean silent) {
+        frames.incrementAndGet();
+        if (silent) silentFrames.incrementAndGet();
+    }
+
+    @Override
+    public void onDtwCalls(int count) {
+        dtwCalls.addAndGet(count);
+    }
+
+    @Override
+    public void onMatch(String mantra, float similarity) {
+        matches.incrementAndGet();
+    }
+
+    @Override
+    public void onLatency(Stage stage, long nanos) {
+        latencies.get(stage).record(nanos);
+    }
+
+    public long getFrames() {
+        return frames.get();
+    }
+
+    public long getSilentFrames() {
+        return silentFrames.get();
+    }
+
+    public long getDtwCalls() {
+        return dtwCalls.get();
+    }
+
+    public long getMatches() {
+        return matches.get();
+    }
+
+    public LatencyHistogram getLatency(Stage stage) {
+        return latencies.get(stage);
+    }
+
+    public void reset() {
+        frames.set(0);
+        silentFrames.set(0);
+        dtwCalls.set(0);
+        matches.set(0);
+        for (LatencyHistogram histogram : latencies.values()) {
+            histogram.reset();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder()
+                .append("frames=").append(getFrames())
+                .append(" silent=").append(getSilentFrames())
+                .append(" dtw=").append(getDtwCalls())
+                .append(" matches=").append(getMatches());
+        for (Stage stage : Stage.values()) {
+            sb.append('\n').append(stage).append(": ").append(latencies.get(stage));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.mkproject.javaPackages;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Compiled references for the stored mantras, published as immutable snapshots. Writers build a new snapshot
+// and swap it in atomically, so a running recognition keeps whatever snapshot it started with and never sees a
+// half-built map. Each update only compiles the affected mantra; the rest is a copy of template references.
+public final class MantraLibrary {
+
+    public static final class Snapshot {
+        private final Map<String, CompiledTemplate> templates; // Insertion-ordered, unmodifiable
+        private final List<String> names;
+
+        private Snapshot(LinkedHashMap<String, CompiledTemplate> templates) {
+            this.templates = Collections.unmodifiableMap(templates);
+            this.names = Collections.unmodifiableList(new ArrayList<>(templates.keySet()));
+        }
+
+        public CompiledTemplate get(String name) {
+            return templates.get(name);
+        }
+
+        public boolean contains(String name) {
+            return templates.containsKey(name);
+        }
+
+        public List<String> names() {
+            return names;
+        }
+
+        public Map<String, CompiledTemplate> templates() {
+            return templates;
+        }
+
+        public int size() {
+            return names.size();
+        }
+    }
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(new Snapshot(new LinkedHashMap<>()));
+
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    // Replaces the whole library, e.g. after the initial directory scan
+    public void replaceAll(Map<String, CompiledTemplate> templates) {
+        current.set(new Snapshot(new LinkedHashMap<>(templates)));
+    }
+
+    // Adds or replaces one template
+    public void put(CompiledTemplate template) {
+        Snapshot prev;
+        Snapshot next;
+        do {
+            prev = current.get();
+            LinkedHashMap<String, CompiledTemplate> copy = new LinkedHashMap<>(prev.templates);
+            copy.put(template.getName(), template);
+            next = new Snapshot(copy);
+        } while (!current.compareAndSet(prev, next));
+    }
+
+    // Returns false if no template with that name was present
+    public boolean remove(String name) {
+        Snapshot prev;
+        Snapshot next;
+        do {
+            prev = current.get();
+            if (!prev.contains(name)) return false;
+            LinkedHashMap<String, CompiledTemplate> copy = new LinkedHashMap<>(prev.templates);
+            copy.remove(name);
+            next = new Snapshot(copy);
+        } while (!current.compareAndSet(prev, next));
+        return true;
+    }
+
+    // Moves a template to a new name, keeping its position. Returns false if the old name is missing or the new one is taken.
+    public boolean rename(String oldName, String newName) {
+        Snapshot prev;
+        Snapshot next;
+        do {
+            prev = current.get();
+            CompiledTemplate template = prev.get(oldName);
+            if (template == null || prev.contains(newName)) return false;
+            LinkedHashMap<String, CompiledTemplate> copy = new LinkedHashMap<>();
+            for (Map.Entry<String, CompiledTemplate> entry : prev.templates.entrySet()) {
+                if (entry.getKey().equals(oldName)) {
+                    copy.put(newName, template.withName(newName));
+                } else {
+                    copy.put(entry.getKey(), entry.getValue());
+                }
+            }
+            next = new Snapshot(copy);
+        } while (!current.compareAndSet(prev, next));
+        return true;
+    }
+}
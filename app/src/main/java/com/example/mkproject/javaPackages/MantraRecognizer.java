@@ -6,25 +6,33 @@ import android.content.pm.PackageManager;
 import android.media.AudioFormat;
 import android.media.AudioRecord;
 import android.media.MediaRecorder;
+import android.os.FileObserver;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 import androidx.core.content.ContextCompat;
-import be.tarsos.dsp.AudioDispatcher;
-import be.tarsos.dsp.AudioEvent;
-import be.tarsos.dsp.io.android.AudioDispatcherFactory;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MantraRecognizer {
     private static final String TAG = "MantraRecognizer";
@@ -32,24 +40,48 @@ public class MantraRecognizer {
     private static final int BUFFER_SIZE = 2048;
     private static final int OVERLAP = BUFFER_SIZE / 2;
     public static final int MFCC_SIZE = 13;
-    private static final int MAX_UTTERANCE_FRAMES = 150; // Max frames for a live utterance before comparing
-    private static final int SILENCE_FRAMES_THRESHOLD = 15; // Consecutive silent frames to trigger DTW
+    private static final float DEFAULT_WARPING_BAND_PERCENT = 25.0f; // Sakoe-Chiba window for live DTW
+    private static final int MAX_SCORING_THREADS = 4; // Upper bound for the multi-mantra DTW pool
+    private static final String ALL_MANTRAS = "*"; // Session name while matching the whole library
+    private static final long IDLE_CAPTURE_MS = 15_000; // Microphone kept open after a stop, for a quick restart
+    // <name>.takes/ beside <name>.wav holds a mantra's further takes as 2.wav, 3.wav, ...; its cache then holds
+    // their average, keyed on the takes so that changes made outside recordTake also invalidate it.
+    private static final String TAKES_SUFFIX = ".takes";
 
     private final Context context;
     private final File storageDir;
-    private AudioDispatcher dispatcher;
+    // Microphone and pipeline outlive sessions: starting, stopping, pausing or retargeting only swaps what the match
+    // thread counts, so a restart costs no AudioRecord, thread or pipeline setup. After a stop they stay up for
+    // IDLE_CAPTURE_MS with the hops discarded, then close until the next session.
+    private final AudioSession audioSession = new AudioSession(SAMPLE_RATE, BUFFER_SIZE - OVERLAP);
+    // Runs every session and capture transition in call order, so the thread joins of opening, rebuilding and
+    // closing never happen on the caller's (usually the UI) thread
+    private final ScheduledExecutorService sessionControl = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "MantraSessionControl");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> idleClose; // Pending closeCapture() after a stop; sessionControl only
     private final AtomicBoolean isRecognizing = new AtomicBoolean(false);
     private final AtomicBoolean isRecording = new AtomicBoolean(false);
-    private int matchCount = 0;
-    private int matchLimit = 0;
-    private float similarityThreshold = 0.7f;
-    private String targetMantra = "";
+    private float warpingBandPercent = DEFAULT_WARPING_BAND_PERCENT;
+    private boolean continuousMode = false; // Segment on the template itself instead of waiting for a pause
+    private VadConfig vadConfig = VadConfig.DEFAULT;
+    private ExecutorService scoringPool; // Created on first multi-mantra utterance
     private MantraListener listener;
 
-    private Map<String, List<float[]>> referenceMFCCs = new HashMap<>(); // Holds full MFCC sequences for stored mantras
-    private List<String> savedMantras = new ArrayList<>();
-    private List<float[]> currentUtterance = new ArrayList<>(); // Accumulates MFCC frames from live audio
-    private int consecutiveSilence = 0;
+    private final MantraLibrary library = new MantraLibrary(); // Compiled (trimmed, normalised) references for stored mantras
+    private final FileObserver libraryObserver;
+    private volatile File activeRecordingFile; // WAV currently being written by recordMantra
+    // Template of the current or last recording once it is in the library; null if that recording stored none
+    private volatile CompletableFuture<CompiledTemplate> recordingResult = CompletableFuture.completedFuture(null);
+    private volatile RecognizerMetrics metrics = RecognizerMetrics.NONE;
+    private volatile RecognitionPipeline pipeline; // Capture -> feature -> match stages, rebuilt only for a new VAD or metrics
+    private VadConfig pipelineVadConfig; // What pipeline was built with; sessionControl only
+    private RecognizerMetrics pipelineMetrics;
+    private volatile SessionTarget target; // What the match thread counts for; null while stopped
+    private volatile SessionTarget session; // Current or last session, for its counts
+    private volatile boolean paused;
 
     private Handler mainHandler = new Handler(Looper.getMainLooper());
 
@@ -62,249 +94,392 @@ public class MantraRecognizer {
         }
         this.context = context;
         // mainHandler is already initialized with Looper.getMainLooper()
+
+        // String-path constructor: the File variant needs API 29
+        this.libraryObserver = new FileObserver(storageDir.getPath(),
+                FileObserver.CLOSE_WRITE | FileObserver.MOVED_TO | FileObserver.DELETE | FileObserver.MOVED_FROM) {
+            @Override
+            public void onEvent(int event, String path) {
+                onLibraryFileEvent(event, path);
+            }
+        };
+        libraryObserver.startWatching();
     }
 
     public void setListener(MantraListener listener) {
         this.listener = listener;
     }
 
+    // Width of the DTW warping window as a percentage of the utterance/template length (100 = unconstrained)
+    public void setWarpingBandPercent(float percent) {
+        this.warpingBandPercent = percent;
+    }
+
+    // For chanting without pauses between repetitions: each live frame extends a subsequence DTW against the target
+    // mantra and every repetition is counted as soon as it aligns instead of at the closing pause. Needs a single target
+    // mantra; with several, recognition stays pause-delimited. Takes effect on the next startRecognition.
+    public void setContinuousMode(boolean enabled) {
+        this.continuousMode = enabled;
+    }
+
+    // Noise-floor margins and hangover of the live voice activity detector; a longer hangover bridges longer dips
+    // inside an utterance at the cost of endpointing latency. Templates keep VadConfig.DEFAULT.
+    // Takes effect on the next startRecognition.
+    public void setVadConfig(VadConfig config) {
+        this.vadConfig = config != null ? config : VadConfig.DEFAULT;
+    }
+
+    // Counters, stage latencies and trace sections for profiling; pass null to go back to the free no-op default.
+    // Takes effect on the next startRecognition.
+    public void setMetrics(RecognizerMetrics metrics) {
+        this.metrics = metrics != null ? metrics : RecognizerMetrics.NONE;
+    }
+
     public List<String> getSavedMantras() {
-        return new ArrayList<>(savedMantras);
+        return new ArrayList<>(library.snapshot().names());
     }
 
     public void loadSavedMantras() {
         if (!storageDir.exists() || !storageDir.isDirectory()) {
             if (listener != null) listener.onError("Mantra directory not found.");
-            savedMantras = new ArrayList<>();
-            referenceMFCCs.clear(); // Ensure consistency
-            if (listener != null) mainHandler.post(listener::onMantrasUpdated);
+            library.replaceAll(new HashMap<>()); // Ensure consistency
+            notifyMantrasUpdated();
             return;
         }
-        List<String> newSavedMantras = new ArrayList<>();
-        Map<String, List<float[]>> newReferenceMFCCs = new HashMap<>();
+        Map<String, CompiledTemplate> templates = new LinkedHashMap<>();
 
         File[] files = storageDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".wav"));
         if (files != null) {
             for (File file : files) {
-                String name = file.getName().substring(0, file.getName().length() - 4); // Remove .wav
-                float[] audio = loadWavToFloatArray(file);
-                if (audio != null && audio.length > 0) {
-                    List<float[]> mfccs = AudioMatcher.extractMFCC(audio);
-                    if (mfccs != null && !mfccs.isEmpty()) {
-                        newReferenceMFCCs.put(name, mfccs);
-                        newSavedMantras.add(name);
-                        Log.d(TAG, "Loaded reference MFCCs for: " + name + " with " + mfccs.size() + " frames.");
-                    } else {
-                        Log.w(TAG, "No MFCCs extracted for reference: " + name);
-                    }
-                } else {
-                    Log.w(TAG, "Failed to load audio or audio is empty for reference: " + name);
-                }
+                CompiledTemplate template = loadMantraFile(file);
+                if (template != null) templates.put(template.getName(), template);
             }
         }
-        this.savedMantras = newSavedMantras;
-        this.referenceMFCCs = newReferenceMFCCs;
-        if (listener != null) {
-            mainHandler.post(listener::onMantrasUpdated);
+        // Recordings interrupted by a crash never got renamed into place, mantras and takes alike
+        if (activeRecordingFile == null) {
+            deleteUnfinishedRecordings(storageDir);
+            File[] takeDirs = storageDir.listFiles((dir, name) -> name.endsWith(TAKES_SUFFIX));
+            if (takeDirs != null) {
+                for (File takeDir : takeDirs) deleteUnfinishedRecordings(takeDir);
+            }
         }
+        library.replaceAll(templates);
+        notifyMantrasUpdated();
     }
 
-    // loadReferenceMFCC was inlined into loadSavedMantras essentially
+    private static void deleteUnfinishedRecordings(File directory) {
+        File[] orphans = directory.listFiles((dir, name) -> name.endsWith(".wav" + EnrollmentWriter.TEMP_SUFFIX));
+        if (orphans == null) return;
+        for (File orphan : orphans) {
+            if (!orphan.delete()) Log.w(TAG, "Failed to delete unfinished recording " + orphan.getName());
+        }
+    }
 
-    private float[] loadWavToFloatArray(File file) {
-        if (file == null || !file.exists()) {
-             Log.e(TAG, "loadWavToFloatArray: File is null or does not exist: " + (file != null ? file.getPath() : "null"));
-             return null;
-        }
-        try (FileInputStream fis = new FileInputStream(file)) {
-            byte[] header = new byte[44];
-            if (fis.read(header) != 44) {
-                Log.e(TAG, "WAV file header too short: " + file.getPath());
+    // Compiled template for one stored WAV, from its feature cache when valid. Null if the file is unusable.
+    private CompiledTemplate loadMantraFile(File file) {
+        String name = file.getName().substring(0, file.getName().length() - 4); // Remove .wav
+        CompiledTemplate cached = FeatureCache.load(name, file, takesKey(name));
+        if (cached != null) {
+            Log.d(TAG, "Loaded cached reference for: " + name + " with " + cached.getFrameCount() + " frames.");
+            return cached;
+        }
+        CompiledTemplate template;
+        if (listTakes(name).size() > 1) {
+            template = averageTakes(name);
+            if (template == null) return null;
+        } else {
+            float[] audio = loadWavToFloatArray(file);
+            if (audio == null || audio.length == 0) {
+                Log.w(TAG, "Failed to load audio or audio is empty for reference: " + name);
                 return null;
             }
+            template = CompiledTemplate.compile(name, audio);
+        }
+        if (template.getUntrimmedFrameCount() == 0) {
+            Log.w(TAG, "No MFCCs extracted for reference: " + name);
+            return null;
+        }
+        FeatureCache.store(file, template, takesKey(name));
+        Log.d(TAG, "Compiled reference for: " + name + " with " + template.getFrameCount() + " of " + template.getUntrimmedFrameCount() + " frames after trimming.");
+        return template;
+    }
 
-            int channels = ByteBuffer.wrap(header, 22, 2).order(ByteOrder.LITTLE_ENDIAN).getShort();
-            int bitsPerSample = ByteBuffer.wrap(header, 34, 2).order(ByteOrder.LITTLE_ENDIAN).getShort();
-            int fileSampleRate = ByteBuffer.wrap(header, 24, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+    // Applies a change made to the mantras directory by someone else (file manager, backup restore, ...) to that entry only
+    private void onLibraryFileEvent(int event, String path) {
+        if (path == null || !path.toLowerCase().endsWith(".wav")) return;
+        File file = new File(storageDir, path);
+        if (file.equals(activeRecordingFile)) return; // Still being written; recordMantra adds it when done
+        String name = path.substring(0, path.length() - 4);
+        boolean changed;
+        if ((event & (FileObserver.DELETE | FileObserver.MOVED_FROM)) != 0) {
+            FeatureCache.delete(file);
+            changed = library.remove(name);
+        } else {
+            CompiledTemplate template = loadMantraFile(file);
+            changed = template != null;
+            if (changed) library.put(template);
+        }
+        if (changed) {
+            Log.d(TAG, "Mantra library updated from directory event " + event + " for " + name);
+            notifyMantrasUpdated();
+        }
+    }
 
-            if (channels != 1 || bitsPerSample != 16 || fileSampleRate != SAMPLE_RATE) {
-                Log.e(TAG, String.format("Unsupported WAV format for %s: channels=%d (exp 1), bitsPerSample=%d (exp 16), sampleRate=%d (exp %d)",
-                 file.getName(), channels, bitsPerSample, fileSampleRate, SAMPLE_RATE));
-                return null;
-            }
+    private void notifyMantrasUpdated() {
+        if (listener != null) mainHandler.post(listener::onMantrasUpdated);
+    }
 
-            int dataSize = ByteBuffer.wrap(header, 40, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
-            if (dataSize <= 0 || dataSize > file.length() - 44) { // Basic sanity check for dataSize
-                Log.e(TAG, "WAV file data size invalid or exceeds file bounds: " + dataSize + " for file " + file.getPath());
-                return null;
-            }
+    // Stops recognition and recording and releases the microphone now rather than after IDLE_CAPTURE_MS, e.g. when
+    // the app leaves the screen. The recognizer stays usable; the next session opens the microphone again.
+    public void releaseMicrophone() {
+        stopRecognition();
+        stopRecording();
+        control(this::closeCapture);
+    }
 
-            byte[] data = new byte[dataSize];
-            int bytesRead = fis.read(data);
-            if (bytesRead != dataSize) {
-                Log.e(TAG, String.format("Could not read full WAV data for %s. Expected: %d, Got: %d", file.getName(), dataSize, bytesRead));
-                return null;
+    // Stops watching the mantras directory and releases the microphone; call when the recognizer is no longer used
+    public void release() {
+        libraryObserver.stopWatching();
+        stopRecognition();
+        stopRecording();
+        control(() -> {
+            closeCapture();
+            synchronized (this) {
+                if (scoringPool != null) {
+                    scoringPool.shutdownNow();
+                    scoringPool = null;
+                }
             }
+        });
+        sessionControl.shutdown(); // After the transitions queued so far
+    }
 
-            short[] shortsArray = new short[dataSize / 2];
-            ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().get(shortsArray);
-            float[] floatArray = new float[shortsArray.length];
-            for (int i = 0; i < shortsArray.length; i++) {
-                floatArray[i] = shortsArray[i] / 32768.0f; // Normalize to [-1, 1]
-            }
-            return floatArray;
-        } catch (IOException e) {
-            Log.e(TAG, "Error loading WAV file: " + file.getPath(), e);
-            return null;
+    private void control(Runnable transition) {
+        try {
+            sessionControl.execute(transition);
+        } catch (RejectedExecutionException e) {
+            Log.w(TAG, "Recognizer already released, ignoring call");
         }
     }
 
+    // loadReferenceMFCC was inlined into loadSavedMantras essentially
+
+    private float[] loadWavToFloatArray(File file) {
+        return WavReader.read(file, SAMPLE_RATE);
+    }
+
     public void startRecognition(String mantra, int limit, float threshold) {
         if (ContextCompat.checkSelfPermission(context, Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
             if (listener != null) mainHandler.post(() -> listener.onError("Microphone permission required."));
             return;
         }
 
-        targetMantra = mantra;
-        matchLimit = limit;
-        similarityThreshold = threshold;
-        matchCount = 0;
-        isRecognizing.set(true);
-        currentUtterance.clear();
-        consecutiveSilence = 0;
-
-        if (!referenceMFCCs.containsKey(mantra)) {
-            Log.e(TAG, "Target mantra '" + mantra + "' not found in referenceMFCCs map.");
+        final CompiledTemplate referenceTemplate = library.snapshot().get(mantra);
+        if (referenceTemplate == null) {
+            Log.e(TAG, "Target mantra '" + mantra + "' not found in the mantra library.");
             if (listener != null) mainHandler.post(() -> listener.onError("Mantra not found: " + mantra));
-            isRecognizing.set(false);
             if (listener != null) mainHandler.post(() -> listener.onRecognizingStateChanged(false));
             return;
         }
 
-        final List<float[]> referenceMfccSequence = referenceMFCCs.get(targetMantra);
-        if (referenceMfccSequence == null || referenceMfccSequence.isEmpty()){
-            Log.e(TAG, "Reference MFCC sequence for '" + mantra + "' is null or empty.");
+        // Compiled at load time, so starting recognition does no file I/O or reference DSP
+        if (referenceTemplate.isEmpty()){
+            Log.e(TAG, "Reference template for '" + mantra + "' is silent after trimming.");
             if (listener != null) mainHandler.post(() -> listener.onError("Reference mantra data is invalid for: " + mantra));
-            isRecognizing.set(false);
             if (listener != null) mainHandler.post(() -> listener.onRecognizingStateChanged(false));
             return;
         }
-        // Pre-load the reference audio WAV file for computeDTW
-        final float[] referenceAudio = loadWavToFloatArray(new File(storageDir, targetMantra + ".wav"));
-        if (referenceAudio == null) {
-            Log.e(TAG, "Failed to load reference audio WAV for DTW: " + targetMantra);
-            if (listener != null) mainHandler.post(() -> listener.onError("Failed to load reference audio for: " + targetMantra));
-            isRecognizing.set(false);
+
+        startSession(mantra, Collections.singletonList(referenceTemplate), Collections.singletonMap(mantra, limit), threshold);
+    }
+
+    // Matches every utterance against all stored mantras at once, with the same limit for each
+    public void startMultiRecognition(int limitPerMantra, float threshold) {
+        Map<String, Integer> limits = new LinkedHashMap<>();
+        for (String name : library.snapshot().names()) {
+            limits.put(name, limitPerMantra);
+        }
+        startMultiRecognition(limits, threshold);
+    }
+
+    // Matches every utterance against each listed mantra in parallel and counts it for the best-scoring one.
+    // Each mantra keeps its own count and raises the alarm when its own limit is reached.
+    public void startMultiRecognition(Map<String, Integer> limitsByMantra, float threshold) {
+        if (ContextCompat.checkSelfPermission(context, Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
+            if (listener != null) mainHandler.post(() -> listener.onError("Microphone permission required."));
+            return;
+        }
+        MantraLibrary.Snapshot snapshot = library.snapshot();
+        List<CompiledTemplate> templates = new ArrayList<>();
+        for (String name : limitsByMantra.keySet()) {
+            CompiledTemplate template = snapshot.get(name);
+            if (template != null && !template.isEmpty()) {
+                templates.add(template);
+            } else {
+                Log.w(TAG, "Skipping mantra without a usable reference: " + name);
+            }
+        }
+        if (templates.isEmpty()) {
+            Log.e(TAG, "No usable mantras for multi-mantra recognition.");
+            if (listener != null) mainHandler.post(() -> listener.onError("No recorded mantras to recognize."));
             if (listener != null) mainHandler.post(() -> listener.onRecognizingStateChanged(false));
             return;
         }
+        startSession(ALL_MANTRAS, templates, limitsByMantra, threshold);
+    }
+
+    // While recognizing this is a hot swap: the new target replaces the old one between two frames
+    private void startSession(String name, List<CompiledTemplate> templates, Map<String, Integer> limits, float threshold) {
+        control(() -> applySession(name, templates, limits, threshold));
+    }
 
+    // sessionControl only
+    private void applySession(String name, List<CompiledTemplate> templates, Map<String, Integer> limits, float threshold) {
+        if (isRecording.get()) { // The recorder has the microphone; a second AudioRecord would compete for it
+            if (listener != null) mainHandler.post(() -> listener.onError("Stop recording before recognizing."));
+            if (listener != null && !isRecognizing.get()) mainHandler.post(() -> listener.onRecognizingStateChanged(false));
+            return;
+        }
+        if (!openCapture()) {
+            if (listener != null) mainHandler.post(() -> listener.onError("Failed to initialize microphone."));
+            if (listener != null && !isRecognizing.get()) mainHandler.post(() -> listener.onRecognizingStateChanged(false));
+            return;
+        }
+        cancelIdleClose();
+        // Built here, so the match thread goes straight from the old target's detector to the new one
+        SessionTarget next = new SessionTarget(name, templates, limits, threshold);
+        paused = false;
+        session = next;
+        target = next;
+        boolean restarted = isRecognizing.getAndSet(true);
+        Log.d(TAG, (restarted ? "Switched" : "Started") + " recognition: " + next.status);
 
         if (listener != null) {
             mainHandler.post(() -> {
-                listener.onStatusUpdate("Recognizing: " + mantra);
+                listener.onStatusUpdate(next.status);
                 listener.onMatchCountUpdate(0);
                 listener.onRecognizingStateChanged(true);
             });
         }
+    }
 
-        try {
-            dispatcher = AudioDispatcherFactory.fromDefaultMicrophone(SAMPLE_RATE, BUFFER_SIZE, OVERLAP);
-        } catch (Exception e) { // Catch potential exceptions from factory method
-            Log.e(TAG, "Failed to create AudioDispatcher from microphone", e);
-            if (listener != null) mainHandler.post(() -> listener.onError("Failed to initialize microphone: " + e.getMessage()));
-            isRecognizing.set(false);
-            if (listener != null) mainHandler.post(() -> listener.onRecognizingStateChanged(false));
-            return;
+    // Opens the microphone unless it is open, and (re)builds the pipeline if there is none yet or the VAD or metrics
+    // changed since. False if the microphone could not be opened. sessionControl only.
+    private boolean openCapture() {
+        RecognitionPipeline current = pipeline;
+        if (current == null || !current.isRunning() || pipelineVadConfig != vadConfig || pipelineMetrics != metrics) {
+            // Capture keeps running and the hops in between are dropped. stop() gives up waiting after a second, so
+            // the old match thread may still be finishing a frame: the new pipeline gets its own SessionMatcher,
+            // which never runs a detector that the old one has used
+            if (current != null) current.stop();
+            RecognitionPipeline rebuilt = new RecognitionPipeline(
+                    AudioMatcher.ANALYSIS, vadConfig, BUFFER_SIZE - OVERLAP, metrics, new SessionMatcher());
+            pipelineVadConfig = vadConfig;
+            pipelineMetrics = metrics;
+            rebuilt.start();
+            pipeline = rebuilt;
         }
-        
-        dispatcher.addAudioProcessor(new be.tarsos.dsp.AudioProcessor() {
-            @Override
-            public boolean process(AudioEvent audioEvent) {
-                if (!isRecognizing.get()) return false; // Stop processing if recognition was cancelled
+        audioSession.setSink(this::offerCaptured);
+        return audioSession.open();
+    }
 
-                float[] audioBuffer = audioEvent.getFloatBuffer();
-                if (audioBuffer == null || audioBuffer.length == 0) return true;
+    // Releases the microphone and stops the pipeline; the next session opens both again. sessionControl only.
+    private void closeCapture() {
+        cancelIdleClose();
+        audioSession.close();
+        RecognitionPipeline current = pipeline;
+        if (current != null) current.stop(); // Joins the feature and match threads
+    }
 
-                List<float[]> liveMfccsPortion = AudioMatcher.extractMFCC(audioBuffer);
-                if (liveMfccsPortion == null || liveMfccsPortion.isEmpty()) return true;
+    // Capture thread. While stopped the hops are dropped here, so the feature and match threads sit idle on their
+    // queues; while paused they keep flowing, so the VAD's noise floor is current on resume.
+    private void offerCaptured(float[] samples, int offset, int length) {
+        RecognitionPipeline current = pipeline;
+        if (current != null && target != null) current.offerAudio(samples, offset, length);
+    }
 
-                currentUtterance.addAll(liveMfccsPortion);
-                // Keep currentUtterance from growing indefinitely
-                while (currentUtterance.size() > MAX_UTTERANCE_FRAMES) {
-                    currentUtterance.remove(0);
+    // Closes the idle capture unless a session starts first. sessionControl only.
+    private void scheduleIdleClose() {
+        cancelIdleClose();
+        try {
+            idleClose = sessionControl.schedule(() -> {
+                idleClose = null;
+                if (target == null) {
+                    Log.d(TAG, "No session for " + IDLE_CAPTURE_MS + " ms, releasing the microphone");
+                    closeCapture();
                 }
+            }, IDLE_CAPTURE_MS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Stopped by release(), whose own transition closes the capture next
+        }
+    }
 
-                // Use the last MFCC frame from the current live portion for silence detection
-                float[] lastLiveMfccFrame = liveMfccsPortion.get(liveMfccsPortion.size() - 1);
-
-                if (AudioMatcher.isSilentFrame(audioBuffer, lastLiveMfccFrame)) {
-                    consecutiveSilence++;
-                    if (consecutiveSilence >= SILENCE_FRAMES_THRESHOLD && !currentUtterance.isEmpty()) {
-                        // Silence threshold met, currentUtterance is considered complete. Perform DTW.
-                        Log.d(TAG, "Silence detected. Utterance size: " + currentUtterance.size() + ". Comparing with '" + targetMantra + "'.");
-                        
-                        // Ensure reference is still valid (it should be, but good for safety)
-                        if (referenceMfccSequence != null && !referenceMfccSequence.isEmpty() && referenceAudio != null) {
-                             float similarity = AudioMatcher.computeDTW(new ArrayList<>(currentUtterance), referenceMfccSequence, referenceAudio);
-                             Log.d(TAG, "DTW Similarity for '"+targetMantra+"': " + similarity);
-
-                            if (similarity >= similarityThreshold) {
-                                matchCount++;
-                                Log.i(TAG, "Match detected for '" + targetMantra + "'! Count: " + matchCount + " (Limit: "+matchLimit+", Threshold: "+similarityThreshold+", Similarity: "+similarity+")");
-                                mainHandler.post(() -> {
-                                    if (listener != null) listener.onMatchCountUpdate(matchCount);
-                                    if (matchCount >= matchLimit && listener != null) listener.onAlarmTriggered();
-                                });
-                            } else {
-                                Log.d(TAG, "No match. Similarity " + similarity + " < threshold " + similarityThreshold);
-                            }
-                        } else {
-                            Log.w(TAG, "Skipping DTW: Reference data for '"+targetMantra+"' became invalid during processing.");
-                        }
-                        currentUtterance.clear();
-                        consecutiveSilence = 0;
-                    }
-                } else {
-                    // Not silent, reset silence counter
-                    consecutiveSilence = 0;
-                }
-                return true; // Keep processing
-            }
+    // sessionControl only
+    private void cancelIdleClose() {
+        if (idleClose != null) {
+            idleClose.cancel(false);
+            idleClose = null;
+        }
+    }
 
-            @Override
-            public void processingFinished() {
-                Log.d(TAG, "AudioProcessor: processingFinished called.");
-                currentUtterance.clear();
-                // isRecognizing should be set by stopRecognition logic
-                // mainHandler.post(() -> {
-                //     if (listener != null) {
-                //         listener.onStatusUpdate("Stopped");
-                //         listener.onRecognizingStateChanged(false);
-                //     }
-                // });
-            }
+    private synchronized ExecutorService getScoringPool() {
+        if (scoringPool == null) {
+            int threads = Math.max(1, Math.min(MAX_SCORING_THREADS, Runtime.getRuntime().availableProcessors() - 1));
+            AtomicInteger threadIndex = new AtomicInteger();
+            scoringPool = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "MantraScoring-" + threadIndex.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scoringPool;
+    }
+
+    // Called on the match thread for every accepted repetition
+    private void registerMatch(SessionTarget matched, String mantra, float similarity) {
+        if (matched != target) return; // Completed just as the session was swapped or stopped
+        final int total = matched.total.incrementAndGet();
+        final int count = matched.counts.merge(mantra, 1, Integer::sum);
+        Integer limitValue = matched.limits.get(mantra);
+        final int limit = limitValue != null ? limitValue : matched.defaultLimit;
+        metrics.onMatch(mantra, similarity);
+        Log.i(TAG, "Match detected for '" + mantra + "'! Count: " + count + " (Limit: "+limit+", Threshold: "+matched.threshold+", Similarity: "+similarity+")");
+        mainHandler.post(() -> {
+            if (listener != null) listener.onMatchCountUpdate(total);
+            if (listener != null) listener.onMantraMatched(mantra, count, similarity);
+            if (count >= limit && listener != null) listener.onAlarmTriggered();
         });
+    }
+
+    // Queue depths, drops and overruns of the capture pipeline since it was last (re)built; null before the first session
+    public PipelineStats getPipelineStats() {
+        RecognitionPipeline current = pipeline;
+        return current != null ? current.getStats() : null;
+    }
 
-        new Thread(dispatcher::run, "AudioRecognitionThread").start();
+    // Matches counted for one mantra in the current (or last) session
+    public int getMatchCount(String mantra) {
+        SessionTarget current = session;
+        Integer count = current != null ? current.counts.get(mantra) : null;
+        return count != null ? count : 0;
     }
 
+    // Stops counting; the microphone and pipeline stay up for IDLE_CAPTURE_MS in case another session follows
     public void stopRecognition() {
-        if (!isRecognizing.compareAndSet(true, false)) {
-            Log.d(TAG, "stopRecognition called but was not recognizing.");
-            return; // Already stopped or wasn't running
-        }
-        Log.d(TAG, "Stopping recognition...");
-        if (dispatcher != null) {
-            try {
-                 dispatcher.stop();
-            } catch (Exception e){
-                Log.e(TAG, "Exception while stopping dispatcher", e);
+        control(() -> {
+            if (applyStop()) {
+                scheduleIdleClose();
+            } else {
+                Log.d(TAG, "stopRecognition called but was not recognizing.");
             }
-            dispatcher = null;
-        }
-        currentUtterance.clear();
-        consecutiveSilence = 0;
+        });
+    }
+
+    // Ends the current session; false if there was none. sessionControl only.
+    private boolean applyStop() {
+        if (!isRecognizing.compareAndSet(true, false)) return false; // Already stopped or wasn't running
+        target = null;
+        paused = false;
         mainHandler.post(() -> {
             if (listener != null) {
                 listener.onStatusUpdate("Stopped");
@@ -312,31 +487,99 @@ public class MantraRecognizer {
             }
         });
         Log.d(TAG, "Recognition stopped.");
+        return true;
+    }
+
+    // Ignores the microphone until resumeRecognition, keeping the session and its counts
+    public void pauseRecognition() {
+        control(() -> {
+            if (!isRecognizing.get() || paused) return;
+            paused = true;
+            if (listener != null) mainHandler.post(() -> listener.onStatusUpdate("Paused"));
+            Log.d(TAG, "Recognition paused.");
+        });
+    }
+
+    // Continues a paused session; a repetition cut by the pause is not counted
+    public void resumeRecognition() {
+        control(() -> {
+            SessionTarget current = target;
+            if (current == null || !paused) return;
+            paused = false;
+            if (listener != null) mainHandler.post(() -> listener.onStatusUpdate(current.status));
+            Log.d(TAG, "Recognition resumed.");
+        });
     }
 
     public void recordMantra(String name) {
+        if (!canStartRecording(name)) return;
+        File file = getUniqueFile(name.trim());
+        record(file, file.getName().substring(0, file.getName().length() - 4), false);
+    }
+
+    // Records one more take of a stored mantra and replaces its reference with the average of all its takes (see
+    // TemplateAverager), so matching it still costs one DTW. Without a stored mantra of that name, as recordMantra.
+    public void recordTake(String name) {
+        if (!canStartRecording(name)) return;
+        String mantra = name.trim();
+        if (!new File(storageDir, mantra + ".wav").exists()) {
+            recordMantra(mantra);
+            return;
+        }
+        File directory = new File(storageDir, mantra + TAKES_SUFFIX);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.e(TAG, "Failed to create takes directory: " + directory.getAbsolutePath());
+            if (listener != null) mainHandler.post(() -> listener.onError("Cannot store another take of " + mantra));
+            return;
+        }
+        int take = 2;
+        File file = new File(directory, take + ".wav");
+        while (file.exists()) {
+            file = new File(directory, ++take + ".wav");
+        }
+        record(file, mantra, true);
+    }
+
+    private boolean canStartRecording(String name) {
         if (name == null || name.trim().isEmpty()){
             if(listener != null) mainHandler.post(() -> listener.onError("Mantra name cannot be empty."));
-            return;
+            return false;
         }
         if (ContextCompat.checkSelfPermission(context, Manifest.permission.RECORD_AUDIO) != PackageManager.PERMISSION_GRANTED) {
             if (listener != null) mainHandler.post(() -> listener.onError("Microphone permission required."));
-            return;
+            return false;
         }
         if (isRecording.get()) {
             if (listener != null) mainHandler.post(() -> listener.onError("Already recording."));
-            return;
+            return false;
         }
+        return true;
+    }
 
-        File file = getUniqueFile(name.trim());
+    // Writes file and compiles the mantra's reference; an extra take is averaged with the mantra's other takes
+    private void record(File file, String mantraName, boolean extraTake) {
+        CompletableFuture<CompiledTemplate> result = new CompletableFuture<>();
+        recordingResult = result;
+        activeRecordingFile = file;
         isRecording.set(true);
         if (listener != null) {
             mainHandler.post(() -> {
-                listener.onStatusUpdate("Recording: " + file.getName().replace(".wav",""));
+                listener.onStatusUpdate("Recording: " + mantraName + (extraTake ? " (" + file.getName().replace(".wav", "") + ")" : ""));
                 listener.onRecordingStateChanged(true);
             });
         }
+        control(() -> {
+            // The recorder opens its own AudioRecord, which the recognition capture would compete with: a running
+            // session stops (and says so) and the capture closes; the next session reopens it
+            applyStop();
+            closeCapture();
+            startRecorder(file, mantraName, extraTake, result);
+        });
+    }
 
+    // sessionControl only: opens the recorder and starts the thread that writes and compiles the take, then
+    // completes result with the stored template (null if none was stored)
+    private void startRecorder(File file, String mantraName, boolean extraTake, CompletableFuture<CompiledTemplate> result) {
         AudioRecord record = null;
         try {
             int bufferSizeInBytes = AudioRecord.getMinBufferSize(SAMPLE_RATE, AudioFormat.CHANNEL_IN_MONO, AudioFormat.ENCODING_PCM_16BIT);
@@ -355,61 +598,78 @@ public class MantraRecognizer {
                 isRecording.set(false);
                 if (listener != null) mainHandler.post(() -> listener.onRecordingStateChanged(false));
                 if (record != null) record.release(); // Release if initialized but failed later
+                result.complete(null);
                 return;
             }
             record.startRecording();
             Log.d(TAG, "AudioRecord started recording to file: " + file.getAbsolutePath());
 
             final AudioRecord finalRecord = record; // For use in thread
-            new Thread(() -> {
-                FileOutputStream fos = null;
+            Thread thread = new Thread(() -> {
+                EnrollmentWriter writer = null;
                 try {
-                    fos = new FileOutputStream(file);
-                    writeWavHeader(fos, 0); // Write initial header with 0 data length
-                    short[] buffer = new short[BUFFER_SIZE]; // Use class constant for buffer size consistency
-                    int totalBytesWritten = 0;
+                    // PCM lands in one reusable direct buffer, goes to disk through a FileChannel and into the
+                    // feature extractor in the same pass, so the template is compiled by the time recording ends
+                    writer = new EnrollmentWriter(file);
+                    ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE * 2).order(ByteOrder.LITTLE_ENDIAN);
                     while (isRecording.get()) {
-                        int shortsRead = finalRecord.read(buffer, 0, buffer.length);
-                        if (shortsRead > 0) {
-                            byte[] bytesToWrite = new byte[shortsRead * 2]; // Each short is 2 bytes
-                            ByteBuffer.wrap(bytesToWrite).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer().put(buffer, 0, shortsRead);
-                            fos.write(bytesToWrite);
-                            totalBytesWritten += bytesToWrite.length;
-                        } else if (shortsRead < 0) { // Error reading
-                            Log.e(TAG, "AudioRecord read error: " + shortsRead);
-                            break; 
+                        buffer.clear();
+                        int bytesRead = finalRecord.read(buffer, buffer.capacity());
+                        if (bytesRead > 0) {
+                            buffer.limit(bytesRead);
+                            writer.write(buffer);
+                        } else if (bytesRead < 0) { // Error reading
+                            Log.e(TAG, "AudioRecord read error: " + bytesRead);
+                            break;
                         }
                     }
-                    fos.flush(); // Ensure all buffered data is written
-                    fos.close(); // Close before updating header
-                    fos = null; // Mark as closed
-                    updateWavHeader(file, totalBytesWritten);
-                    Log.d(TAG, "Recording finished. Total bytes written: " + totalBytesWritten + " to " + file.getName());
-                    if (totalBytesWritten == 0 && file.exists()) {
-                        Log.w(TAG, "Recording was empty, deleting file: " + file.getName());
-                        file.delete();
+                    long samples = writer.getSampleCount();
+                    CompiledTemplate template = writer.finish(mantraName);
+                    writer = null;
+                    Log.d(TAG, "Recording finished. Total bytes written: " + samples * 2 + " to " + file.getName());
+                    if (template == null) {
+                        Log.w(TAG, "Recording was empty, discarded: " + file.getName());
                          mainHandler.post(() -> {
                              if (listener != null) listener.onError("Recording was empty.");
                          });
+                    } else if (template.getUntrimmedFrameCount() == 0) {
+                        Log.w(TAG, "No MFCCs extracted for reference: " + mantraName);
+                        mainHandler.post(() -> {
+                            if (listener != null) listener.onError("Recorded audio could not be processed.");
+                        });
                     } else {
-                        mainHandler.post(this::loadSavedMantras); // Reload mantras including the new one
+                        if (extraTake) {
+                            template = averageTakes(mantraName);
+                            if (template == null) {
+                                mainHandler.post(() -> {
+                                    if (listener != null) listener.onError("Takes of " + mantraName + " could not be averaged.");
+                                });
+                                return;
+                            }
+                        }
+                        FeatureCache.store(new File(storageDir, mantraName + ".wav"), template, takesKey(mantraName));
+                        library.put(template);
+                        Log.d(TAG, "Compiled reference for: " + mantraName + " with " + template.getFrameCount() + " of " + template.getUntrimmedFrameCount() + " frames after trimming.");
+                        notifyMantrasUpdated();
+                        result.complete(template);
                     }
 
                 } catch (IOException e) {
                     Log.e(TAG, "Recording I/O error for " + file.getName(), e);
-                    if (file.exists()) file.delete(); // Attempt to clean up partial file
                      mainHandler.post(() -> {
                         if (listener != null) listener.onError("Recording failed: "+e.getMessage());
                     });
                 } finally {
-                    if (fos != null) {
-                        try { fos.close(); } catch (IOException e) { Log.e(TAG, "Failed to close FileOutputStream", e); }
+                    if (writer != null) {
+                        writer.abort(); // Leaves no partial file behind
                     }
                     if (finalRecord.getRecordingState() == AudioRecord.RECORDSTATE_RECORDING) {
                         try { finalRecord.stop(); } catch(IllegalStateException e) { Log.e(TAG, "Failed to stop AudioRecord", e);}
                     }
                     finalRecord.release();
+                    activeRecordingFile = null;
                     isRecording.set(false);
+                    result.complete(null); // No-op once the template was delivered
                     mainHandler.post(() -> {
                         if (listener != null) {
                             // Status update handled by error or loadSavedMantras completion
@@ -417,11 +677,14 @@ public class MantraRecognizer {
                         }
                     });
                 }
-            }, "AudioRecordingThread").start();
+            }, "AudioRecordingThread");
+            thread.start();
         } catch (Exception e) {
             Log.e(TAG, "Error during recordMantra setup", e);
             if (record != null) record.release();
+            activeRecordingFile = null;
             isRecording.set(false);
+            result.complete(null);
             if (listener != null) {
                 mainHandler.post(() -> {
                     listener.onError("Recording setup failed: " + e.getMessage());
@@ -431,13 +694,63 @@ public class MantraRecognizer {
         }
     }
 
-    public void stopRecording() {
+    // Returns at once; the recording thread finishes the WAV (and averages the takes) in the background, then
+    // reports onMantrasUpdated for the new template and onRecordingStateChanged(false). The returned future
+    // completes on that thread once the template is in the library, so startRecognition from a dependent action
+    // finds it; it completes with null if the recording stored nothing (onError says why), and is the last
+    // recording's result when none is running.
+    public CompletableFuture<CompiledTemplate> stopRecording() {
+        CompletableFuture<CompiledTemplate> result = recordingResult;
         if(isRecording.compareAndSet(true, false)){
             Log.d(TAG, "Stopping recording via stopRecording() call.");
-            // The recording thread will see isRecording flag and stop itself.
+            // The recording thread sees the flag after its current read (one buffer) and finishes the file
         } else {
             Log.d(TAG, "stopRecording called but was not recording.");
         }
+        return result;
+    }
+
+    // <name>.wav followed by the takes in <name>.takes/, in take order
+    private List<File> listTakes(String name) {
+        List<File> takes = new ArrayList<>();
+        takes.add(new File(storageDir, name + ".wav"));
+        File[] extra = new File(storageDir, name + TAKES_SUFFIX).listFiles((dir, file) -> file.toLowerCase().endsWith(".wav"));
+        if (extra != null) {
+            List<File> sorted = new ArrayList<>(Arrays.asList(extra));
+            Collections.sort(sorted, (a, b) -> Integer.compare(takeNumber(a), takeNumber(b)));
+            takes.addAll(sorted);
+        }
+        return takes;
+    }
+
+    // Cache key over a mantra's further takes, so its cached average goes stale when any of them changes
+    private long takesKey(String name) {
+        List<File> takes = listTakes(name);
+        return FeatureCache.sourcesKey(takes.subList(1, takes.size()));
+    }
+
+    private static int takeNumber(File take) {
+        try {
+            return Integer.parseInt(take.getName().substring(0, take.getName().length() - 4));
+        } catch (NumberFormatException e) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    // DBA average of all takes of a mantra, compiled and aligned on the scoring pool. Null if it fails.
+    private CompiledTemplate averageTakes(String name) {
+        List<File> takes = listTakes(name);
+        try {
+            CompiledTemplate template = TemplateAverager.fromTakes(name, takes, getScoringPool());
+            if (template == null) Log.w(TAG, "No take of " + name + " has speech");
+            return template;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Averaging " + takes.size() + " takes of " + name + " failed", e.getCause());
+            return null;
+        }
     }
 
     private File getUniqueFile(String name) {
@@ -455,43 +768,6 @@ public class MantraRecognizer {
         return file;
     }
 
-    private void writeWavHeader(FileOutputStream fos, int totalAudioLen) throws IOException {
-        int totalDataLen = totalAudioLen + 36; // 36 is for the rest of the header from 'WAVE' onwards
-        int channels = 1;
-        int bitsPerSample = 16;
-        long byteRate = (long)SAMPLE_RATE * channels * bitsPerSample / 8;
-        byte[] header = new byte[44];
-
-        header[0] = 'R'; header[1] = 'I'; header[2] = 'F'; header[3] = 'F'; // RIFF chunk
-        ByteBuffer.wrap(header, 4, 4).order(ByteOrder.LITTLE_ENDIAN).putInt(totalDataLen); // ChunkSize
-        header[8] = 'W'; header[9] = 'A'; header[10] = 'V'; header[11] = 'E'; // WAVE format
-        header[12] = 'f'; header[13] = 'm'; header[14] = 't'; header[15] = ' '; // fmt subchunk
-        ByteBuffer.wrap(header, 16, 4).order(ByteOrder.LITTLE_ENDIAN).putInt(16); // Subchunk1Size (16 for PCM)
-        ByteBuffer.wrap(header, 20, 2).order(ByteOrder.LITTLE_ENDIAN).putShort((short) 1); // AudioFormat (1 for PCM)
-        ByteBuffer.wrap(header, 22, 2).order(ByteOrder.LITTLE_ENDIAN).putShort((short) channels); // NumChannels
-        ByteBuffer.wrap(header, 24, 4).order(ByteOrder.LITTLE_ENDIAN).putInt(SAMPLE_RATE); // SampleRate
-        ByteBuffer.wrap(header, 28, 4).order(ByteOrder.LITTLE_ENDIAN).putInt((int) byteRate); // ByteRate
-        ByteBuffer.wrap(header, 32, 2).order(ByteOrder.LITTLE_ENDIAN).putShort((short) (channels * bitsPerSample / 8)); // BlockAlign
-        ByteBuffer.wrap(header, 34, 2).order(ByteOrder.LITTLE_ENDIAN).putShort((short) bitsPerSample); // BitsPerSample
-        header[36] = 'd'; header[37] = 'a'; header[38] = 't'; header[39] = 'a'; // data subchunk
-        ByteBuffer.wrap(header, 40, 4).order(ByteOrder.LITTLE_ENDIAN).putInt(totalAudioLen); // Subchunk2Size (data size)
-
-        fos.write(header);
-    }
-
-    private void updateWavHeader(File file, int totalAudioLen) {
-        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
-            int totalDataLen = totalAudioLen + 36;
-            raf.seek(4); // Position for ChunkSize
-            raf.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(totalDataLen).array());
-            raf.seek(40); // Position for Subchunk2Size (data size)
-            raf.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(totalAudioLen).array());
-            Log.d(TAG, "WAV header updated for " + file.getName() + ". TotalAudioLen: "+totalAudioLen+", TotalDataLen: "+totalDataLen);
-        } catch (IOException e) {
-            Log.e(TAG, "Error updating WAV header for " + file.getPath(), e);
-        }
-    }
-
     public void deleteMantra(String name) {
         if (name == null || name.trim().isEmpty()) {
              if (listener != null) mainHandler.post(() -> listener.onError("Mantra name for deletion is empty."));
@@ -501,7 +777,10 @@ public class MantraRecognizer {
         if (file.exists()) {
             if (file.delete()) {
                 Log.d(TAG, "Deleted mantra file: " + name);
-                loadSavedMantras(); // Reload to update lists and UI
+                FeatureCache.delete(file);
+                deleteTakes(name.trim());
+                library.remove(name.trim());
+                notifyMantrasUpdated();
                  mainHandler.post(() -> {
                      if (listener != null) listener.onStatusUpdate("Deleted: " + name);
                  });
@@ -512,15 +791,147 @@ public class MantraRecognizer {
         } else {
             Log.w(TAG, "Mantra file not found for deletion: " + name);
             if (listener != null) mainHandler.post(() -> listener.onError("File not found for deletion: " + name));
-            loadSavedMantras(); // Still reload, in case of inconsistency
+            if (library.remove(name.trim())) notifyMantrasUpdated(); // Drop a stale entry, in case of inconsistency
+        }
+    }
+
+    private void deleteTakes(String name) {
+        File directory = new File(storageDir, name + TAKES_SUFFIX);
+        File[] takes = directory.listFiles();
+        if (takes == null) return;
+        for (File take : takes) {
+            if (!take.delete()) Log.w(TAG, "Failed to delete take " + take.getName() + " of " + name);
         }
+        if (!directory.delete()) Log.w(TAG, "Failed to delete takes directory of " + name);
+    }
+
+    // Renames a stored mantra (WAV, takes and feature cache) without recompiling it
+    public void renameMantra(String oldName, String newName) {
+        if (oldName == null || newName == null || oldName.trim().isEmpty() || newName.trim().isEmpty()) {
+            if (listener != null) mainHandler.post(() -> listener.onError("Mantra name cannot be empty."));
+            return;
+        }
+        String from = oldName.trim();
+        String to = newName.trim().replaceAll("[^a-zA-Z0-9_.-]+", "_");
+        File oldWav = new File(storageDir, from + ".wav");
+        File newWav = new File(storageDir, to + ".wav");
+        if (!oldWav.exists() || newWav.exists()) {
+            if (listener != null) mainHandler.post(() -> listener.onError("Cannot rename " + from + " to " + to));
+            return;
+        }
+        // Update the library first so the directory observer sees a no-op, and move the takes and the cache before
+        // the WAV: the observer's MOVED_TO then finds the cache still valid for the same takes instead of compiling
+        // the lone WAV over the averaged template
+        boolean inLibrary = library.rename(from, to);
+        File oldTakes = new File(storageDir, from + TAKES_SUFFIX);
+        File newTakes = new File(storageDir, to + TAKES_SUFFIX);
+        boolean movedTakes = oldTakes.exists();
+        if (movedTakes && (newTakes.exists() || !oldTakes.renameTo(newTakes))) {
+            Log.e(TAG, "Failed to rename takes of " + from);
+            if (inLibrary) library.rename(to, from);
+            if (listener != null) mainHandler.post(() -> listener.onError("Failed to rename " + from));
+            return;
+        }
+        File oldCache = FeatureCache.cacheFileFor(oldWav);
+        if (oldCache.exists() && !oldCache.renameTo(FeatureCache.cacheFileFor(newWav))) {
+            Log.w(TAG, "Failed to rename feature cache for " + from);
+        }
+        if (!oldWav.renameTo(newWav)) {
+            Log.e(TAG, "Failed to rename mantra file: " + from);
+            File movedCache = FeatureCache.cacheFileFor(newWav);
+            if (movedCache.exists() && !movedCache.renameTo(oldCache)) {
+                Log.w(TAG, "Failed to restore feature cache for " + from);
+            }
+            if (movedTakes && !newTakes.renameTo(oldTakes)) {
+                Log.w(TAG, "Failed to restore takes of " + from);
+            }
+            if (inLibrary) library.rename(to, from);
+            if (listener != null) mainHandler.post(() -> listener.onError("Failed to rename " + from));
+            return;
+        }
+        notifyMantrasUpdated();
+        mainHandler.post(() -> {
+            if (listener != null) listener.onStatusUpdate("Renamed: " + from + " -> " + to);
+        });
     }
 
     public void resetMatchCount() {
-        matchCount = 0;
+        SessionTarget current = session;
+        if (current != null) {
+            current.total.set(0);
+            current.counts.clear();
+        }
         if (listener != null) mainHandler.post(() -> listener.onMatchCountUpdate(0));
     }
 
+    // One session's templates, limits and counts. Immutable apart from the counts, so swapping the target
+    // field changes mantra, limit and threshold together.
+    private final class SessionTarget {
+        final String status;
+        final Map<String, Integer> limits;
+        final int defaultLimit; // For a single mantra without its own entry in limits
+        final float threshold;
+        final Map<String, Integer> counts = new ConcurrentHashMap<>();
+        final AtomicInteger total = new AtomicInteger();
+        private final List<CompiledTemplate> templates;
+        private final float warpingBandPercent;
+        private final boolean continuous;
+        private final RecognizerMetrics metrics;
+        private final RepetitionDetector prepared; // For the first match thread to ask, see takeDetector
+        private final AtomicBoolean preparedTaken = new AtomicBoolean();
+
+        SessionTarget(String name, List<CompiledTemplate> templates, Map<String, Integer> limits, float threshold) {
+            this.status = templates.size() == 1 ? "Recognizing: " + name : "Recognizing " + templates.size() + " mantras";
+            this.limits = new HashMap<>(limits);
+            this.defaultLimit = limits.size() == 1 ? limits.values().iterator().next() : 0;
+            this.threshold = threshold;
+            this.templates = templates;
+            this.warpingBandPercent = MantraRecognizer.this.warpingBandPercent;
+            this.continuous = continuousMode;
+            this.metrics = MantraRecognizer.this.metrics;
+            this.prepared = newDetector();
+        }
+
+        // A detector for one match thread. The one built with the session goes to the first caller, so the match
+        // thread goes straight from the old target's detector to the new one; a later pipeline builds its own.
+        RepetitionDetector takeDetector() {
+            return preparedTaken.compareAndSet(false, true) ? prepared : newDetector();
+        }
+
+        private RepetitionDetector newDetector() {
+            return new RepetitionDetector(templates, threshold, warpingBandPercent, continuous,
+                    templates.size() > 1 ? getScoringPool() : null, metrics,
+                    (template, similarity, startFrame, endFrame) -> registerMatch(this, template.getName(), similarity));
+        }
+    }
+
+    // One pipeline's consumer: feeds each frame to the current target's detector. Detectors are not thread-safe, so
+    // each matcher takes its own per target. A new or resumed detector starts from a clean utterance.
+    private final class SessionMatcher implements RecognitionPipeline.FrameConsumer {
+        private SessionTarget owner; // Target that detector belongs to; match thread only
+        private RepetitionDetector detector;
+        private boolean active;
+
+        @Override
+        public void onFrame(float[] frame, int offset, boolean silent) {
+            SessionTarget current = paused ? null : target;
+            if (current == null) {
+                active = false;
+                return;
+            }
+            if (current != owner) {
+                owner = current;
+                detector = current.takeDetector();
+                active = false;
+            }
+            if (!active) {
+                detector.reset();
+                active = true;
+            }
+            detector.onFrame(frame, offset, silent);
+        }
+    }
+
     public interface MantraListener {
         void onStatusUpdate(String newStatus);
         void onMatchCountUpdate(int count);
@@ -529,5 +940,7 @@ public class MantraRecognizer {
         void onMantrasUpdated(); // Called when the list of saved mantras changes
         void onRecognizingStateChanged(boolean recognizing);
         void onRecordingStateChanged(boolean recording);
+        // Which mantra an accepted repetition was counted for, with that mantra's own count
+        default void onMantraMatched(String mantra, int count, float similarity) {}
     }
 }
@@ -0,0 +1,238 @@
+package com.example.mkproject.javaPackages;
+
+import android.util.Log;
+import java.util.Arrays;
+
+// Coarse-to-fine DTW (FastDTW, Salvador & Chan 2007) for long templates, where the banded O(n * m) of
+// AudioMatcher.alignmentSimilarity no longer fits the per-utterance budget. Both sequences are halved by averaging
+// frame pairs until the shorter one is at most COARSEST_FRAMES long; that pair gets the usual banded DTW, and each
+// finer level only evaluates a corridor of RADIUS cells around the level below's path, projected up. Work and
+// memory are O((n + m) * RADIUS) in total. Cell costs, the silence rule and the normalised similarity are those of
+// alignmentSimilarity, so thresholds carry over; the corridor stands in for the Sakoe-Chiba band above the
+// coarsest level. Templates keep their coarse levels (see CompiledTemplate), only the live side is halved per call.
+// The corridor is a subset of the exact DTW's cells, so the similarity never exceeds the full-band one; on takes of
+// the template it stays within 2e-3 of it (see MultiResolutionDtwTest).
+final class MultiResolutionDtw {
+    private static final String TAG = "MultiResolutionDtw";
+    private static final float NORM_EPSILON = 1e-9f;
+    static final int RADIUS = 8; // Extra cells on each side of the projected path, per level
+    static final int COARSEST_FRAMES = 32;
+
+    private MultiResolutionDtw() {
+    }
+
+    // Halved copies of a template's frames, each level in the given encoding, until COARSEST_FRAMES or fewer remain
+    static ReferenceFrames[] coarseLevels(FeatureMatrix features, TemplateEncoding encoding) {
+        int count = 0;
+        for (int frames = features.frameCount(); frames > COARSEST_FRAMES; frames = (frames + 1) / 2) count++;
+        ReferenceFrames[] levels = new ReferenceFrames[count];
+        FeatureMatrix level = features;
+        for (int k = 0; k < count; k++) {
+            level = halve(level);
+            levels[k] = encoding.encode(level);
+        }
+        return levels;
+    }
+
+    /**
+     * Same contract as AudioMatcher.alignmentSimilarity.
+     * @param referenceLevels the reference's coarseLevels(), finest first
+     */
+    static float similarity(FrameSequence live, ReferenceFrames reference, ReferenceFrames[] referenceLevels,
+                            float bandPercent, float similarityThreshold) {
+        int n = live.frameCount();
+        int m = reference.frameCount();
+        int depth = depth(n, m, referenceLevels.length);
+        if (depth == 0) {
+            return AudioMatcher.alignmentSimilarity(live, reference, bandPercent, similarityThreshold);
+        }
+        int[][] window = refine(live, referenceLevels, depth, m, bandPercent);
+
+        // Finest level, with the same early abandoning as the exact DTW
+        float denom = n + m;
+        float costBudget = similarityThreshold > 0.0f ? (1.0f - similarityThreshold) * denom : Float.POSITIVE_INFINITY;
+        float[] matrix = fillWindow(live, reference, window[0], window[1], costBudget);
+        if (matrix == null) return 0.0f;
+        float totalCost = matrix[matrix.length - 1]; // Cell (n - 1, m - 1) closes the last row
+        float similarity = Math.max(0.0f, Math.min(1.0f, 1.0f - totalCost / denom));
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "DTW cost: " + totalCost + ", similarity: " + similarity + ", levels: " + depth
+                    + ", cells: " + matrix.length + " of " + ((long) n * m));
+        }
+        return similarity;
+    }
+
+    /**
+     * Cheapest alignment of two non-empty sequences: coarse to fine once both are longer than COARSEST_FRAMES,
+     * otherwise over the whole Sakoe-Chiba band.
+     * @return the path's (row, column) cells from (0, 0) to (n - 1, m - 1), interleaved
+     */
+    static int[] warpingPath(FrameSequence rows, FeatureMatrix columns, float bandPercent) {
+        int n = rows.frameCount();
+        int m = columns.frameCount();
+        ReferenceFrames[] columnLevels = coarseLevels(columns, TemplateEncoding.FLOAT32);
+        int depth = depth(n, m, columnLevels.length);
+        int[][] window = depth > 0 ? refine(rows, columnLevels, depth, m, bandPercent) : bandWindow(n, m, bandPercent);
+        float[] matrix = fillWindow(rows, columns, window[0], window[1], Float.POSITIVE_INFINITY);
+        return backtrack(matrix, window[0], window[1]);
+    }
+
+    // Levels to descend: while both sequences stay longer than COARSEST_FRAMES and the reference has coarse copies
+    private static int depth(int n, int m, int referenceLevels) {
+        int depth = 0;
+        while (depth < referenceLevels && Math.min(n >> depth, m >> depth) > COARSEST_FRAMES) depth++;
+        return n > 0 ? depth : 0;
+    }
+
+    // Banded DTW at the coarsest level, then a path-guided corridor per level; returns {lo, hi} of the finest level
+    private static int[][] refine(FrameSequence live, ReferenceFrames[] referenceLevels, int depth, int m, float bandPercent) {
+        FrameSequence[] liveLevels = new FrameSequence[depth + 1];
+        liveLevels[0] = live;
+        for (int k = 1; k <= depth; k++) liveLevels[k] = halve(liveLevels[k - 1]);
+
+        int[][] window = bandWindow(liveLevels[depth].frameCount(), referenceLevels[depth - 1].frameCount(), bandPercent);
+        for (int k = depth; k > 0; k--) {
+            float[] matrix = fillWindow(liveLevels[k], referenceLevels[k - 1], window[0], window[1], Float.POSITIVE_INFINITY);
+            int fineColumns = k > 1 ? referenceLevels[k - 2].frameCount() : m;
+            window = projectPath(backtrack(matrix, window[0], window[1]), liveLevels[k - 1].frameCount(), fineColumns);
+        }
+        return window;
+    }
+
+    // Sakoe-Chiba window as in alignmentSimilarity, as {lo, hi} per row
+    private static int[][] bandWindow(int rows, int columns, float bandPercent) {
+        int band = AudioMatcher.warpingBand(rows, columns, bandPercent);
+        int[] lo = new int[rows];
+        int[] hi = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            int center = (int) ((long) (i + 1) * columns / rows);
+            lo[i] = Math.max(1, center - band) - 1;
+            hi[i] = Math.min(columns, center + band) - 1;
+        }
+        return new int[][] {lo, hi};
+    }
+
+    // Accumulated costs of the window's cells, row by row (row i holds columns lo[i]..hi[i]); null once a whole row
+    // exceeds costBudget
+    private static float[] fillWindow(FrameSequence live, ReferenceFrames reference, int[] lo, int[] hi, float costBudget) {
+        int rows = lo.length;
+        int cells = 0;
+        for (int i = 0; i < rows; i++) cells += hi[i] - lo[i] + 1;
+        float[] matrix = new float[cells];
+        float[] unit = live.unitData();
+        float[] query = reference.newQuery();
+        int rowStart = 0;
+        int previousStart = 0;
+        for (int i = 0; i < rows; i++) {
+            float liveNorm = live.norm(i);
+            boolean silent = liveNorm < NORM_EPSILON;
+            reference.prepareQuery(unit, live.unitOffset(i), 1.0f, query);
+            float rowMin = Float.POSITIVE_INFINITY;
+            for (int j = lo[i]; j <= hi[i]; j++) {
+                float best;
+                if (i == 0) {
+                    best = j == 0 ? 0.0f : Float.POSITIVE_INFINITY;
+                } else {
+                    best = Float.POSITIVE_INFINITY;
+                    if (j >= lo[i - 1] && j <= hi[i - 1]) best = matrix[previousStart + j - lo[i - 1]];
+                    if (j - 1 >= lo[i - 1] && j - 1 <= hi[i - 1]) best = Math.min(best, matrix[previousStart + j - 1 - lo[i - 1]]);
+                }
+                if (j > lo[i]) best = Math.min(best, matrix[rowStart + j - 1 - lo[i]]);
+                float referenceNorm = reference.norm(j);
+                float cost = silent || referenceNorm < NORM_EPSILON
+                        ? (silent && referenceNorm < NORM_EPSILON ? 0.0f : 1.0f)
+                        : Math.max(0.0f, 1.0f - reference.dot(j, query)); // As in alignmentSimilarity
+                float value = cost + best;
+                matrix[rowStart + j - lo[i]] = value;
+                if (value < rowMin) rowMin = value;
+            }
+            if (rowMin > costBudget) return null;
+            previousStart = rowStart;
+            rowStart += hi[i] - lo[i] + 1;
+        }
+        return matrix;
+    }
+
+    // Walks the cheapest path back from the last cell of a filled window; cells interleaved, first cell first
+    private static int[] backtrack(float[] matrix, int[] lo, int[] hi) {
+        int rows = lo.length;
+        int[] rowStart = new int[rows];
+        for (int i = 1; i < rows; i++) rowStart[i] = rowStart[i - 1] + hi[i - 1] - lo[i - 1] + 1;
+        int[] path = new int[2 * (rows + hi[rows - 1] + 1)]; // Upper bound on the path length
+        int length = 0;
+        int i = rows - 1;
+        int j = hi[i];
+        while (true) {
+            path[length++] = i;
+            path[length++] = j;
+            if (i == 0 && j == lo[0]) break;
+            // Predecessor with the lowest accumulated cost, preferring the diagonal
+            int nextI = i;
+            int nextJ = j - 1;
+            float best = j > lo[i] ? matrix[rowStart[i] + j - 1 - lo[i]] : Float.POSITIVE_INFINITY;
+            if (i > 0) {
+                if (j >= lo[i - 1] && j <= hi[i - 1] && matrix[rowStart[i - 1] + j - lo[i - 1]] < best) {
+                    best = matrix[rowStart[i - 1] + j - lo[i - 1]];
+                    nextI = i - 1;
+                    nextJ = j;
+                }
+                if (j - 1 >= lo[i - 1] && j - 1 <= hi[i - 1] && matrix[rowStart[i - 1] + j - 1 - lo[i - 1]] <= best) {
+                    nextI = i - 1;
+                    nextJ = j - 1;
+                }
+            }
+            i = nextI;
+            j = nextJ;
+        }
+        int[] forward = new int[length];
+        for (int p = 0; p < length; p += 2) {
+            forward[p] = path[length - 2 - p];
+            forward[p + 1] = path[length - 1 - p];
+        }
+        return forward;
+    }
+
+    // Window of the next finer level: the columns each coarse path cell's 2 x 2 block covers, widened by RADIUS
+    // rows and columns
+    private static int[][] projectPath(int[] path, int fineRows, int fineColumns) {
+        int[] pathLo = new int[fineRows];
+        int[] pathHi = new int[fineRows];
+        Arrays.fill(pathLo, Integer.MAX_VALUE);
+        Arrays.fill(pathHi, -1);
+        for (int p = 0; p < path.length; p += 2) {
+            int i = path[p];
+            int j = path[p + 1];
+            for (int r = 2 * i; r <= Math.min(2 * i + 1, fineRows - 1); r++) {
+                pathLo[r] = Math.min(pathLo[r], 2 * j);
+                pathHi[r] = Math.max(pathHi[r], Math.min(2 * j + 1, fineColumns - 1));
+            }
+        }
+        // The path is monotone, so the widest columns within RADIUS rows are those of the outermost rows
+        int[] lo = new int[fineRows];
+        int[] hi = new int[fineRows];
+        for (int r = 0; r < fineRows; r++) {
+            lo[r] = Math.max(0, pathLo[Math.max(0, r - RADIUS)] - RADIUS);
+            hi[r] = Math.min(fineColumns - 1, pathHi[Math.min(fineRows - 1, r + RADIUS)] + RADIUS);
+        }
+        return new int[][] {lo, hi};
+    }
+
+    // Averages consecutive frame pairs (an odd last frame is kept as is)
+    private static FeatureMatrix halve(FrameSequence frames) {
+        int count = frames.frameCount();
+        int dim = frames.dimension();
+        int halved = (count + 1) / 2;
+        float[] unit = frames.unitData();
+        float[] data = new float[halved * dim];
+        for (int i = 0; i < count; i++) {
+            // Raw row = unit row * norm
+            float scale = frames.norm(i) * (2 * (i / 2) + 1 < count ? 0.5f : 1.0f);
+            int src = frames.unitOffset(i);
+            int dst = (i / 2) * dim;
+            for (int k = 0; k < dim; k++) {
+                data[dst + k] += unit[src + k] * scale;
+            }
+        }
+        return new FeatureMatrix(data, halved, dim);
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.mkproject.javaPackages;
+
+import android.util.Log;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Counts repetitions in recorded sessions instead of the microphone. Each WAV is streamed in bounded chunks through
+// the same FeatureFrontEnd (decimator, extractor, VAD) and RepetitionDetector as the live pipeline, so counts agree
+// with what the app would have counted live. Files are independent and run in parallel, one per core; within a file
+// everything is sequential. Needs no Context, so it also runs headless on a plain JVM.
+public final class OfflineCounter {
+    private static final String TAG = "OfflineCounter";
+    private static final int CHUNK_SAMPLES = 64 * 1024; // ~1.4 s per read at 48 kHz
+
+    public static final class Detection {
+        private final String mantra;
+        private final float similarity;
+        private final double startSeconds;
+        private final double endSeconds;
+
+        Detection(String mantra, float similarity, double startSeconds, double endSeconds) {
+            this.mantra = mantra;
+            this.similarity = similarity;
+            this.startSeconds = startSeconds;
+            this.endSeconds = endSeconds;
+        }
+
+        public String getMantra() {
+            return mantra;
+        }
+
+        public float getSimilarity() {
+            return similarity;
+        }
+
+        public double getStartSeconds() {
+            return startSeconds;
+        }
+
+        public double getEndSeconds() {
+            return endSeconds;
+        }
+    }
+
+    public static final class FileResult {
+        private final File file;
+        private final List<Detection> detections;
+        private final Map<String, Integer> counts;
+        private final double audioSeconds;
+        private final long processingNanos;
+        private final String error;
+
+        FileResult(File file, List<Detection> detections, double audioSeconds, long processingNanos, String error) {
+            this.file = file;
+            this.detections = Collections.unmodifiableList(detections);
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            for (Detection detection : detections) {
+                Integer previous = counts.get(detection.getMantra());
+                counts.put(detection.getMantra(), previous == null ? 1 : previous + 1);
+            }
+            this.counts = Collections.unmodifiableMap(counts);
+            this.audioSeconds = audioSeconds;
+            this.processingNanos = processingNanos;
+            this.error = error;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public List<Detection> getDetections() {
+            return detections;
+        }
+
+        public Map<String, Integer> getCounts() {
+            return counts;
+        }
+
+        public int getTotalCount() {
+            return detections.size();
+        }
+
+        public double getAudioSeconds() {
+            return audioSeconds;
+        }
+
+        public long getProcessingNanos() {
+            return processingNanos;
+        }
+
+        // Seconds of audio processed per second of wall time
+        public double getRealTimeFactor() {
+            return processingNanos > 0 ? audioSeconds * 1e9 / processingNanos : 0.0;
+        }
+
+        // Null when the file was processed
+        public String getError() {
+            return error;
+        }
+    }
+
+    private final List<CompiledTemplate> templates;
+    private final float similarityThreshold;
+    private float warpingBandPercent = 25.0f;
+    private boolean continuousMode = false;
+    private VadConfig vadConfig = VadConfig.DEFAULT;
+
+    public OfflineCounter(List<CompiledTemplate> templates, float similarityThreshold) {
+        List<CompiledTemplate> usable = new ArrayList<>();
+        for (CompiledTemplate template : templates) {
+            if (!template.isEmpty()) usable.add(template);
+        }
+        if (usable.isEmpty()) throw new IllegalArgumentException("No usable reference templates");
+        this.templates = Collections.unmodifiableList(usable);
+        this.similarityThreshold = similarityThreshold;
+    }
+
+    public void setWarpingBandPercent(float percent) {
+        this.warpingBandPercent = percent;
+    }
+
+    // Back-to-back repetitions of a single template, as MantraRecognizer.setContinuousMode
+    public void setContinuousMode(boolean enabled) {
+        this.continuousMode = enabled;
+    }
+
+    // Live VAD tuning, as MantraRecognizer.setVadConfig
+    public void setVadConfig(VadConfig config) {
+        this.vadConfig = config != null ? config : VadConfig.DEFAULT;
+    }
+
+    // Processes one recording on the calling thread
+    public FileResult count(File wavFile) {
+        long started = System.nanoTime();
+        List<Detection> detections = new ArrayList<>();
+        AnalysisConfig config = AudioMatcher.ANALYSIS;
+        double secondsPerFrame = config.getSecondsPerFrame();
+        double frameSeconds = (double) config.getFrameSize() / config.getSampleRate();
+        RepetitionDetector.MatchSink sink = new RepetitionDetector.MatchSink() {
+            @Override
+            public void onMatch(CompiledTemplate template, float similarity, long startFrame, long endFrame) {
+                detections.add(new Detection(template.getName(), similarity,
+                        startFrame * secondsPerFrame, endFrame * secondsPerFrame + frameSeconds));
+            }
+
+            // Continuous mode reports a repetition as soon as it aligns; keep the bounds it settles on
+            @Override
+            public void onMatchRefined(CompiledTemplate template, float similarity, long startFrame, long endFrame) {
+                detections.set(detections.size() - 1, new Detection(template.getName(), similarity,
+                        startFrame * secondsPerFrame, endFrame * secondsPerFrame + frameSeconds));
+            }
+        };
+        RepetitionDetector detector = new RepetitionDetector(templates, similarityThreshold, warpingBandPercent,
+                continuousMode, null, RecognizerMetrics.NONE, sink);
+        FeatureFrontEnd frontEnd = new FeatureFrontEnd(config, vadConfig, RecognizerMetrics.NONE);
+        float[] samples = new float[CHUNK_SAMPLES];
+        long totalSamples = 0;
+        try (WavReader.PcmStream stream = WavReader.PcmStream.open(wavFile, AudioMatcher.SAMPLE_RATE)) {
+            int read;
+            while ((read = stream.read(samples, 0, samples.length)) > 0) {
+                totalSamples += read;
+                frontEnd.process(samples, 0, read, detector);
+            }
+            detector.flush();
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to process " + wavFile.getPath(), e);
+            return new FileResult(wavFile, detections, (double) totalSamples / AudioMatcher.SAMPLE_RATE,
+                    System.nanoTime() - started, e.getMessage());
+        }
+        return new FileResult(wavFile, detections, (double) totalSamples / AudioMatcher.SAMPLE_RATE,
+                System.nanoTime() - started, null);
+    }
+
+    // Processes the recordings in parallel, at most threads at a time (<= 0: one per core). Results keep input order.
+    public List<FileResult> countAll(List<File> wavFiles, int threads) throws InterruptedException {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        poolSize = Math.max(1, Math.min(poolSize, wavFiles.size()));
+        AtomicInteger threadIndex = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "OfflineCounter-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<FileResult>> futures = new ArrayList<>(wavFiles.size());
+            for (File file : wavFiles) {
+                futures.add(pool.submit(() -> count(file)));
+            }
+            List<FileResult> results = new ArrayList<>(wavFiles.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    Log.e(TAG, "Counting failed for " + wavFiles.get(i).getPath(), e.getCause());
+                    results.add(new FileResult(wavFiles.get(i), new ArrayList<>(), 0.0, 0L, String.valueOf(e.getCause())));
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
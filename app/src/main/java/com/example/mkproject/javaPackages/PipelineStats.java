@@ -0,0 +1,75 @@
+package com.example.mkproject.javaPackages;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Counters of a RecognitionPipeline session. Each counter has a single writing stage; readers may poll at any time.
+public final class PipelineStats {
+    final AtomicLong capturedBuffers = new AtomicLong();
+    final AtomicLong droppedBuffers = new AtomicLong(); // Capture found the audio queue full
+    final AtomicLong extractedFrames = new AtomicLong();
+    final AtomicLong featureStalls = new AtomicLong(); // Feature stage waited for room in the frame queue
+    final AtomicLong featureOverruns = new AtomicLong(); // Feature stage took longer than a block's duration for a block
+    final AtomicLong matchedFrames = new AtomicLong();
+    final AtomicLong matchOverruns = new AtomicLong(); // Match stage took longer than one frame hop for a frame
+    private final SpscBlockQueue audioQueue;
+    private final SpscBlockQueue frameQueue;
+
+    PipelineStats(SpscBlockQueue audioQueue, SpscBlockQueue frameQueue) {
+        this.audioQueue = audioQueue;
+        this.frameQueue = frameQueue;
+    }
+
+    public long getCapturedBuffers() {
+        return capturedBuffers.get();
+    }
+
+    public long getDroppedBuffers() {
+        return droppedBuffers.get();
+    }
+
+    public long getExtractedFrames() {
+        return extractedFrames.get();
+    }
+
+    public long getFeatureStalls() {
+        return featureStalls.get();
+    }
+
+    public long getFeatureOverruns() {
+        return featureOverruns.get();
+    }
+
+    public long getMatchedFrames() {
+        return matchedFrames.get();
+    }
+
+    public long getMatchOverruns() {
+        return matchOverruns.get();
+    }
+
+    public int getAudioQueueDepth() {
+        return audioQueue.size();
+    }
+
+    public int getFrameQueueDepth() {
+        return frameQueue.size();
+    }
+
+    public long getAudioQueueHighWaterMark() {
+        return audioQueue.highWaterMark();
+    }
+
+    public long getFrameQueueHighWaterMark() {
+        return frameQueue.highWaterMark();
+    }
+
+    @Override
+    public String toString() {
+        return "captured=" + getCapturedBuffers() + ", dropped=" + getDroppedBuffers()
+                + ", frames=" + getExtractedFrames() + "/" + getMatchedFrames()
+                + ", featureStalls=" + getFeatureStalls()
+                + ", overruns(feature/match)=" + getFeatureOverruns() + "/" + getMatchOverruns()
+                + ", audioQueue=" + getAudioQueueDepth() + " (max " + getAudioQueueHighWaterMark() + ")"
+                + ", frameQueue=" + getFrameQueueDepth() + " (max " + getFrameQueueHighWaterMark() + ")";
+    }
+}
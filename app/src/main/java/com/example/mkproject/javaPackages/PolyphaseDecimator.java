@@ -0,0 +1,160 @@
+package com.example.mkproject.javaPackages;
+
+import java.util.Arrays;
+
+// Streaming anti-aliasing decimator by an integer factor. The Kaiser-windowed sinc low-pass is split into factor
+// polyphase branches of tapsPerPhase taps, each running on its own de-interleaved input phase at the output rate,
+// so only the kept outputs are ever computed. Outputs are produced in blocks: every branch tap becomes one
+// contiguous multiply-add over the block, which the JIT can vectorise, instead of a scalar dot product per output.
+// Filter state carries across calls, so a stream split into arbitrary chunks decimates exactly as if it were one
+// array. Does not allocate after construction; single-threaded.
+public final class PolyphaseDecimator {
+    private static final double CUTOFF_FRACTION = 0.9; // -6 dB point as a fraction of the output Nyquist
+    private static final double KAISER_BETA = 6.0; // ~60 dB stopband
+    private static final int BLOCK_OUTPUTS = 256; // Outputs computed per pass
+
+    private final int factor;
+    private final int tapsPerPhase;
+    private final int length; // factor * tapsPerPhase
+    private final float[] phaseTaps; // Branch r, tap q at [r * tapsPerPhase + q]; taps run oldest sample first
+    private final float[] input; // Window of the next output starts at input[0]
+    private int inputCount;
+    private final float[] phases; // De-interleaved input, branch r at [r * phaseStride]
+    private final int phaseStride;
+    private final float[] block; // Output accumulators
+
+    public PolyphaseDecimator(int factor, int tapsPerPhase) {
+        if (factor < 1 || tapsPerPhase < 1) {
+            throw new IllegalArgumentException("Invalid decimator config: factor=" + factor + ", tapsPerPhase=" + tapsPerPhase);
+        }
+        this.factor = factor;
+        this.tapsPerPhase = factor == 1 ? 1 : tapsPerPhase;
+        this.length = factor * this.tapsPerPhase;
+        float[] taps = design(length, CUTOFF_FRACTION * 0.5 / factor);
+        this.phaseTaps = new float[length];
+        for (int r = 0; r < factor; r++) {
+            for (int q = 0; q < this.tapsPerPhase; q++) {
+                phaseTaps[r * this.tapsPerPhase + q] = taps[q * factor + r];
+            }
+        }
+        this.input = new float[length + BLOCK_OUTPUTS * factor];
+        this.phaseStride = BLOCK_OUTPUTS + this.tapsPerPhase;
+        this.phases = new float[factor * phaseStride];
+        this.block = new float[BLOCK_OUTPUTS + 1];
+        reset();
+    }
+
+    public int getFactor() {
+        return factor;
+    }
+
+    // Group delay of the filter in input samples
+    public float getDelaySamples() {
+        return (length - 1) / 2.0f;
+    }
+
+    // Number of outputs the next process() call of the given length produces
+    public int outputsFor(int length) {
+        int total = inputCount + length;
+        return total < this.length ? 0 : (total - this.length) / factor + 1;
+    }
+
+    /**
+     * Filters and downsamples src into dst. dst must have room for {@link #outputsFor(int)} samples and must not
+     * overlap src.
+     * @return number of output samples written
+     */
+    public int process(float[] src, int srcOffset, int length, float[] dst, int dstOffset) {
+        if (factor == 1) {
+            System.arraycopy(src, srcOffset, dst, dstOffset, length);
+            return length;
+        }
+        int written = 0;
+        int end = srcOffset + length;
+        while (srcOffset < end) {
+            int toCopy = Math.min(input.length - inputCount, end - srcOffset);
+            System.arraycopy(src, srcOffset, input, inputCount, toCopy);
+            inputCount += toCopy;
+            srcOffset += toCopy;
+            written += filterBlock(dst, dstOffset + written);
+        }
+        return written;
+    }
+
+    // Convenience for whole recordings
+    public float[] process(float[] src) {
+        float[] out = new float[outputsFor(src.length)];
+        process(src, 0, src.length, out, 0);
+        return out;
+    }
+
+    public void reset() {
+        // Zero history, aligned so the first output is due once factor samples have arrived
+        Arrays.fill(input, 0.0f);
+        inputCount = length - factor;
+    }
+
+    // Emits every output whose window is complete and drops the input they no longer need
+    private int filterBlock(float[] dst, int dstOffset) {
+        if (inputCount < length) return 0;
+        int count = (inputCount - length) / factor + 1;
+        int span = count + tapsPerPhase - 1;
+        for (int r = 0; r < factor; r++) {
+            int base = r * phaseStride;
+            for (int i = 0, j = r; i < span; i++, j += factor) {
+                phases[base + i] = input[j];
+            }
+        }
+        Arrays.fill(block, 0, count, 0.0f);
+        for (int r = 0; r < factor; r++) {
+            for (int q = 0; q < tapsPerPhase; q++) {
+                float c = phaseTaps[r * tapsPerPhase + q];
+                int from = r * phaseStride + q;
+                for (int i = 0; i < count; i++) {
+                    block[i] += c * phases[from + i];
+                }
+            }
+        }
+        System.arraycopy(block, 0, dst, dstOffset, count);
+        int consumed = count * factor;
+        inputCount -= consumed;
+        System.arraycopy(input, consumed, input, 0, inputCount);
+        return count;
+    }
+
+    // Kaiser-windowed sinc low-pass with unit DC gain; cutoff in cycles per input sample
+    private static float[] design(int length, double cutoff) {
+        float[] taps = new float[length];
+        if (length == 1) {
+            taps[0] = 1.0f;
+            return taps;
+        }
+        double center = (length - 1) / 2.0;
+        double norm = besselI0(KAISER_BETA);
+        double sum = 0.0;
+        double[] h = new double[length];
+        for (int i = 0; i < length; i++) {
+            double t = i - center;
+            double sinc = t == 0.0 ? 2.0 * cutoff : Math.sin(2.0 * Math.PI * cutoff * t) / (Math.PI * t);
+            double x = t / center;
+            h[i] = sinc * besselI0(KAISER_BETA * Math.sqrt(1.0 - x * x)) / norm;
+            sum += h[i];
+        }
+        for (int i = 0; i < length; i++) {
+            taps[i] = (float) (h[i] / sum); // Symmetric, so oldest-first and newest-first orders are the same
+        }
+        return taps;
+    }
+
+    // Modified Bessel function of the first kind, order zero (power series)
+    private static double besselI0(double x) {
+        double sum = 1.0;
+        double term = 1.0;
+        double half = x / 2.0;
+        for (int k = 1; k < 50 && term > 1e-12 * sum; k++) {
+            term *= (half / k) * (half / k);
+            sum += term;
+        }
+        return sum;
+    }
+}
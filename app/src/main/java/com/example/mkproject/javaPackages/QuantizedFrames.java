@@ -0,0 +1,206 @@
+package com.example.mkproject.javaPackages;
+
+import java.nio.ByteBuffer;
+
+// Template frames with their unit-normalised rows stored as FLOAT16 or INT8 instead of two float copies (raw and unit).
+// Cosine is computed on the quantised data directly: FLOAT16 rows are widened on the fly, INT8 rows are dotted
+// against a query that already carries the per-coefficient scales through the FrameDistance kernel, so the inner
+// loop is one multiply-add per byte. INT8 rows are zero-padded like FeatureMatrix unit rows. Immutable once built.
+public final class QuantizedFrames implements ReferenceFrames {
+    private static final float NORM_EPSILON = 1e-9f;
+
+    private final TemplateEncoding encoding;
+    private final int frameCount;
+    private final int dimension;
+    private final int codeStride; // INT8 row length, padded
+    private final float[] norms;
+    private final short[] halves; // FLOAT16 rows, frameCount x dimension
+    private final byte[] codes; // INT8 rows, frameCount x codeStride
+    private final float[] scales; // INT8: value of one code step, per coefficient
+
+    private QuantizedFrames(TemplateEncoding encoding, int frameCount, int dimension, float[] norms,
+                            short[] halves, byte[] codes, float[] scales) {
+        this.encoding = encoding;
+        this.frameCount = frameCount;
+        this.dimension = dimension;
+        this.codeStride = FrameDistance.paddedDimension(dimension);
+        this.norms = norms;
+        this.halves = halves;
+        this.codes = codes;
+        this.scales = scales;
+    }
+
+    static QuantizedFrames quantize(FeatureMatrix features, TemplateEncoding encoding) {
+        int frames = features.frameCount();
+        int dim = features.dimension();
+        float[] unit = features.unitData();
+        float[] norms = new float[frames];
+        for (int i = 0; i < frames; i++) {
+            norms[i] = features.norm(i);
+        }
+        if (encoding == TemplateEncoding.FLOAT16) {
+            short[] halves = new short[frames * dim];
+            for (int i = 0; i < frames; i++) {
+                int base = features.unitOffset(i);
+                for (int k = 0; k < dim; k++) {
+                    halves[i * dim + k] = floatToHalf(unit[base + k]);
+                }
+            }
+            return new QuantizedFrames(encoding, frames, dim, norms, halves, null, null);
+        }
+        if (encoding == TemplateEncoding.INT8) {
+            // Symmetric per-coefficient scale: C0's share of a unit row is far larger than the higher coefficients'
+            float[] scales = new float[dim];
+            for (int i = 0; i < frames; i++) {
+                int base = features.unitOffset(i);
+                for (int k = 0; k < dim; k++) {
+                    scales[k] = Math.max(scales[k], Math.abs(unit[base + k]));
+                }
+            }
+            for (int k = 0; k < dim; k++) {
+                scales[k] = scales[k] > 0.0f ? scales[k] / 127.0f : 1.0f;
+            }
+            int stride = FrameDistance.paddedDimension(dim);
+            byte[] codes = new byte[frames * stride];
+            for (int i = 0; i < frames; i++) {
+                int base = features.unitOffset(i);
+                for (int k = 0; k < dim; k++) {
+                    codes[i * stride + k] = (byte) Math.round(unit[base + k] / scales[k]);
+                }
+            }
+            return new QuantizedFrames(encoding, frames, dim, norms, null, codes, scales);
+        }
+        throw new IllegalArgumentException("Not a quantised encoding: " + encoding);
+    }
+
+    public TemplateEncoding getEncoding() {
+        return encoding;
+    }
+
+    @Override
+    public int frameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float norm(int frame) {
+        return norms[frame];
+    }
+
+    @Override
+    public void prepareQuery(float[] row, int offset, float scale, float[] query) {
+        if (scales == null) {
+            for (int k = 0; k < dimension; k++) {
+                query[k] = row[offset + k] * scale;
+            }
+        } else {
+            for (int k = 0; k < dimension; k++) {
+                query[k] = row[offset + k] * scale * scales[k];
+            }
+        }
+    }
+
+    @Override
+    public float dot(int frame, float[] query) {
+        if (codes != null) {
+            return FrameDistances.KERNEL.dot(query, codes, frame * codeStride, codeStride);
+        }
+        // No kernel for halves: Android has no half-float intrinsic and the Vector API no half type
+        int base = frame * dimension;
+        float dot = 0.0f;
+        for (int k = 0; k < dimension; k++) {
+            dot += query[k] * halfToFloat(halves[base + k]);
+        }
+        return dot;
+    }
+
+    @Override
+    public long memoryBytes() {
+        long rows = codes != null ? codes.length : 2L * halves.length;
+        return rows + 4L * norms.length + (scales != null ? 4L * scales.length : 0L);
+    }
+
+    // Approximate original rows (dequantised unit row x norm), e.g. for the template envelope
+    public FeatureMatrix dequantize() {
+        float[] data = new float[frameCount * dimension];
+        for (int i = 0; i < frameCount; i++) {
+            if (norms[i] < NORM_EPSILON) continue;
+            for (int k = 0; k < dimension; k++) {
+                float u = codes != null ? codes[i * codeStride + k] * scales[k] : halfToFloat(halves[i * dimension + k]);
+                data[i * dimension + k] = u * norms[i];
+            }
+        }
+        return new FeatureMatrix(data, frameCount, dimension);
+    }
+
+    // FeatureCache payload: norms, INT8 scales, then the rows (INT8 with their padding)
+    void writeTo(ByteBuffer buffer) {
+        for (float norm : norms) buffer.putFloat(norm);
+        if (codes != null) {
+            for (float scale : scales) buffer.putFloat(scale);
+            buffer.put(codes);
+        } else {
+            for (short half : halves) buffer.putShort(half);
+        }
+    }
+
+    static QuantizedFrames readFrom(ByteBuffer buffer, TemplateEncoding encoding, int frameCount, int dimension) {
+        float[] norms = new float[frameCount];
+        for (int i = 0; i < frameCount; i++) norms[i] = buffer.getFloat();
+        if (encoding == TemplateEncoding.INT8) {
+            float[] scales = new float[dimension];
+            for (int k = 0; k < dimension; k++) scales[k] = buffer.getFloat();
+            byte[] codes = new byte[frameCount * FrameDistance.paddedDimension(dimension)];
+            buffer.get(codes);
+            return new QuantizedFrames(encoding, frameCount, dimension, norms, null, codes, scales);
+        }
+        short[] halves = new short[frameCount * dimension];
+        buffer.asShortBuffer().get(halves);
+        buffer.position(buffer.position() + 2 * halves.length);
+        return new QuantizedFrames(encoding, frameCount, dimension, norms, halves, null, null);
+    }
+
+    // IEEE 754 binary16 to float, exact
+    static float halfToFloat(short half) {
+        int bits = half & 0xFFFF;
+        int sign = (bits & 0x8000) << 16;
+        int exponent = (bits >>> 10) & 0x1F;
+        int mantissa = bits & 0x3FF;
+        if (exponent == 0) {
+            float value = mantissa * 0x1p-24f; // Zero or subnormal
+            return sign != 0 ? -value : value;
+        }
+        if (exponent == 31) return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13)); // Inf / NaN
+        return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+    }
+
+    // float to IEEE 754 binary16, rounding to nearest even
+    static short floatToHalf(float value) {
+        int bits = Float.floatToRawIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int magnitude = bits & 0x7FFFFFFF;
+        if (magnitude >= 0x47800000) { // >= 65536, Inf or NaN
+            return (short) (sign | (magnitude > 0x7F800000 ? 0x7E00 : 0x7C00));
+        }
+        if (magnitude < 0x38800000) { // Below the smallest normal half: subnormal or zero
+            if (magnitude < 0x33000000) return (short) sign;
+            int exponent = magnitude >>> 23;
+            int mantissa = (magnitude & 0x7FFFFF) | 0x800000;
+            int shift = 126 - exponent;
+            int half = mantissa >>> shift;
+            int rest = mantissa & ((1 << shift) - 1);
+            int midpoint = 1 << (shift - 1);
+            if (rest > midpoint || (rest == midpoint && (half & 1) != 0)) half++;
+            return (short) (sign | half);
+        }
+        int half = (((magnitude >>> 23) - 112) << 10) | ((magnitude & 0x7FFFFF) >>> 13);
+        int rest = magnitude & 0x1FFF;
+        if (rest > 0x1000 || (rest == 0x1000 && (half & 1) != 0)) half++; // A carry into the exponent is still correct
+        return (short) (sign | half);
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.mkproject.javaPackages;
+
+import android.util.Log;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+// Live recognition split into three stages joined by SPSC queues:
+//   capture (audio thread) -> audio queue -> feature thread (decimation, MFCC + VAD) -> frame queue -> match thread (DTW).
+// Capture only copies samples and never waits: when the audio queue is full the block is dropped and counted.
+// The feature stage waits for room in the frame queue instead of dropping, so a slow DTW burst first drains
+// the frame queue's backlog and only spills over into dropped audio once both queues are full.
+// With enabled RecognizerMetrics each block carries its capture time, the FeatureFrontEnd times and traces
+// extraction and VAD, and the match stage reports the end-to-end latency of every frame.
+final class RecognitionPipeline {
+    private static final String TAG = "RecognitionPipeline";
+    private static final int AUDIO_QUEUE_BLOCKS = 64; // ~1.4 s of 1024-sample blocks at 48 kHz
+    private static final int FRAME_QUEUE_FRAMES = 512; // ~12 s of frames at a 24 ms hop
+    private static final long JOIN_TIMEOUT_MS = 1000;
+
+    static final int TAG_SPEECH = 0;
+    static final int TAG_SILENT = 1;
+
+    // Runs on the match thread for every extracted frame, in order
+    interface FrameConsumer {
+        void onFrame(float[] frame, int offset, boolean silent);
+    }
+
+    private final FeatureFrontEnd frontEnd;
+    private final FrameConsumer consumer;
+    private final RecognizerMetrics metrics;
+    private final boolean timed; // metrics.isEnabled(), read once per session
+    private final int blockSize;
+    private final int dimension;
+    private final long blockNanos;
+    private final long frameNanos; // Frame hop at the analysis rate
+    private final FrameConsumer frameSink = this::publishFrame;
+    private final SpscBlockQueue audioQueue;
+    private final SpscBlockQueue frameQueue;
+    private final PipelineStats stats;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private Thread featureThread;
+    private Thread matchThread;
+    private long blockStamp; // Capture time of the block being extracted; feature thread only
+
+    // blockSize: capture-rate samples per audio queue block, normally the capture hop
+    RecognitionPipeline(AnalysisConfig config, VadConfig vadConfig, int blockSize, RecognizerMetrics metrics,
+                        FrameConsumer consumer) {
+        this.consumer = consumer;
+        this.metrics = metrics != null ? metrics : RecognizerMetrics.NONE;
+        this.timed = this.metrics.isEnabled();
+        this.frontEnd = new FeatureFrontEnd(config, vadConfig, this.metrics);
+        this.blockSize = blockSize;
+        this.dimension = frontEnd.getCoefficientCount();
+        this.blockNanos = TimeUnit.SECONDS.toNanos(blockSize) / AudioMatcher.SAMPLE_RATE;
+        this.frameNanos = TimeUnit.SECONDS.toNanos(config.getHopSize()) / config.getSampleRate();
+        this.audioQueue = new SpscBlockQueue(AUDIO_QUEUE_BLOCKS, blockSize);
+        this.frameQueue = new SpscBlockQueue(FRAME_QUEUE_FRAMES, dimension);
+        this.stats = new PipelineStats(audioQueue, frameQueue);
+    }
+
+    PipelineStats getStats() {
+        return stats;
+    }
+
+    boolean isRunning() {
+        return running.get();
+    }
+
+    void start() {
+        if (!running.compareAndSet(false, true)) return;
+        featureThread = new Thread(this::runFeatureStage, "MantraFeatureStage");
+        matchThread = new Thread(this::runMatchStage, "MantraMatchStage");
+        featureThread.setDaemon(true);
+        matchThread.setDaemon(true);
+        featureThread.start();
+        matchThread.start();
+    }
+
+    // Stops both worker threads and discards anything still queued. Safe to call from any thread but the workers.
+    void stop() {
+        if (!running.compareAndSet(true, false)) return;
+        boolean featureExited = joinQuietly(featureThread);
+        boolean matchExited = joinQuietly(matchThread);
+        if (featureExited && matchExited) {
+            audioQueue.clear();
+            frameQueue.clear();
+        } else {
+            // A worker still polls its queue; it exits on its own once its current frame is done
+            Log.w(TAG, "Pipeline worker did not stop within " + JOIN_TIMEOUT_MS + " ms, leaving its queues alone");
+        }
+        Log.d(TAG, "Pipeline stopped: " + stats);
+    }
+
+    // Capture stage: called on the audio thread with fresh samples only. Never blocks.
+    void offerAudio(float[] samples, int offset, int length) {
+        if (!running.get()) return;
+        long captured = timed ? System.nanoTime() : 0L;
+        int end = offset + length;
+        while (offset < end) {
+            int chunk = Math.min(blockSize, end - offset);
+            stats.capturedBuffers.incrementAndGet();
+            float[] block = audioQueue.claim();
+            if (block == null) {
+                stats.droppedBuffers.incrementAndGet();
+            } else {
+                System.arraycopy(samples, offset, block, 0, chunk);
+                audioQueue.publish(chunk, 0, captured);
+                LockSupport.unpark(featureThread);
+            }
+            offset += chunk;
+        }
+    }
+
+    private void runFeatureStage() {
+        while (running.get()) {
+            float[] block = audioQueue.peek();
+            if (block == null) {
+                LockSupport.parkNanos(blockNanos);
+                continue;
+            }
+            long started = System.nanoTime();
+            blockStamp = audioQueue.peekStamp();
+            frontEnd.process(block, 0, audioQueue.peekLength(), frameSink);
+            if (!running.get()) break; // Stopped while waiting for room; the block is discarded with the queue
+            audioQueue.release();
+            if (System.nanoTime() - started > blockNanos) stats.featureOverruns.incrementAndGet();
+        }
+    }
+
+    // Front end sink on the feature thread: copies the frame into the frame queue, tagged with its VAD decision
+    private void publishFrame(float[] frame, int offset, boolean silent) {
+        float[] out = claimFrameSlot();
+        if (out == null) return; // Stopped while waiting
+        System.arraycopy(frame, offset, out, 0, dimension);
+        frameQueue.publish(dimension, silent ? TAG_SILENT : TAG_SPEECH, blockStamp);
+        LockSupport.unpark(matchThread);
+        stats.extractedFrames.incrementAndGet();
+    }
+
+    // Waits for room in the frame queue: the feature stage absorbs match-stage stalls so capture does not have to
+    private float[] claimFrameSlot() {
+        float[] out = frameQueue.claim();
+        if (out != null) return out;
+        stats.featureStalls.incrementAndGet();
+        while (running.get()) {
+            LockSupport.parkNanos(blockNanos);
+            out = frameQueue.claim();
+            if (out != null) return out;
+        }
+        return null;
+    }
+
+    private void runMatchStage() {
+        while (running.get()) {
+            float[] frame = frameQueue.peek();
+            if (frame == null) {
+                LockSupport.parkNanos(blockNanos);
+                continue;
+            }
+            long started = System.nanoTime();
+            try {
+                consumer.onFrame(frame, 0, frameQueue.peekTag() == TAG_SILENT);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Match stage failed on a frame", e);
+            }
+            long finished = System.nanoTime();
+            if (timed) metrics.onLatency(RecognizerMetrics.Stage.END_TO_END, finished - frameQueue.peekStamp());
+            frameQueue.release();
+            LockSupport.unpark(featureThread); // May be waiting for room
+            stats.matchedFrames.incrementAndGet();
+            if (finished - started > frameNanos) stats.matchOverruns.incrementAndGet();
+        }
+    }
+
+    // True once the thread has exited
+    private static boolean joinQuietly(Thread thread) {
+        if (thread == null) return true;
+        if (thread == Thread.currentThread()) return false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(JOIN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !thread.isAlive();
+    }
+}
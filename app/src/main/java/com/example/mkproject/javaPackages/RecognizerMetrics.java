@@ -0,0 +1,40 @@
+package com.example.mkproject.javaPackages;
+
+// Hooks the recognition pipeline calls from its worker threads. Every method defaults to a no-op and the pipeline
+// only reads the clock, opens trace sections or calls in here when isEnabled() returns true, so the default
+// NONE instance costs one field read per frame. Implementations must be thread-safe.
+public interface RecognizerMetrics {
+
+    enum Stage {
+        EXTRACT("Mantra:extract"),
+        VAD("Mantra:vad"),
+        DTW("Mantra:dtw"),
+        END_TO_END("Mantra:endToEnd"); // Capture of a frame's last hop until the match stage is done with it
+
+        final String traceName;
+
+        Stage(String traceName) {
+            this.traceName = traceName;
+        }
+    }
+
+    RecognizerMetrics NONE = new RecognizerMetrics() {
+    };
+
+    // When true the pipeline times each stage and wraps it in an android.os.Trace section
+    default boolean isEnabled() {
+        return false;
+    }
+
+    default void onFrame(boolean silent) {
+    }
+
+    default void onDtwCalls(int count) {
+    }
+
+    default void onMatch(String mantra, float similarity) {
+    }
+
+    default void onLatency(Stage stage, long nanos) {
+    }
+}
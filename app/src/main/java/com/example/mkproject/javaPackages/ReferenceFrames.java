@@ -0,0 +1,31 @@
+package com.example.mkproject.javaPackages;
+
+// Reference side of the matchers: a template's frames as DTW and subsequence DTW score them. Only cosine against a
+// live row is needed, so implementations may keep their unit-normalised rows quantised (see QuantizedFrames).
+// A live row is converted once with prepareQuery() and then dotted against many reference rows.
+public interface ReferenceFrames {
+    int frameCount();
+
+    int dimension();
+
+    // L2 norm of the original (unquantised) row
+    float norm(int frame);
+
+    default boolean isEmpty() {
+        return frameCount() == 0;
+    }
+
+    // Zeroed query buffer of the length prepareQuery() and dot() expect (padded, see FrameDistance)
+    default float[] newQuery() {
+        return new float[FrameDistance.paddedDimension(dimension())];
+    }
+
+    // Writes row[offset ..] * scale into query in the form dot() expects; pass scale = 1 / |row| for a raw row
+    void prepareQuery(float[] row, int offset, float scale, float[] query);
+
+    // Dot product of a prepared query with the unit-normalised reference row, i.e. the cosine
+    float dot(int frame, float[] query);
+
+    // Heap bytes held by the frames, for memory accounting
+    long memoryBytes();
+}
@@ -0,0 +1,247 @@
+package com.example.mkproject.javaPackages;
+
+import android.os.Trace;
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+// Turns a stream of MFCC frames with their VAD decision into counted repetitions. Shared by the live pipeline's
+// match stage and the offline file counter, so both apply exactly the same segmentation and scoring.
+// Pause-delimited by default: frames collect in a ring buffer and SILENCE_FRAMES_THRESHOLD silent frames close
+// an utterance, which is scored against every template its TemplateIndex cannot rule out. That never fires for
+// chanting without gaps between repetitions, so continuous mode (single template only) instead feeds each frame
+// to a SubsequenceDtwMatcher, which cuts the stream at the template's repetitions and counts each as soon as it
+// aligns, at O(template) cost per frame. Frame indices count from the last reset(); not thread-safe.
+final class RepetitionDetector implements RecognitionPipeline.FrameConsumer {
+    private static final String TAG = "RepetitionDetector";
+    // Durations rather than frame counts, so they hold for any analysis framing
+    static final int MAX_UTTERANCE_FRAMES = AudioMatcher.ANALYSIS.framesForSeconds(3.2); // Max frames for a live utterance before comparing (raised to twice the longest template)
+    static final int SILENCE_FRAMES_THRESHOLD = AudioMatcher.ANALYSIS.framesForSeconds(0.32); // Consecutive silent frames to trigger DTW
+
+    interface MatchSink {
+        // startFrame/endFrame bound the matched audio in frames since the last reset
+        void onMatch(CompiledTemplate template, float similarity, long startFrame, long endFrame);
+
+        // Continuous mode only: a better alignment moved the bounds of the repetition reported last. Not a new count.
+        default void onMatchRefined(CompiledTemplate template, float similarity, long startFrame, long endFrame) {
+        }
+    }
+
+    private final List<CompiledTemplate> templates;
+    private final float similarityThreshold;
+    private final float warpingBandPercent;
+    private final ExecutorService scoringPool; // Null scores several templates one after another
+    private final int scoringBatch; // Candidates scored at once: one per pool thread
+    private final TemplateIndex index; // Pause-delimited mode only
+    private final int[] candidates; // Reused per utterance: template indices, most promising first...
+    private final float[] candidateBounds; // ...and the highest similarity each could reach
+    private final TemplateIndex.Scratch indexScratch;
+    private final List<CompiledTemplate> batch; // Reused per batch: the candidates being scored...
+    private final List<ScoringTask> tasks; // ...and, with a scoring pool, their DTWs
+    private final ScoringTask[] taskPool;
+    private final RecognizerMetrics metrics;
+    private final MatchSink sink;
+    private final SubsequenceDtwMatcher continuousMatcher;
+    private final FeatureRingBuffer utterance; // Pause-delimited mode only
+    private int consecutiveSilence = 0;
+    private long frameIndex = -1;
+
+    RepetitionDetector(List<CompiledTemplate> templates, float similarityThreshold, float warpingBandPercent,
+                       boolean continuous, ExecutorService scoringPool, RecognizerMetrics metrics, MatchSink sink) {
+        this.templates = templates;
+        this.similarityThreshold = similarityThreshold;
+        this.warpingBandPercent = warpingBandPercent;
+        this.scoringPool = scoringPool;
+        this.scoringBatch = scoringPool instanceof ThreadPoolExecutor
+                ? Math.max(1, ((ThreadPoolExecutor) scoringPool).getCorePoolSize()) : 1;
+        this.metrics = metrics != null ? metrics : RecognizerMetrics.NONE;
+        this.sink = sink;
+        // Per-frame matching keeps one DP column per template, so it is only used for a single target
+        this.continuousMatcher = continuous && templates.size() == 1
+                ? new SubsequenceDtwMatcher(templates.get(0).getFrames(), similarityThreshold, SILENCE_FRAMES_THRESHOLD)
+                : null;
+        if (continuous && continuousMatcher == null) {
+            Log.w(TAG, "Continuous mode needs exactly one template, got " + templates.size() + "; segmenting on pauses");
+        }
+        if (continuousMatcher == null) {
+            int dim = templates.isEmpty() ? AudioMatcher.MFCC_SIZE : templates.get(0).getFrames().dimension();
+            int longest = 0;
+            for (CompiledTemplate template : templates) longest = Math.max(longest, template.getFrameCount());
+            // Room for a long mantra chanted at half its recorded pace
+            this.utterance = new FeatureRingBuffer(Math.max(MAX_UTTERANCE_FRAMES, 2 * longest), dim);
+            this.index = new TemplateIndex(templates);
+        } else {
+            this.utterance = null;
+            this.index = null;
+        }
+        this.candidates = new int[templates.size()];
+        this.candidateBounds = new float[templates.size()];
+        this.indexScratch = index != null ? index.newScratch() : null;
+        this.batch = new ArrayList<>(scoringBatch);
+        this.tasks = new ArrayList<>(scoringBatch);
+        this.taskPool = new ScoringTask[scoringPool != null ? scoringBatch : 0];
+        for (int i = 0; i < taskPool.length; i++) taskPool[i] = new ScoringTask();
+    }
+
+    void reset() {
+        if (utterance != null) utterance.clear();
+        consecutiveSilence = 0;
+        frameIndex = -1;
+        if (continuousMatcher != null) continuousMatcher.reset();
+    }
+
+    @Override
+    public void onFrame(float[] frame, int offset, boolean silent) {
+        frameIndex++;
+        if (continuousMatcher != null) {
+            int result;
+            if (metrics.isEnabled()) {
+                Trace.beginSection(RecognizerMetrics.Stage.DTW.traceName);
+                long started = System.nanoTime();
+                result = continuousMatcher.push(frame, offset, silent);
+                metrics.onLatency(RecognizerMetrics.Stage.DTW, System.nanoTime() - started);
+                metrics.onDtwCalls(1);
+                Trace.endSection();
+            } else {
+                result = continuousMatcher.push(frame, offset, silent);
+            }
+            if (result == SubsequenceDtwMatcher.MATCH) {
+                sink.onMatch(templates.get(0), continuousMatcher.getLastMatchSimilarity(),
+                        continuousMatcher.getLastMatchStart(), continuousMatcher.getLastMatchEnd());
+            } else if (result == SubsequenceDtwMatcher.REFINED) {
+                sink.onMatchRefined(templates.get(0), continuousMatcher.getLastMatchSimilarity(),
+                        continuousMatcher.getLastMatchStart(), continuousMatcher.getLastMatchEnd());
+            }
+            return;
+        }
+
+        // The ring buffer evicts the oldest frame itself once it is full
+        utterance.append(frame, offset);
+
+        if (silent) {
+            consecutiveSilence++;
+            if (consecutiveSilence >= SILENCE_FRAMES_THRESHOLD && !utterance.isEmpty()) {
+                if (consecutiveSilence < utterance.frameCount()) {
+                    // Silence threshold met, the utterance is considered complete. Perform DTW.
+                    scoreUtterance();
+                } else {
+                    // Nothing but silence since the last utterance; there is no speech to score
+                    utterance.clear();
+                    consecutiveSilence = 0;
+                }
+            }
+        } else {
+            // Not silent, reset silence counter
+            consecutiveSilence = 0;
+        }
+    }
+
+    // End of input: scores whatever utterance is still open, as if the silence had continued
+    void flush() {
+        if (continuousMatcher == null && !utterance.isEmpty() && consecutiveSilence < utterance.frameCount()) {
+            scoreUtterance();
+        }
+    }
+
+    private void scoreUtterance() {
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "Silence detected. Utterance size: " + utterance.frameCount() + ". Scoring " + templates.size() + " template(s).");
+        }
+        if (!metrics.isEnabled()) {
+            score();
+        } else {
+            Trace.beginSection(RecognizerMetrics.Stage.DTW.traceName);
+            long started = System.nanoTime();
+            int dtwCalls = 0;
+            try {
+                dtwCalls = score();
+            } finally {
+                metrics.onLatency(RecognizerMetrics.Stage.DTW, System.nanoTime() - started);
+                metrics.onDtwCalls(dtwCalls);
+                Trace.endSection();
+            }
+        }
+        utterance.clear();
+        consecutiveSilence = 0;
+    }
+
+    // Features were extracted once. The index's cheap lower bounds leave only the templates that may clear the
+    // threshold, most promising first. Each is then tried only while its bound, and its LB_Keogh bound, still reach
+    // the best similarity so far, which is also the DTW's early-abandoning floor. With a scoring pool the candidates
+    // run in batches of one per thread. The utterance counts for the best template that clears the threshold.
+    // Returns the number of DTWs run.
+    private int score() {
+        int count = index.candidates(utterance, warpingBandPercent, similarityThreshold, candidates, candidateBounds,
+                indexScratch);
+        float bestSimilarity = 0.0f;
+        CompiledTemplate best = null;
+        int dtwCalls = 0;
+        int next = 0;
+        while (next < count) {
+            float floor = Math.max(similarityThreshold, bestSimilarity);
+            batch.clear();
+            while (next < count && batch.size() < scoringBatch && candidateBounds[next] >= floor) {
+                int candidate = candidates[next++];
+                if (index.mayReach(candidate, utterance, warpingBandPercent, floor)) batch.add(index.get(candidate));
+            }
+            if (batch.isEmpty()) break; // Ranked: none of the rest can do better
+            dtwCalls += batch.size();
+            if (batch.size() == 1 || scoringPool == null) {
+                for (CompiledTemplate template : batch) {
+                    float similarity = AudioMatcher.computeDTW(utterance, template, warpingBandPercent, floor);
+                    if (similarity > bestSimilarity) {
+                        bestSimilarity = similarity;
+                        best = template;
+                    }
+                }
+                continue;
+            }
+            tasks.clear();
+            for (int i = 0; i < batch.size(); i++) {
+                ScoringTask task = taskPool[i];
+                task.template = batch.get(i);
+                task.floor = floor;
+                tasks.add(task);
+            }
+            try {
+                List<Future<Float>> results = scoringPool.invokeAll(tasks);
+                for (int i = 0; i < results.size(); i++) {
+                    float similarity = results.get(i).get();
+                    if (similarity > bestSimilarity) {
+                        bestSimilarity = similarity;
+                        best = batch.get(i);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return dtwCalls;
+            } catch (ExecutionException e) {
+                Log.e(TAG, "DTW scoring failed", e);
+                return dtwCalls;
+            }
+        }
+        if (best != null && bestSimilarity >= similarityThreshold) {
+            sink.onMatch(best, bestSimilarity, frameIndex - utterance.frameCount() + 1, frameIndex);
+        } else if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, "No match for '" + (best != null ? best.getName() : "-") + "'. Similarity " + bestSimilarity
+                    + " < threshold " + similarityThreshold + " after " + dtwCalls + " of " + templates.size() + " DTW(s)");
+        }
+        return dtwCalls;
+    }
+
+    // One DTW of the current utterance for the scoring pool; reused from batch to batch
+    private final class ScoringTask implements Callable<Float> {
+        CompiledTemplate template;
+        float floor;
+
+        @Override
+        public Float call() {
+            return AudioMatcher.computeDTW(utterance, template, warpingBandPercent, floor);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.mkproject.javaPackages;
+
+// Reference kernel: one accumulator, one coefficient per step. The other kernels are checked against this one.
+final class ScalarFrameDistance implements FrameDistance {
+    static final String NAME = "scalar";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float dot = 0.0f;
+        for (int k = 0; k < length; k++) {
+            dot += a[aOffset + k] * b[bOffset + k];
+        }
+        return dot;
+    }
+
+    @Override
+    public float dot(float[] query, byte[] codes, int offset, int length) {
+        float dot = 0.0f;
+        for (int k = 0; k < length; k++) {
+            dot += query[k] * codes[offset + k];
+        }
+        return dot;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.mkproject.javaPackages;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Bounded single-producer/single-consumer queue of preallocated float blocks. The producer claims the next free
+// slot, fills it in place and publishes it; the consumer peeks the oldest slot, reads it in place and releases it.
+// No locks and no allocation after construction. Each slot also carries a length, an int tag and a timestamp.
+final class SpscBlockQueue {
+    private final int capacity;
+    private final int mask;
+    private final float[][] blocks;
+    private final int[] lengths;
+    private final int[] tags;
+    private final long[] stamps;
+    private final AtomicLong head = new AtomicLong(); // Next slot the consumer reads; written by the consumer only
+    private final AtomicLong tail = new AtomicLong(); // Next slot the producer writes; written by the producer only
+    private volatile long highWaterMark = 0; // Producer-side view of the deepest backlog seen; read by stats readers
+
+    SpscBlockQueue(int requestedCapacity, int blockSize) {
+        int cap = Integer.highestOneBit(Math.max(1, requestedCapacity - 1)) << 1; // Round up to a power of two, at least 2
+        this.capacity = cap;
+        this.mask = cap - 1;
+        this.blocks = new float[cap][blockSize];
+        this.lengths = new int[cap];
+        this.tags = new int[cap];
+        this.stamps = new long[cap];
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    long highWaterMark() {
+        return highWaterMark;
+    }
+
+    // Producer: block to fill, or null if the queue is full
+    float[] claim() {
+        long t = tail.get();
+        if (t - head.get() >= capacity) return null;
+        return blocks[(int) (t & mask)];
+    }
+
+    // Producer: makes the block returned by the last claim() visible to the consumer
+    void publish(int length, int tag, long stamp) {
+        long t = tail.get();
+        int slot = (int) (t & mask);
+        lengths[slot] = length;
+        tags[slot] = tag;
+        stamps[slot] = stamp;
+        tail.lazySet(t + 1); // Ordered store: the block contents are visible before the new tail
+        long depth = t + 1 - head.get();
+        if (depth > highWaterMark) highWaterMark = depth;
+    }
+
+    // Consumer: oldest published block, or null if empty. Valid until release().
+    float[] peek() {
+        long h = head.get();
+        if (h == tail.get()) return null;
+        return blocks[(int) (h & mask)];
+    }
+
+    int peekLength() {
+        return lengths[(int) (head.get() & mask)];
+    }
+
+    int peekTag() {
+        return tags[(int) (head.get() & mask)];
+    }
+
+    long peekStamp() {
+        return stamps[(int) (head.get() & mask)];
+    }
+
+    // Consumer: hands the peeked block back to the producer
+    void release() {
+        head.lazySet(head.get() + 1);
+    }
+
+    // Only while neither side is running
+    void clear() {
+        head.set(tail.get());
+    }
+}
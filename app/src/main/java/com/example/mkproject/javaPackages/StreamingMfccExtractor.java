@@ -0,0 +1,174 @@
+package com.example.mkproject.javaPackages;
+
+import be.tarsos.dsp.mfcc.MFCC;
+import be.tarsos.dsp.util.fft.FFT;
+import be.tarsos.dsp.util.fft.HammingWindow;
+
+// Session-scoped MFCC front end. Samples can be pushed in chunks of any size; every time a full
+// frame is available it is analysed and its coefficients are written into the caller's buffer.
+// Filterbank, DCT table, FFT and all scratch arrays are built once, so the per-frame path does
+// not allocate. The spectrum, mel and DCT stages match TarsosDSP's MFCC.
+public class StreamingMfccExtractor {
+    private static final int MEL_FILTERS = 40;
+    private static final float LOWER_FILTER_FREQ = 50.0f;
+    private static final float UPPER_FILTER_FREQ = 8000.0f;
+
+    private final int frameSize;
+    private final int hopSize;
+    private final int coefficientCount;
+
+    private final FFT fft;
+    private final int[] centerFrequencies; // Same filterbank layout TarsosDSP's MFCC uses
+    private final double[] dctTable; // coefficientCount x MEL_FILTERS
+    private final float[] window; // Hamming, applied before the FFT's own window (as extractMFCC always did)
+    private final AudioMatcher.PreEmphasisFilter preEmphasis = new AudioMatcher.PreEmphasisFilter();
+
+    private final float[] pending; // Samples waiting to form the next frame
+    private final float[] pendingEmphasised; // Same samples after stream-level pre-emphasis
+    private int pendingCount = 0;
+    private final float[] frame; // Raw samples of the most recent frame
+    private final float[] scratch; // Windowed copy handed to the FFT
+    private final float[] spectrum;
+    private final float[] melEnergies;
+
+    // Analysis-rate input at AudioMatcher.ANALYSIS framing
+    public StreamingMfccExtractor() {
+        this(AudioMatcher.ANALYSIS.getSampleRate(), AudioMatcher.ANALYSIS.getFrameSize(), AudioMatcher.ANALYSIS.getHopSize(), AudioMatcher.MFCC_SIZE);
+    }
+
+    public StreamingMfccExtractor(int sampleRate, int frameSize, int hopSize, int coefficientCount) {
+        if (frameSize < 2 || hopSize <= 0 || hopSize > frameSize || coefficientCount <= 0) {
+            throw new IllegalArgumentException("Invalid extractor config: frameSize=" + frameSize
+                    + ", hopSize=" + hopSize + ", coefficients=" + coefficientCount);
+        }
+        this.frameSize = frameSize;
+        this.hopSize = hopSize;
+        this.coefficientCount = coefficientCount;
+
+        this.fft = new FFT(frameSize, new HammingWindow());
+        // Borrow the filterbank from a TarsosDSP MFCC instance so features stay identical to its output
+        MFCC reference = new MFCC(frameSize, sampleRate, coefficientCount, MEL_FILTERS, LOWER_FILTER_FREQ, UPPER_FILTER_FREQ);
+        this.centerFrequencies = reference.getCenterFrequencies().clone();
+
+        this.dctTable = new double[coefficientCount * MEL_FILTERS];
+        for (int c = 0; c < coefficientCount; c++) {
+            for (int m = 0; m < MEL_FILTERS; m++) {
+                dctTable[c * MEL_FILTERS + m] = Math.cos(Math.PI * c / MEL_FILTERS * (m + 0.5));
+            }
+        }
+        this.window = AudioMatcher.WindowType.HAMMING.table(frameSize);
+
+        this.pending = new float[frameSize];
+        this.pendingEmphasised = new float[frameSize];
+        this.frame = new float[frameSize];
+        this.scratch = new float[frameSize];
+        this.spectrum = new float[frameSize / 2 + 1];
+        this.melEnergies = new float[MEL_FILTERS];
+    }
+
+    public int getFrameSize() {
+        return frameSize;
+    }
+
+    public int getHopSize() {
+        return hopSize;
+    }
+
+    public int getCoefficientCount() {
+        return coefficientCount;
+    }
+
+    // Raw (un-emphasised, un-windowed) samples of the last emitted frame, e.g. for VAD. Overwritten on the next frame.
+    public float[] getLastFrame() {
+        return frame;
+    }
+
+    // Number of frames the next process() call will emit for a chunk of the given length
+    public int framesFor(int length) {
+        int available = pendingCount + length;
+        if (available < frameSize) return 0;
+        return (available - frameSize) / hopSize + 1;
+    }
+
+    // Drops buffered samples so the next frame starts from fresh input
+    public void reset() {
+        pendingCount = 0;
+        preEmphasis.reset();
+    }
+
+    /**
+     * Appends samples and writes one block of {@code coefficientCount} floats to {@code out} for every completed frame.
+     * {@code out} must have room for {@link #framesFor(int)} frames starting at {@code outOffset}.
+     * @return number of frames written
+     */
+    public int process(float[] samples, int offset, int length, float[] out, int outOffset) {
+        int frames = framesFor(length);
+        if (out.length - outOffset < frames * coefficientCount) {
+            throw new IllegalArgumentException("Output buffer too small for " + frames + " frames");
+        }
+        int written = 0;
+        int end = offset + length;
+        while (offset < end) {
+            int toCopy = Math.min(frameSize - pendingCount, end - offset);
+            System.arraycopy(samples, offset, pending, pendingCount, toCopy);
+            preEmphasis.process(samples, offset, pendingEmphasised, pendingCount, toCopy);
+            pendingCount += toCopy;
+            offset += toCopy;
+            if (pendingCount == frameSize) {
+                analyseFrame(out, outOffset + written * coefficientCount);
+                written++;
+                // Keep the overlapping tail for the next frame
+                System.arraycopy(pending, hopSize, pending, 0, frameSize - hopSize);
+                System.arraycopy(pendingEmphasised, hopSize, pendingEmphasised, 0, frameSize - hopSize);
+                pendingCount = frameSize - hopSize;
+            }
+        }
+        return written;
+    }
+
+    private void analyseFrame(float[] out, int outOffset) {
+        System.arraycopy(pending, 0, frame, 0, frameSize);
+
+        // Pre-emphasis already ran on the stream, so overlapping frames see the same filtered samples
+        for (int i = 0; i < frameSize; i++) {
+            scratch[i] = pendingEmphasised[i] * window[i];
+        }
+
+        fft.forwardTransform(scratch);
+        int half = frameSize / 2;
+        for (int k = 0; k < half; k++) {
+            spectrum[k] = fft.modulus(scratch, k);
+        }
+        spectrum[half] = spectrum[half - 1]; // TarsosDSP mirrors the spectrum, so bin N/2 reads back bin N/2-1
+
+        // Triangular mel filters
+        for (int m = 1; m <= MEL_FILTERS; m++) {
+            int lo = centerFrequencies[m - 1];
+            int mid = centerFrequencies[m];
+            int hi = centerFrequencies[m + 1];
+            float rising = 0.0f;
+            float width = mid - lo + 1;
+            for (int k = lo; k <= mid; k++) {
+                rising += spectrum[k] * (k - lo + 1);
+            }
+            rising /= width;
+            float falling = 0.0f;
+            width = hi - mid + 1;
+            for (int k = mid + 1; k <= hi; k++) {
+                falling += spectrum[k] * (1 - (k - mid) / width);
+            }
+            float energy = (float) Math.log(rising + falling);
+            melEnergies[m - 1] = energy < -50.0f ? -50.0f : energy;
+        }
+
+        // DCT-II
+        for (int c = 0; c < coefficientCount; c++) {
+            float sum = 0.0f;
+            int row = c * MEL_FILTERS;
+            for (int m = 0; m < MEL_FILTERS; m++) {
+                sum += melEnergies[m] * dctTable[row + m];
+            }
+            out[outOffset + c] = sum;
+        }
+    }
+}
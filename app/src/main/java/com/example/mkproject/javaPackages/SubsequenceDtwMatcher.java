@@ -0,0 +1,229 @@
+package com.example.mkproject.javaPackages;
+
+import java.util.Arrays;
+
+// Streaming subsequence DTW (SPRING, Sakurai et al. 2007) of a live feature stream against one reference template,
+// used to cut back-to-back chanting into repetitions. Each push() extends the DP by one column of length m =
+// template frames, so per-frame work is O(m) and the alignment may start (open begin) and end (open end) at any
+// live frame. With cosine distances every voiced frame is close to the template, so the DP is slope constrained
+// (at most MAX_RUN consecutive steps on either axis): a repetition spans between m / 2 and 2m live frames and
+// cannot collapse onto a few frames. A repetition is reported on the first frame at which an alignment to the
+// template's end clears the threshold in normalised similarity (as in AudioMatcher.computeDTW), and stays open:
+//   - while open, any overlapping alignment that scores higher moves its bounds to the similarity peak (REFINED);
+//     that is the same repetition, so it is never counted again;
+//   - it closes once settleFrames pass without that, on a silent frame, or when a later alignment that starts
+//     after it qualifies, which is then reported as the next repetition;
+//   - silent frames (per the VAD) are skipped, and a pause of pauseFrames ends every alignment in progress;
+//   - alignments overlapping a closed repetition are dropped, so the next one starts where it ended.
+// The settle window therefore only bounds refinement; it never delays a count.
+// Once two repetitions have followed each other without a pause, their length (the chanting period) bounds the
+// next one to within PERIOD_TOLERANCE of it, which keeps half or double cycles out; a pause resets the period.
+public class SubsequenceDtwMatcher {
+    private static final int MAX_RUN = 1; // Local tempo between 1/2 and 2 times the template's
+    private static final float PERIOD_TOLERANCE = 1.5f;
+
+    // push() results
+    public static final int NO_MATCH = 0;
+    public static final int MATCH = 1; // A new repetition was reported
+    public static final int REFINED = 2; // The open repetition's bounds and similarity moved; still one repetition
+
+    private final ReferenceFrames reference;
+    private final float[] query; // Current live frame in the reference's query form
+    private final int m;
+    private final int dimension;
+    private final float similarityThreshold;
+    private final int settleFrames;
+    private final int pauseFrames;
+
+    private float[] cost; // cost[j]: best cost of an alignment ending at the current frame and template frame j (1-based)
+    private long[] start; // start[j]: live frame index where that alignment begins
+    private byte[] run; // run[j]: > 0 consecutive live-only steps into that cell, < 0 template-only steps, 0 diagonal
+    private float[] nextCost;
+    private long[] nextStart;
+    private byte[] nextRun;
+    private long frameIndex = -1;
+    private int silentRun = 0;
+
+    // Last reported repetition; open until settled, silence or the next repetition closes it
+    private boolean open = false;
+    private float matchSimilarity;
+    private long matchStart = -1;
+    private long matchEnd = -1;
+    private long closedEnd = -1; // End of the last closed repetition
+
+    // Chanting period, from repetitions without a pause in between
+    private float period;
+    private int periodCount = 0;
+
+    /**
+     * @param pauseFrames consecutive silent frames after which chanting counts as paused: alignments in progress
+     *                    are dropped and the period is forgotten
+     */
+    public SubsequenceDtwMatcher(ReferenceFrames reference, float similarityThreshold, int pauseFrames) {
+        if (reference == null || reference.isEmpty()) {
+            throw new IllegalArgumentException("Reference template is empty");
+        }
+        this.reference = reference;
+        this.m = reference.frameCount();
+        this.dimension = reference.dimension();
+        this.query = reference.newQuery();
+        this.similarityThreshold = similarityThreshold;
+        this.settleFrames = Math.max(2, m / 4);
+        this.pauseFrames = pauseFrames;
+        this.cost = new float[m + 1];
+        this.start = new long[m + 1];
+        this.run = new byte[m + 1];
+        this.nextCost = new float[m + 1];
+        this.nextStart = new long[m + 1];
+        this.nextRun = new byte[m + 1];
+        reset();
+    }
+
+    public int getTemplateLength() {
+        return m;
+    }
+
+    public void reset() {
+        Arrays.fill(cost, Float.POSITIVE_INFINITY);
+        cost[0] = 0.0f;
+        frameIndex = -1;
+        silentRun = 0;
+        open = false;
+        matchStart = -1;
+        matchEnd = -1;
+        closedEnd = -1;
+        periodCount = 0;
+    }
+
+    /**
+     * Feeds one live frame ({@code dimension} floats at {@code offset}) with its VAD decision.
+     * @return {@link #MATCH} if this frame completed a new repetition, {@link #REFINED} if it moved the open one,
+     *         else {@link #NO_MATCH}; details via the getLastMatch* accessors
+     */
+    public int push(float[] frame, int offset, boolean silent) {
+        frameIndex++;
+        if (silent) {
+            // Silence is never part of a repetition: it closes the open one, a short dip is stepped over and a
+            // pause ends every alignment in progress
+            if (open) close();
+            if (++silentRun == pauseFrames) {
+                Arrays.fill(cost, 1, m + 1, Float.POSITIVE_INFINITY);
+                periodCount = 0;
+            }
+            return NO_MATCH;
+        }
+        silentRun = 0;
+        double liveNormSq = 0.0;
+        for (int k = 0; k < dimension; k++) {
+            float v = frame[offset + k];
+            liveNormSq += v * v;
+        }
+        float liveNorm = (float) Math.sqrt(liveNormSq);
+        float liveScale = liveNorm > 0.0f ? 1.0f / liveNorm : 0.0f;
+        reference.prepareQuery(frame, offset, liveScale, query);
+
+        // Row 0 is the open beginning, so template frame 1 always starts a new alignment at this frame
+        nextCost[0] = 0.0f;
+        nextStart[0] = frameIndex;
+        nextRun[0] = 0;
+        nextCost[1] = distance(liveNorm, 0);
+        nextStart[1] = frameIndex;
+        nextRun[1] = 0;
+        for (int j = 2; j <= m; j++) {
+            float best = cost[j - 1];
+            long bestStart = start[j - 1];
+            byte bestRun = 0;
+            byte templateRun = nextRun[j - 1];
+            if (templateRun > -MAX_RUN && nextCost[j - 1] < best) {
+                best = nextCost[j - 1];
+                bestStart = nextStart[j - 1];
+                bestRun = (byte) (Math.min(templateRun, 0) - 1);
+            }
+            byte liveRun = run[j];
+            if (liveRun < MAX_RUN && cost[j] < best) {
+                best = cost[j];
+                bestStart = start[j];
+                bestRun = (byte) (Math.max(liveRun, 0) + 1);
+            }
+            nextCost[j] = distance(liveNorm, j - 1) + best;
+            nextStart[j] = bestStart;
+            nextRun[j] = bestRun;
+        }
+        float[] tmpCost = cost;
+        cost = nextCost;
+        nextCost = tmpCost;
+        long[] tmpStart = start;
+        start = nextStart;
+        nextStart = tmpStart;
+        byte[] tmpRun = run;
+        run = nextRun;
+        nextRun = tmpRun;
+
+        if (open && frameIndex - matchEnd >= settleFrames) close();
+
+        float endCost = cost[m];
+        if (endCost == Float.POSITIVE_INFINITY) return NO_MATCH;
+        long length = frameIndex - start[m] + 1;
+        float similarity = 1.0f - endCost / (length + m);
+        if (similarity < similarityThreshold || !fitsPeriod(length)) return NO_MATCH;
+        // The next repetition is already complete, so nothing can move the open one any more
+        if (open && start[m] > matchEnd) close();
+        int result;
+        if (!open) {
+            open = true;
+            result = MATCH;
+        } else if (similarity > matchSimilarity) {
+            result = REFINED;
+        } else {
+            return NO_MATCH;
+        }
+        matchSimilarity = similarity;
+        matchStart = start[m];
+        matchEnd = frameIndex;
+        return result;
+    }
+
+    public float getLastMatchSimilarity() {
+        return matchSimilarity;
+    }
+
+    // Live frame indices (counted from the last reset) of the last reported repetition, inclusive
+    public long getLastMatchStart() {
+        return matchStart;
+    }
+
+    public long getLastMatchEnd() {
+        return matchEnd;
+    }
+
+    private void close() {
+        long length = matchEnd - matchStart + 1;
+        boolean backToBack = closedEnd >= 0 && matchStart - closedEnd <= pauseFrames;
+        if (backToBack && periodCount > 0) {
+            period = 0.5f * (period + length);
+            periodCount++;
+        } else {
+            period = length;
+            periodCount = 1;
+        }
+        closedEnd = matchEnd;
+        open = false;
+        // Alignments overlapping the closed repetition may not be reported again
+        for (int j = 1; j <= m; j++) {
+            if (start[j] <= matchEnd) cost[j] = Float.POSITIVE_INFINITY;
+        }
+    }
+
+    private boolean fitsPeriod(long length) {
+        return periodCount < 2 || (length * PERIOD_TOLERANCE >= period && length <= period * PERIOD_TOLERANCE);
+    }
+
+    // 1 - cosine of the prepared live frame against reference frame j, never negative (quantised rows can overshoot)
+    private float distance(float liveNorm, int j) {
+        float referenceNorm = reference.norm(j);
+        if (liveNorm < 1e-9f || referenceNorm < 1e-9f) {
+            return (liveNorm < 1e-9f && referenceNorm < 1e-9f) ? 0.0f : 1.0f;
+        }
+        return Math.max(0.0f, 1.0f - reference.dot(j, query));
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.mkproject.javaPackages;
+
+import android.util.Log;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+// DTW barycenter averaging (DBA, Petitjean et al. 2011) of several takes of one mantra into a single template, so
+// live matching stays at one DTW per mantra however many takes were enrolled. Starts from the medoid take (least
+// total DTW cost to the others), then repeatedly replaces each frame of the average with the mean of the take
+// frames aligned to it, until the total alignment cost stops falling by CONVERGENCE (at most MAX_ITERATIONS).
+// The pairwise DTWs and the per-take alignments are independent and run on the given executor; alignments use
+// MultiResolutionDtw.warpingPath over the full band, so long mantras stay near linear. Takes should be compiled
+// with TemplateEncoding.FLOAT32; the average is encoded as AudioMatcher.TEMPLATE_ENCODING.
+final class TemplateAverager {
+    private static final String TAG = "TemplateAverager";
+    static final int MAX_ITERATIONS = 10;
+    static final float CONVERGENCE = 1e-3f; // Relative cost improvement below which averaging stops
+
+    private TemplateAverager() {
+    }
+
+    // Reads and compiles each take WAV (in parallel, like the alignments) and averages them; unreadable takes are
+    // skipped. Null if none has speech.
+    static CompiledTemplate fromTakes(String name, List<File> takeFiles, ExecutorService executor)
+            throws InterruptedException, ExecutionException {
+        List<Callable<CompiledTemplate>> compiles = new ArrayList<>(takeFiles.size());
+        for (File file : takeFiles) {
+            compiles.add(() -> {
+                float[] audio = WavReader.read(file, AudioMatcher.SAMPLE_RATE);
+                if (audio == null) Log.w(TAG, "Skipping unreadable take " + file.getName());
+                return CompiledTemplate.compile(name, audio, TemplateEncoding.FLOAT32);
+            });
+        }
+        return average(name, run(compiles, executor), executor);
+    }
+
+    /**
+     * @param executor runs the alignments; null runs them one after another on the calling thread
+     * @return the averaged template under the given name, or null if no take has speech
+     */
+    static CompiledTemplate average(String name, List<CompiledTemplate> takes, ExecutorService executor)
+            throws InterruptedException, ExecutionException {
+        List<CompiledTemplate> usable = new ArrayList<>();
+        for (CompiledTemplate take : takes) {
+            if (!take.isEmpty()) usable.add(take);
+        }
+        if (usable.isEmpty()) return null;
+        int count = usable.size();
+        FeatureMatrix[] features = new FeatureMatrix[count];
+        for (int t = 0; t < count; t++) features[t] = usable.get(t).getFeatures();
+
+        // Medoid: the take closest to all others
+        int medoid = 0;
+        if (count > 2) {
+            List<Callable<Float>> pairs = new ArrayList<>();
+            for (int a = 0; a < count; a++) {
+                for (int b = a + 1; b < count; b++) {
+                    FeatureMatrix first = features[a];
+                    FeatureMatrix second = features[b];
+                    pairs.add(() -> 1.0f - AudioMatcher.alignmentSimilarity(first, second, AudioMatcher.FULL_BAND_PERCENT, 0.0f));
+                }
+            }
+            List<Float> distances = run(pairs, executor);
+            float[] totals = new float[count];
+            int pair = 0;
+            for (int a = 0; a < count; a++) {
+                for (int b = a + 1; b < count; b++) {
+                    float distance = distances.get(pair++);
+                    totals[a] += distance;
+                    totals[b] += distance;
+                }
+            }
+            for (int t = 1; t < count; t++) {
+                if (totals[t] < totals[medoid]) medoid = t;
+            }
+        }
+
+        FeatureMatrix average = features[medoid];
+        FeatureMatrix previous = average;
+        float averageCost = Float.POSITIVE_INFINITY;
+        int iterations = 0;
+        while (count > 1) {
+            FeatureMatrix current = average;
+            List<Callable<Alignment>> alignments = new ArrayList<>(count);
+            for (FeatureMatrix take : features) {
+                alignments.add(() -> align(current, take));
+            }
+            int frames = current.frameCount();
+            int dim = current.dimension();
+            float[] sums = new float[frames * dim];
+            int[] members = new int[frames];
+            float cost = 0.0f;
+            for (Alignment alignment : run(alignments, executor)) {
+                for (int k = 0; k < sums.length; k++) sums[k] += alignment.sums[k];
+                for (int i = 0; i < frames; i++) members[i] += alignment.members[i];
+                cost += alignment.cost;
+            }
+            if (cost >= averageCost * (1.0f - CONVERGENCE)) {
+                // Converged; the last update is kept unless it made the alignments worse
+                if (cost > averageCost) {
+                    average = previous;
+                } else {
+                    averageCost = cost;
+                }
+                break;
+            }
+            previous = current;
+            averageCost = cost;
+            if (iterations == MAX_ITERATIONS) break; // Stop where the last update has been measured, never after it
+            for (int i = 0; i < frames; i++) {
+                float scale = 1.0f / members[i]; // Every row is on the path at least once
+                for (int k = 0; k < dim; k++) sums[i * dim + k] *= scale;
+            }
+            average = new FeatureMatrix(sums, frames, dim);
+            iterations++;
+        }
+        Log.d(TAG, "Averaged " + count + " takes of " + name + " around take " + medoid + " in " + iterations
+                + " iteration(s), mean alignment cost " + averageCost / count);
+
+        CompiledTemplate source = usable.get(medoid);
+        return new CompiledTemplate(name, average, source.getUntrimmedFrameCount(), source.getSampleCount(),
+                source.getSampleRate()).encode(AudioMatcher.TEMPLATE_ENCODING);
+    }
+
+    // One take aligned to the current average: per average frame, the sum and number of take frames on the path
+    private static final class Alignment {
+        final float[] sums;
+        final int[] members;
+        final float cost; // Sum of the path's cell costs
+
+        Alignment(float[] sums, int[] members, float cost) {
+            this.sums = sums;
+            this.members = members;
+            this.cost = cost;
+        }
+    }
+
+    private static Alignment align(FeatureMatrix average, FeatureMatrix take) {
+        int dim = average.dimension();
+        float[] sums = new float[average.frameCount() * dim];
+        int[] members = new int[average.frameCount()];
+        float[] data = take.data();
+        float cost = 0.0f;
+        int[] path = MultiResolutionDtw.warpingPath(average, take, AudioMatcher.FULL_BAND_PERCENT);
+        for (int p = 0; p < path.length; p += 2) {
+            int i = path[p];
+            int j = path[p + 1];
+            int base = take.offset(j);
+            for (int k = 0; k < dim; k++) sums[i * dim + k] += data[base + k];
+            members[i]++;
+            cost += 1.0f - average.cosineSimilarity(i, take, j);
+        }
+        return new Alignment(sums, members, cost);
+    }
+
+    private static <T> List<T> run(List<Callable<T>> tasks, ExecutorService executor)
+            throws InterruptedException, ExecutionException {
+        List<T> results = new ArrayList<>(tasks.size());
+        if (executor == null) {
+            for (Callable<T> task : tasks) {
+                try {
+                    results.add(task.call());
+                } catch (Exception e) {
+                    throw new ExecutionException(e);
+                }
+            }
+        } else {
+            for (Future<T> future : executor.invokeAll(tasks)) results.add(future.get());
+        }
+        return results;
+    }
+}
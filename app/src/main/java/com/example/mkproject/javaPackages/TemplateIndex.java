@@ -0,0 +1,272 @@
+package com.example.mkproject.javaPackages;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Lower bounds on the DTW cost of an utterance against each template of a library, so that only the templates that
+// can still win get a full computeDTW. Every warping path visits each live row at least once, and a unit row u has at
+// most sum_k max(u_k * upper_k, u_k * lower_k) cosine with any row inside a per-coefficient envelope. Envelopes are
+// taken over the unit rows DTW actually dots against (quantised ones included), per block of BLOCK_FRAMES rows and
+// for the whole template. From cheapest to tightest:
+//   summary   whole-template envelope. Separable per coefficient, so once the utterance's positive and negative
+//             coefficient sums are known it costs O(dimension) per template.
+//   segments  the utterance cut into SEGMENTS parts, each against the blocks its rows' Sakoe-Chiba windows can reach;
+//             O(SEGMENTS * blocks) per template. Ranks the candidates.
+//   LB_Keogh  each live row against the best block under its own window; O(n * window / BLOCK_FRAMES), abandoning
+//             once over budget. Run per candidate right before its DTW, against the best similarity so far.
+// Multi-resolution templates (see MultiResolutionDtw) may leave the band, so only the summary bound applies to them.
+// Silent rows follow the DTW's cost rule. Immutable and thread-safe once built.
+final class TemplateIndex {
+    private static final float NORM_EPSILON = 1e-9f;
+    static final int BLOCK_FRAMES = 8;
+    static final int SEGMENTS = 8;
+    // Per-row allowance for float rounding, so a bound never exceeds the cost the DTW itself computes
+    private static final float ROUNDING_SLACK = 1e-5f;
+
+    private final CompiledTemplate[] templates;
+    private final int dimension;
+    private final float[][] upper; // Per template: whole-template envelope, then one per block, dimension apart
+    private final float[][] lower;
+    private final boolean[][] blockHasSilence; // Per template and block: holds a row DTW treats as silent
+    private final boolean[] hasSilence;
+
+    TemplateIndex(List<CompiledTemplate> templates) {
+        int count = templates.size();
+        this.templates = templates.toArray(new CompiledTemplate[0]);
+        this.dimension = count > 0 ? templates.get(0).getFrames().dimension() : AudioMatcher.MFCC_SIZE;
+        this.upper = new float[count][];
+        this.lower = new float[count][];
+        this.blockHasSilence = new boolean[count][];
+        this.hasSilence = new boolean[count];
+        for (int t = 0; t < count; t++) {
+            buildEnvelopes(t, this.templates[t].getFrames());
+        }
+    }
+
+    int size() {
+        return templates.length;
+    }
+
+    CompiledTemplate get(int index) {
+        return templates[index];
+    }
+
+    // Working arrays of candidates(), one set per caller since the index is shared
+    static final class Scratch {
+        // Positive and negative coefficient sums of the voiced rows, over the whole utterance and then per segment
+        final float[] positive;
+        final float[] negative;
+        final int[] voiced;
+        // Merged envelope of the blocks a segment can reach
+        final float[] rangeUpper;
+        final float[] rangeLower;
+
+        private Scratch(int dimension) {
+            positive = new float[(SEGMENTS + 1) * dimension];
+            negative = new float[(SEGMENTS + 1) * dimension];
+            voiced = new int[SEGMENTS + 1];
+            rangeUpper = new float[dimension];
+            rangeLower = new float[dimension];
+        }
+    }
+
+    Scratch newScratch() {
+        return new Scratch(dimension);
+    }
+
+    /**
+     * Templates whose summary and segment bounds still reach the similarity threshold, most promising first.
+     * @param order receives the candidates' template indices; at least size() long
+     * @param maxSimilarity receives, in the same order, the highest similarity computeDTW could return for each
+     * @param scratch from newScratch(); overwritten
+     * @return the number of candidates
+     */
+    int candidates(FrameSequence live, float bandPercent, float similarityThreshold, int[] order, float[] maxSimilarity,
+                   Scratch scratch) {
+        int n = live.frameCount();
+        if (n == 0) return 0;
+        float[] positive = scratch.positive;
+        float[] negative = scratch.negative;
+        int[] voiced = scratch.voiced;
+        Arrays.fill(positive, 0.0f);
+        Arrays.fill(negative, 0.0f);
+        Arrays.fill(voiced, 0);
+        float[] unit = live.unitData();
+        for (int i = 0; i < n; i++) {
+            if (live.norm(i) < NORM_EPSILON) continue; // Costs 0 against a silent reference row
+            int segment = (int) ((long) i * SEGMENTS / n);
+            int base = live.unitOffset(i);
+            for (int k = 0; k < dimension; k++) {
+                float u = unit[base + k];
+                if (u > 0.0f) positive[(segment + 1) * dimension + k] += u;
+                else negative[(segment + 1) * dimension + k] += u;
+            }
+            voiced[segment + 1]++;
+        }
+        for (int segment = 1; segment <= SEGMENTS; segment++) {
+            for (int k = 0; k < dimension; k++) {
+                positive[k] += positive[segment * dimension + k];
+                negative[k] += negative[segment * dimension + k];
+            }
+            voiced[0] += voiced[segment];
+        }
+
+        float[] rangeUpper = scratch.rangeUpper;
+        float[] rangeLower = scratch.rangeLower;
+        int count = 0;
+        for (int t = 0; t < templates.length; t++) {
+            int m = templates[t].getFrameCount();
+            if (m == 0) continue;
+            float costBudget = (1.0f - similarityThreshold) * (n + m);
+            float bound = 0.0f;
+            if (!hasSilence[t]) { // A silent reference row caps a voiced row's cost at 1, which is not separable
+                bound = envelopeBound(upper[t], lower[t], 0, positive, negative, voiced, 0);
+                if (bound > costBudget) continue;
+            }
+            if (templates[t].getCoarseLevels().length == 0) {
+                bound = Math.max(bound, segmentBound(t, n, bandPercent, positive, negative, voiced, rangeUpper, rangeLower));
+                if (bound > costBudget) continue;
+            }
+            order[count] = t;
+            maxSimilarity[count] = 1.0f - bound / (n + m);
+            count++;
+        }
+        // Insertion sort by descending bound; the threshold has usually left few candidates
+        for (int a = 1; a < count; a++) {
+            int t = order[a];
+            float similarity = maxSimilarity[a];
+            int b = a - 1;
+            for (; b >= 0 && maxSimilarity[b] < similarity; b--) {
+                order[b + 1] = order[b];
+                maxSimilarity[b + 1] = maxSimilarity[b];
+            }
+            order[b + 1] = t;
+            maxSimilarity[b + 1] = similarity;
+        }
+        return count;
+    }
+
+    // False if LB_Keogh shows that computeDTW with this band cannot reach the similarity
+    boolean mayReach(int index, FrameSequence live, float bandPercent, float similarity) {
+        CompiledTemplate template = templates[index];
+        int n = live.frameCount();
+        int m = template.getFrameCount();
+        if (n == 0 || m == 0) return false;
+        if (template.getCoarseLevels().length > 0) return true;
+        float costBudget = (1.0f - similarity) * (n + m);
+        int band = AudioMatcher.warpingBand(n, m, bandPercent);
+        float[] unit = live.unitData();
+        float[] upperT = upper[index];
+        float[] lowerT = lower[index];
+        boolean[] silentBlocks = blockHasSilence[index];
+        float bound = 0.0f;
+        for (int i = 1; i <= n; i++) {
+            if (live.norm(i - 1) < NORM_EPSILON) continue;
+            // Same window as alignmentSimilarity, in 0-based reference rows
+            int center = (int) ((long) i * m / n);
+            int firstBlock = (Math.max(1, center - band) - 1) / BLOCK_FRAMES;
+            int lastBlock = (Math.min(m, center + band) - 1) / BLOCK_FRAMES;
+            int base = live.unitOffset(i - 1);
+            float bestCosine = Float.NEGATIVE_INFINITY;
+            for (int b = firstBlock; b <= lastBlock; b++) {
+                float cosine = silentBlocks[b] ? 0.0f : Float.NEGATIVE_INFINITY; // Cost 1 against a silent row
+                int envelope = (b + 1) * dimension;
+                if (upperT[envelope] >= lowerT[envelope]) { // Block has voiced rows
+                    float voicedCosine = 0.0f;
+                    for (int k = 0; k < dimension; k++) {
+                        float u = unit[base + k];
+                        voicedCosine += u > 0.0f ? u * upperT[envelope + k] : u * lowerT[envelope + k];
+                    }
+                    cosine = Math.max(cosine, voicedCosine);
+                }
+                bestCosine = Math.max(bestCosine, cosine);
+            }
+            bound += Math.max(0.0f, 1.0f - ROUNDING_SLACK - bestCosine);
+            if (bound > costBudget) return false;
+        }
+        return true;
+    }
+
+    // Each segment's rows lie between the windows of its first and last row, so they are bounded by the merged
+    // envelope of the blocks in between. Segments that reach a silent block add nothing.
+    private float segmentBound(int t, int n, float bandPercent, float[] positive, float[] negative, int[] voiced,
+                               float[] rangeUpper, float[] rangeLower) {
+        int m = templates[t].getFrameCount();
+        int band = AudioMatcher.warpingBand(n, m, bandPercent);
+        float[] upperT = upper[t];
+        float[] lowerT = lower[t];
+        boolean[] silentBlocks = blockHasSilence[t];
+        float bound = 0.0f;
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            if (voiced[segment + 1] == 0) continue;
+            // 1-based rows as in alignmentSimilarity: segment rows i - 1 with i * SEGMENTS / n == segment
+            int firstRow = (int) (((long) segment * n + SEGMENTS - 1) / SEGMENTS) + 1;
+            int lastRow = (int) (((long) (segment + 1) * n + SEGMENTS - 1) / SEGMENTS);
+            int firstBlock = (Math.max(1, (int) ((long) firstRow * m / n) - band) - 1) / BLOCK_FRAMES;
+            int lastBlock = (Math.min(m, (int) ((long) lastRow * m / n) + band) - 1) / BLOCK_FRAMES;
+            Arrays.fill(rangeUpper, Float.NEGATIVE_INFINITY);
+            Arrays.fill(rangeLower, Float.POSITIVE_INFINITY);
+            boolean silent = false;
+            for (int b = firstBlock; b <= lastBlock && !silent; b++) {
+                silent = silentBlocks[b];
+                int envelope = (b + 1) * dimension;
+                for (int k = 0; k < dimension; k++) {
+                    rangeUpper[k] = Math.max(rangeUpper[k], upperT[envelope + k]);
+                    rangeLower[k] = Math.min(rangeLower[k], lowerT[envelope + k]);
+                }
+            }
+            if (!silent) bound += envelopeBound(rangeUpper, rangeLower, 0, positive, negative, voiced, segment + 1);
+        }
+        return bound;
+    }
+
+    // Cost bound of the voiced rows summed into slot against one envelope: each row costs at least 1 minus its
+    // highest possible cosine
+    private float envelopeBound(float[] envelopeUpper, float[] envelopeLower, int envelope,
+                                float[] positive, float[] negative, int[] voiced, int slot) {
+        float cosine = 0.0f;
+        for (int k = 0; k < dimension; k++) {
+            cosine += envelopeUpper[envelope + k] * positive[slot * dimension + k]
+                    + envelopeLower[envelope + k] * negative[slot * dimension + k];
+        }
+        return Math.max(0.0f, voiced[slot] * (1.0f - ROUNDING_SLACK) - cosine);
+    }
+
+    // Unit rows as the reference's dot() sees them, read back one coefficient at a time through basis queries
+    private void buildEnvelopes(int t, ReferenceFrames frames) {
+        int m = frames.frameCount();
+        int blocks = (m + BLOCK_FRAMES - 1) / BLOCK_FRAMES;
+        float[] up = new float[(blocks + 1) * dimension];
+        float[] low = new float[(blocks + 1) * dimension];
+        Arrays.fill(up, Float.NEGATIVE_INFINITY);
+        Arrays.fill(low, Float.POSITIVE_INFINITY);
+        boolean[] silentBlocks = new boolean[blocks];
+        float[][] basis = new float[dimension][];
+        float[] direction = new float[dimension];
+        for (int k = 0; k < dimension; k++) {
+            direction[k] = 1.0f;
+            basis[k] = frames.newQuery();
+            frames.prepareQuery(direction, 0, 1.0f, basis[k]);
+            direction[k] = 0.0f;
+        }
+        for (int j = 0; j < m; j++) {
+            int block = j / BLOCK_FRAMES;
+            if (frames.norm(j) < NORM_EPSILON) {
+                silentBlocks[block] = true;
+                hasSilence[t] = true;
+                continue;
+            }
+            int envelope = (block + 1) * dimension;
+            for (int k = 0; k < dimension; k++) {
+                float value = frames.dot(j, basis[k]);
+                up[k] = Math.max(up[k], value);
+                low[k] = Math.min(low[k], value);
+                up[envelope + k] = Math.max(up[envelope + k], value);
+                low[envelope + k] = Math.min(low[envelope + k], value);
+            }
+        }
+        upper[t] = up;
+        lower[t] = low;
+        blockHasSilence[t] = silentBlocks;
+    }
+}
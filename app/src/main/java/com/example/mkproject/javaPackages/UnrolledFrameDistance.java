@@ -0,0 +1,40 @@
+package com.example.mkproject.javaPackages;
+
+// Portable kernel: each 16-lane block is written out by hand into four independent accumulators, which breaks the
+// add dependency chain of the scalar loop and needs no loop unrolling from the compiler (ART does very little).
+// The default on Android.
+final class UnrolledFrameDistance implements FrameDistance {
+    static final String NAME = "unrolled";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float s0 = 0.0f, s1 = 0.0f, s2 = 0.0f, s3 = 0.0f;
+        for (int k = 0; k < length; k += LANES) {
+            int i = aOffset + k;
+            int j = bOffset + k;
+            s0 += a[i] * b[j] + a[i + 4] * b[j + 4] + a[i + 8] * b[j + 8] + a[i + 12] * b[j + 12];
+            s1 += a[i + 1] * b[j + 1] + a[i + 5] * b[j + 5] + a[i + 9] * b[j + 9] + a[i + 13] * b[j + 13];
+            s2 += a[i + 2] * b[j + 2] + a[i + 6] * b[j + 6] + a[i + 10] * b[j + 10] + a[i + 14] * b[j + 14];
+            s3 += a[i + 3] * b[j + 3] + a[i + 7] * b[j + 7] + a[i + 11] * b[j + 11] + a[i + 15] * b[j + 15];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public float dot(float[] q, byte[] c, int offset, int length) {
+        float s0 = 0.0f, s1 = 0.0f, s2 = 0.0f, s3 = 0.0f;
+        for (int k = 0; k < length; k += LANES) {
+            int j = offset + k;
+            s0 += q[k] * c[j] + q[k + 4] * c[j + 4] + q[k + 8] * c[j + 8] + q[k + 12] * c[j + 12];
+            s1 += q[k + 1] * c[j + 1] + q[k + 5] * c[j + 5] + q[k + 9] * c[j + 9] + q[k + 13] * c[j + 13];
+            s2 += q[k + 2] * c[j + 2] + q[k + 6] * c[j + 6] + q[k + 10] * c[j + 10] + q[k + 14] * c[j + 14];
+            s3 += q[k + 3] * c[j + 3] + q[k + 7] * c[j + 7] + q[k + 11] * c[j + 11] + q[k + 15] * c[j + 15];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.mkproject.javaPackages;
+
+// Tuning of the streaming VoiceActivityDetector, independent of the analysis framing (the fixed per-frame thresholds
+// live in AnalysisConfig). Speech starts once a frame's energy is onsetMarginDb above the tracked noise floor and
+// ends when it has stayed hysteresisDb below that level for hangoverSeconds. The floor is the quietest frame of
+// the last noiseWindowSeconds, so it follows a change of room noise within that time.
+// Endpointing latency is hangoverSeconds plus RepetitionDetector's closing silence.
+public final class VadConfig {
+    public static final VadConfig DEFAULT = new VadConfig(9.0f, 4.0f, 0.064, 4.0);
+
+    private final float onsetMarginDb;
+    private final float hysteresisDb;
+    private final double hangoverSeconds;
+    private final double noiseWindowSeconds;
+
+    public VadConfig(float onsetMarginDb, float hysteresisDb, double hangoverSeconds, double noiseWindowSeconds) {
+        if (onsetMarginDb < 0.0f || hysteresisDb < 0.0f || hangoverSeconds < 0.0 || noiseWindowSeconds <= 0.0) {
+            throw new IllegalArgumentException("Invalid VAD config: onset=" + onsetMarginDb + " dB, hysteresis="
+                    + hysteresisDb + " dB, hangover=" + hangoverSeconds + " s, noise window=" + noiseWindowSeconds + " s");
+        }
+        this.onsetMarginDb = onsetMarginDb;
+        this.hysteresisDb = hysteresisDb;
+        this.hangoverSeconds = hangoverSeconds;
+        this.noiseWindowSeconds = noiseWindowSeconds;
+    }
+
+    public float getOnsetMarginDb() {
+        return onsetMarginDb;
+    }
+
+    public float getHysteresisDb() {
+        return hysteresisDb;
+    }
+
+    public double getHangoverSeconds() {
+        return hangoverSeconds;
+    }
+
+    public double getNoiseWindowSeconds() {
+        return noiseWindowSeconds;
+    }
+
+    // Same settings with another hangover, e.g. to trade endpointing latency against split utterances
+    public VadConfig withHangoverSeconds(double seconds) {
+        return new VadConfig(onsetMarginDb, hysteresisDb, seconds, noiseWindowSeconds);
+    }
+
+    @Override
+    public String toString() {
+        return "onset +" + onsetMarginDb + " dB, hysteresis " + hysteresisDb + " dB, hangover " + hangoverSeconds
+                + " s, noise window " + noiseWindowSeconds + " s";
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.mkproject.javaPackages;
+
+import java.util.Arrays;
+
+// Stateful voice activity detection for one analysis-rate stream, replacing the per-frame AudioMatcher.isSilentFrame
+// on the streaming paths. Energy and zero crossings are summed per hop as the decimated samples arrive, so a frame's
+// values come from its hops' sums instead of a second pass over the frame; C0 comes from the extractor.
+//   SILENCE -> SPEECH when the frame energy clears max(absolute floor, noise floor + onset margin) and C0 and ZCR
+//              pass AnalysisConfig's fixed checks;
+//   SPEECH  -> SILENCE once the energy (or C0) has stayed below that level minus the hysteresis for the hangover.
+// The noise floor is the quietest frame over the last noise window (minimum statistics over sub-windows), seeded
+// with the absolute floor: a loud room is learnt within one window instead of being taken for speech for good.
+// Not thread-safe; does not allocate after construction.
+final class VoiceActivityDetector {
+    private static final int NOISE_SUBWINDOWS = 8;
+    private static final double ENERGY_EPSILON = 1e-12;
+
+    private final int hopSize;
+    private final int frameSize;
+    private final float c0Threshold;
+    private final float zcrThreshold;
+    private final float absoluteDb; // AnalysisConfig energy threshold in dB
+    private final float onsetMarginDb;
+    private final float hysteresisDb;
+    private final int hangoverFrames;
+    private final int subwindowFrames;
+
+    // Sums of the last frameSize / hopSize completed hops, oldest at hopSlot
+    private final double[] hopEnergy;
+    private final int[] hopCrossings; // Including a crossing into the hop's first sample...
+    private final boolean[] hopLeadingCrossing; // ...which is outside a frame starting with that hop
+    private int hopSlot = 0;
+    private int completedHops = 0; // Saturates at frameSize / hopSize
+    private double energy = 0.0; // Hop being filled
+    private int crossings = 0;
+    private boolean leadingCrossing = false;
+    private int hopFill = 0;
+    private float previousSample = 0.0f;
+    private boolean hasPrevious = false;
+    private float frameEnergy = 0.0f; // Frame ending with the last completed hop
+    private float frameZcr = 0.0f;
+
+    private final float[] subwindowMinima; // dB
+    private int subwindowSlot = 0;
+    private int subwindowCount = 0;
+    private float subwindowMinimum = Float.POSITIVE_INFINITY;
+
+    private boolean speaking = false;
+    private int hangoverLeft = 0;
+
+    VoiceActivityDetector(AnalysisConfig config, VadConfig vad) {
+        this.hopSize = config.getHopSize();
+        this.frameSize = config.getFrameSize();
+        this.c0Threshold = config.getC0SilenceThreshold();
+        this.zcrThreshold = config.getZcrThreshold();
+        this.absoluteDb = toDb(config.getEnergyThreshold());
+        this.onsetMarginDb = vad.getOnsetMarginDb();
+        this.hysteresisDb = vad.getHysteresisDb();
+        this.hangoverFrames = (int) Math.round(vad.getHangoverSeconds() / config.getSecondsPerFrame());
+        this.subwindowFrames = Math.max(1, config.framesForSeconds(vad.getNoiseWindowSeconds()) / NOISE_SUBWINDOWS);
+        int hopsPerFrame = frameSize / hopSize;
+        this.hopEnergy = new double[hopsPerFrame];
+        this.hopCrossings = new int[hopsPerFrame];
+        this.hopLeadingCrossing = new boolean[hopsPerFrame];
+        this.subwindowMinima = new float[NOISE_SUBWINDOWS];
+        reset();
+    }
+
+    // Analysis-rate samples in stream order, split anywhere. Call before handing the same samples to the extractor.
+    void addSamples(float[] samples, int offset, int length) {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            float sample = samples[i];
+            energy += sample * sample;
+            if (hasPrevious && (previousSample >= 0) != (sample >= 0)) {
+                crossings++;
+                if (hopFill == 0) leadingCrossing = true;
+            }
+            previousSample = sample;
+            hasPrevious = true;
+            if (++hopFill == hopSize) completeHop();
+        }
+    }
+
+    // Decision for the frame the extractor has just emitted, i.e. the one ending with the last completed hop
+    boolean isSilent(float c0) {
+        float energyDb = toDb(frameEnergy);
+        float floorDb = subwindowMinimum;
+        for (float minimum : subwindowMinima) {
+            floorDb = Math.min(floorDb, minimum);
+        }
+        float onsetDb = Math.max(absoluteDb, floorDb + onsetMarginDb);
+        if (speaking) {
+            if (energyDb >= onsetDb - hysteresisDb && c0 >= c0Threshold) {
+                hangoverLeft = hangoverFrames;
+            } else if (hangoverLeft > 0) {
+                hangoverLeft--;
+            } else {
+                speaking = false;
+            }
+        } else if (energyDb >= onsetDb && c0 >= c0Threshold && frameZcr <= zcrThreshold) {
+            speaking = true;
+            hangoverLeft = hangoverFrames;
+        }
+        trackNoiseFloor(energyDb);
+        return !speaking;
+    }
+
+    void reset() {
+        hopSlot = 0;
+        completedHops = 0;
+        energy = 0.0;
+        crossings = 0;
+        leadingCrossing = false;
+        hopFill = 0;
+        hasPrevious = false;
+        frameEnergy = 0.0f;
+        frameZcr = 0.0f;
+        Arrays.fill(subwindowMinima, absoluteDb);
+        subwindowSlot = 0;
+        subwindowCount = 0;
+        subwindowMinimum = Float.POSITIVE_INFINITY;
+        speaking = false;
+        hangoverLeft = 0;
+    }
+
+    private void completeHop() {
+        hopEnergy[hopSlot] = energy;
+        hopCrossings[hopSlot] = crossings;
+        hopLeadingCrossing[hopSlot] = leadingCrossing;
+        hopSlot = (hopSlot + 1) % hopEnergy.length;
+        energy = 0.0;
+        crossings = 0;
+        leadingCrossing = false;
+        hopFill = 0;
+        if (completedHops < hopEnergy.length && ++completedHops < hopEnergy.length) return; // No full frame yet
+        // hopSlot now holds the oldest hop of the frame
+        double sum = 0.0;
+        int count = 0;
+        for (int h = 0; h < hopEnergy.length; h++) {
+            sum += hopEnergy[h];
+            count += hopCrossings[h];
+        }
+        if (hopLeadingCrossing[hopSlot]) count--;
+        frameEnergy = (float) (sum / frameSize);
+        frameZcr = (float) count / frameSize;
+    }
+
+    private void trackNoiseFloor(float energyDb) {
+        subwindowMinimum = Math.min(subwindowMinimum, energyDb);
+        if (++subwindowCount < subwindowFrames) return;
+        subwindowMinima[subwindowSlot] = subwindowMinimum;
+        subwindowSlot = (subwindowSlot + 1) % NOISE_SUBWINDOWS;
+        subwindowCount = 0;
+        subwindowMinimum = Float.POSITIVE_INFINITY;
+    }
+
+    private static float toDb(double power) {
+        return (float) (10.0 * Math.log10(power + ENERGY_EPSILON));
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.mkproject.javaPackages;
+
+import android.util.Log;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+// Loads stored mantra recordings. Kept free of Context so it also runs on a plain JVM (benchmarks, offline tools).
+// The header is parsed by walking the RIFF chunks, so LIST/fact/etc. chunks before or after "data" are skipped
+// rather than rejected. Samples are converted straight from the mapped file into the caller's float buffer;
+// no byte[] or short[] copy of the data is made.
+final class WavReader {
+    private static final String TAG = "WavReader";
+    private static final int RIFF = 0x46464952; // "RIFF"
+    private static final int WAVE = 0x45564157; // "WAVE"
+    private static final int FMT = 0x20746d66; // "fmt "
+    private static final int DATA = 0x61746164; // "data"
+    private static final int FORMAT_PCM = 1;
+    private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+    private static final int FMT_PROBE_BYTES = 64; // Largest fmt chunk body we look into (WAVE_FORMAT_EXTENSIBLE is 40)
+    private static final float SCALE = 1.0f / 32768.0f;
+
+    private WavReader() {
+    }
+
+    // Where the samples are and what they look like
+    static final class Info {
+        final int channels;
+        final int sampleRate;
+        final int bitsPerSample;
+        final long dataOffset;
+        final long dataBytes; // Clamped to the file: an unpatched or oversized data size means "to the end"
+
+        private Info(int channels, int sampleRate, int bitsPerSample, long dataOffset, long dataBytes) {
+            this.channels = channels;
+            this.sampleRate = sampleRate;
+            this.bitsPerSample = bitsPerSample;
+            this.dataOffset = dataOffset;
+            this.dataBytes = dataBytes;
+        }
+
+        long sampleCount() {
+            return dataBytes / 2;
+        }
+    }
+
+    // Samples of a mono 16-bit PCM WAV normalised to [-1, 1].
+    // Null (and logged) if the file is missing, in another format or at another sample rate.
+    static float[] read(File file, int expectedSampleRate) {
+        if (file == null || !file.exists()) {
+            Log.e(TAG, "read: File is null or does not exist: " + (file != null ? file.getPath() : "null"));
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            Info info = parse(channel, file, expectedSampleRate);
+            if (info.sampleCount() > Integer.MAX_VALUE) {
+                throw new IOException("WAV data too large to load at once: " + file.getName());
+            }
+            float[] samples = new float[(int) info.sampleCount()];
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, info.dataOffset, info.dataBytes);
+            convert(mapped.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer(), samples, 0, samples.length);
+            return samples;
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading WAV file: " + file.getPath(), e);
+            return null;
+        }
+    }
+
+    // Walks the RIFF chunks up to "data" and checks the format. Throws with a readable reason if unusable.
+    static Info parse(FileChannel channel, File file, int expectedSampleRate) throws IOException {
+        long fileSize = channel.size();
+        ByteBuffer buffer = ByteBuffer.allocate(FMT_PROBE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        if (readAt(channel, buffer, 0, 12) < 12 || buffer.getInt(0) != RIFF || buffer.getInt(8) != WAVE) {
+            throw new IOException("Not a RIFF/WAVE file: " + file.getName());
+        }
+
+        int channels = -1;
+        int sampleRate = -1;
+        int bitsPerSample = -1;
+        long position = 12;
+        while (position + 8 <= fileSize) {
+            readAt(channel, buffer, position, 8);
+            int id = buffer.getInt(0);
+            long size = buffer.getInt(4) & 0xFFFFFFFFL;
+            long body = position + 8;
+            if (id == FMT) {
+                if (size < 16 || readAt(channel, buffer, body, (int) Math.min(size, FMT_PROBE_BYTES)) < 16) {
+                    throw new IOException("Truncated fmt chunk in " + file.getName());
+                }
+                int format = buffer.getShort(0) & 0xFFFF;
+                channels = buffer.getShort(2);
+                sampleRate = buffer.getInt(4);
+                bitsPerSample = buffer.getShort(14);
+                if (format == FORMAT_EXTENSIBLE && size >= 26) {
+                    format = buffer.getShort(24) & 0xFFFF; // First two bytes of the sub-format GUID
+                }
+                if (format != FORMAT_PCM) throw new IOException("Not PCM (format " + format + "): " + file.getName());
+            } else if (id == DATA) {
+                if (channels < 0) throw new IOException("data chunk before fmt chunk in " + file.getName());
+                if (channels != 1 || bitsPerSample != 16 || sampleRate != expectedSampleRate) {
+                    throw new IOException("Unsupported WAV format for " + file.getName() + ": channels=" + channels
+                            + " (exp 1), bitsPerSample=" + bitsPerSample + " (exp 16), sampleRate=" + sampleRate
+                            + " (exp " + expectedSampleRate + ")");
+                }
+                long available = fileSize - body;
+                long dataBytes = (size == 0 || size > available) ? available : size;
+                return new Info(channels, sampleRate, bitsPerSample, body, dataBytes & ~1L);
+            }
+            position = body + size + (size & 1); // Chunks are padded to even sizes
+        }
+        throw new IOException("No data chunk found in " + file.getName());
+    }
+
+    // Reads up to length bytes at a file offset into the start of buffer; returns how many arrived
+    private static int readAt(FileChannel channel, ByteBuffer buffer, long offset, int length) throws IOException {
+        buffer.clear().limit(length);
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, offset + buffer.position());
+            if (n < 0) break;
+        }
+        return buffer.position();
+    }
+
+    private static void convert(ShortBuffer source, float[] dst, int offset, int count) {
+        for (int i = 0; i < count; i++) {
+            dst[offset + i] = source.get() * SCALE;
+        }
+    }
+
+    // Sequential reader for recordings too long to load at once: the data chunk is mapped one window at a time and
+    // samples are converted straight into the caller's buffer.
+    static final class PcmStream implements Closeable {
+        private static final long WINDOW_BYTES = 4L * 1024 * 1024;
+
+        private final RandomAccessFile raf;
+        private final FileChannel channel;
+        private final Info info;
+        private ShortBuffer window;
+        private long windowEnd; // File offset just past the current window
+        private long samplesRead = 0;
+
+        private PcmStream(RandomAccessFile raf, Info info) {
+            this.raf = raf;
+            this.channel = raf.getChannel();
+            this.info = info;
+            this.windowEnd = info.dataOffset;
+        }
+
+        static PcmStream open(File file, int expectedSampleRate) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                return new PcmStream(raf, parse(raf.getChannel(), file, expectedSampleRate));
+            } catch (IOException e) {
+                raf.close();
+                throw e;
+            }
+        }
+
+        long totalSamples() {
+            return info.sampleCount();
+        }
+
+        // Fills up to len samples normalised to [-1, 1]; returns how many were written, -1 at the end of the data
+        int read(float[] dst, int offset, int len) throws IOException {
+            int written = 0;
+            while (written < len && samplesRead < info.sampleCount()) {
+                if (window == null || !window.hasRemaining()) {
+                    long dataEnd = info.dataOffset + info.dataBytes;
+                    long size = Math.min(WINDOW_BYTES, dataEnd - windowEnd);
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, windowEnd, size).order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+                    windowEnd += size;
+                }
+                int count = Math.min(len - written, window.remaining());
+                convert(window, dst, offset + written, count);
+                written += count;
+                samplesRead += count;
+            }
+            return written > 0 ? written : -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            window = null;
+            raf.close();
+        }
+    }
+}
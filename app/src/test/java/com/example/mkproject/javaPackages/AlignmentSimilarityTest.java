@@ -0,0 +1,101 @@
+package com.example.mkproject.javaPackages;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+// The rolling-row, banded, early-abandoning DTW must still be the DTW it replaced: the full-matrix version with a full
+// band and no threshold, and the same value whenever the threshold is cleared
+public class AlignmentSimilarityTest {
+    private static final float TOLERANCE = 1e-5f;
+
+    @Test
+    public void fullBandMatchesTheFullMatrixDtw() {
+        Random random = new Random(61);
+        for (int pair = 0; pair < 60; pair++) {
+            FeatureMatrix mantra = MfccSignals.mantra(random, 5 + random.nextInt(120));
+            FeatureMatrix live = pair % 3 == 0
+                    ? MfccSignals.mantra(random, 5 + random.nextInt(120)) // Unrelated
+                    : MfccSignals.take(random, mantra, 0.05f + 0.1f * (pair % 5));
+            float expected = fullMatrixDtw(live, mantra);
+            float actual = AudioMatcher.alignmentSimilarity(live, mantra, AudioMatcher.FULL_BAND_PERCENT, 0.0f);
+            assertEquals("pair " + pair + ", " + live.frameCount() + " x " + mantra.frameCount(), expected, actual, TOLERANCE);
+        }
+    }
+
+    @Test
+    public void singleFramesAndSilentRows() {
+        FeatureMatrix one = new FeatureMatrix(new float[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13}, 1, AudioMatcher.MFCC_SIZE);
+        FeatureMatrix silent = new FeatureMatrix(new float[2 * AudioMatcher.MFCC_SIZE], 2, AudioMatcher.MFCC_SIZE);
+        assertEquals(1.0f, AudioMatcher.alignmentSimilarity(one, one, AudioMatcher.FULL_BAND_PERCENT, 0.0f), TOLERANCE);
+        assertEquals(1.0f, AudioMatcher.alignmentSimilarity(silent, silent, AudioMatcher.FULL_BAND_PERCENT, 0.0f), TOLERANCE);
+        assertEquals(fullMatrixDtw(one, silent),
+                AudioMatcher.alignmentSimilarity(one, silent, AudioMatcher.FULL_BAND_PERCENT, 0.0f), TOLERANCE);
+    }
+
+    @Test
+    public void hopelessPairsAbandonBelowTheThreshold() {
+        Random random = new Random(62);
+        for (int pair = 0; pair < 30; pair++) {
+            FeatureMatrix mantra = MfccSignals.mantra(random, 30 + random.nextInt(80));
+            FeatureMatrix other = MfccSignals.mantra(random, 30 + random.nextInt(80));
+            float full = AudioMatcher.alignmentSimilarity(other, mantra, AudioMatcher.FULL_BAND_PERCENT, 0.0f);
+            String where = "pair " + pair + " at " + full;
+            assertTrue(where + " is not hopeless", full < 0.8f && full > 0.0f);
+            // Whether or not a row exceeds the budget before the end, the result stays below the threshold
+            for (float threshold : new float[] {full + 0.01f, full + 0.1f}) {
+                float result = AudioMatcher.alignmentSimilarity(other, mantra, AudioMatcher.FULL_BAND_PERCENT, threshold);
+                assertTrue(where + ", threshold " + threshold + ": " + result, result < threshold);
+            }
+            // A budget this small is spent within the first rows: abandoned, which reports 0
+            assertEquals(where, 0.0f, AudioMatcher.alignmentSimilarity(other, mantra, AudioMatcher.FULL_BAND_PERCENT, 0.95f), 0.0f);
+        }
+    }
+
+    @Test
+    public void clearedThresholdsGiveTheUnabandonedValue() {
+        Random random = new Random(63);
+        float[] bands = {10.0f, 25.0f, AudioMatcher.FULL_BAND_PERCENT};
+        for (int pair = 0; pair < 30; pair++) {
+            FeatureMatrix mantra = MfccSignals.mantra(random, 30 + random.nextInt(80));
+            FeatureMatrix take = MfccSignals.take(random, mantra, 0.1f);
+            for (float band : bands) {
+                float exact = AudioMatcher.alignmentSimilarity(take, mantra, band, 0.0f);
+                String where = "pair " + pair + ", band " + band;
+                for (float threshold : new float[] {exact * 0.5f, exact - 0.01f, exact - 1e-4f}) {
+                    assertEquals(where + ", threshold " + threshold, exact,
+                            AudioMatcher.alignmentSimilarity(take, mantra, band, threshold), 0.0f);
+                }
+                // Just out of reach: whatever comes back is below the threshold
+                float missed = AudioMatcher.alignmentSimilarity(take, mantra, band, exact + 0.01f);
+                assertTrue(where + ": " + missed, missed < exact + 0.01f);
+            }
+        }
+    }
+
+    // computeDTW before the band and early abandoning: the whole (n + 1) x (m + 1) matrix
+    private static float fullMatrixDtw(FeatureMatrix seq1, FeatureMatrix seq2) {
+        int rows = seq1.frameCount() + 1;
+        int cols = seq2.frameCount() + 1;
+        float[][] dp = new float[rows][cols];
+        for (float[] row : dp) Arrays.fill(row, Float.POSITIVE_INFINITY);
+        dp[0][0] = 0.0f;
+        for (int i = 1; i < rows; i++) {
+            for (int j = 1; j < cols; j++) {
+                float cost = 1.0f - AudioMatcher.cosineSimilarity(row(seq1, i - 1), row(seq2, j - 1));
+                dp[i][j] = cost + Math.min(Math.min(dp[i - 1][j], dp[i][j - 1]), dp[i - 1][j - 1]);
+            }
+        }
+        float similarity = 1.0f - dp[rows - 1][cols - 1] / (rows - 1 + cols - 1);
+        return Math.max(0.0f, Math.min(1.0f, similarity));
+    }
+
+    private static float[] row(FeatureMatrix matrix, int frame) {
+        float[] row = new float[matrix.dimension()];
+        for (int k = 0; k < row.length; k++) row[k] = matrix.get(frame, k);
+        return row;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.mkproject.javaPackages;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+import org.junit.Test;
+
+// The template compiled while recording must be the one loadSavedMantras would compile from the finished WAV, however
+// AudioRecord happens to split the PCM into reads
+public class EnrollmentWriterTest {
+
+    @Test
+    public void matchesCompileOnTheFinishedFile() throws IOException {
+        Random random = new Random(41);
+        short[] pcm = speech(random, 2.5);
+        for (int maxRead : new int[] {2, 1000, 4096, 40_000}) {
+            File file = target();
+            EnrollmentWriter writer = new EnrollmentWriter(file);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(maxRead * 2).order(ByteOrder.LITTLE_ENDIAN);
+            Random reads = new Random(maxRead);
+            for (int offset = 0; offset < pcm.length; ) {
+                int count = Math.min(pcm.length - offset, 1 + reads.nextInt(maxRead));
+                buffer.clear();
+                for (int i = 0; i < count; i++) buffer.putShort(pcm[offset + i]);
+                buffer.flip();
+                writer.write(buffer);
+                assertFalse(buffer.hasRemaining());
+                offset += count;
+            }
+            assertEquals(pcm.length, writer.getSampleCount());
+            CompiledTemplate written = writer.finish("mantra");
+            assertNotNull(written);
+            assertTrue(file.isFile());
+            assertFalse("Temp file left behind", writer.getTempFile().exists());
+
+            float[] audio = WavReader.read(file, AudioMatcher.SAMPLE_RATE);
+            assertNotNull("Finished file is not a readable WAV", audio);
+            assertEquals(pcm.length, audio.length);
+            CompiledTemplate compiled = CompiledTemplate.compile("mantra", audio);
+            String where = "reads up to " + maxRead + " samples";
+            assertTrue(where + ": nothing trimmed", compiled.getFrameCount() < compiled.getUntrimmedFrameCount());
+            assertTrue(where + ": no speech", compiled.getFrameCount() > 0);
+            assertEquals(where, compiled.getUntrimmedFrameCount(), written.getUntrimmedFrameCount());
+            assertEquals(where, compiled.getFrameCount(), written.getFrameCount());
+            assertEquals(where, compiled.getSampleCount(), written.getSampleCount());
+            assertEquals(where, compiled.getEncoding(), written.getEncoding());
+            assertArrayEquals(where, compiled.getFeatures().data(), written.getFeatures().data(), 0.0f);
+        }
+    }
+
+    @Test
+    public void emptyRecordingLeavesNoFile() throws IOException {
+        File file = target();
+        EnrollmentWriter writer = new EnrollmentWriter(file);
+        assertTrue(writer.getTempFile().isFile());
+        assertNull(writer.finish("mantra"));
+        assertFalse(file.exists());
+        assertFalse(writer.getTempFile().exists());
+    }
+
+    @Test
+    public void abortLeavesNoFile() throws IOException {
+        File file = target();
+        EnrollmentWriter writer = new EnrollmentWriter(file);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(2000).order(ByteOrder.LITTLE_ENDIAN);
+        for (short sample : speech(new Random(42), 0.02)) buffer.putShort(sample);
+        buffer.flip();
+        writer.write(buffer);
+        writer.abort();
+        assertFalse(file.exists());
+        assertFalse(writer.getTempFile().exists());
+    }
+
+    // A voiced stretch between two silent ones, so trimming has something to drop
+    private static short[] speech(Random random, double seconds) {
+        int rate = AudioMatcher.SAMPLE_RATE;
+        short[] pcm = new short[(int) (rate * seconds)];
+        double phase = 0.0;
+        for (int i = 0; i < pcm.length; i++) {
+            double t = (double) i / pcm.length;
+            double sample = 0.0005 * random.nextGaussian();
+            if (t > 0.25 && t < 0.75) {
+                phase += 2.0 * Math.PI * (150.0 + 40.0 * Math.sin(2.0 * Math.PI * i / rate)) / rate;
+                for (int h = 1; h <= 6; h++) sample += 0.3 * Math.sin(h * phase) / h;
+            }
+            pcm[i] = (short) Math.max(-32768, Math.min(32767, Math.round(sample * 32768.0)));
+        }
+        return pcm;
+    }
+
+    private static File target() throws IOException {
+        File file = File.createTempFile("enrollment", ".wav");
+        file.deleteOnExit();
+        if (!file.delete()) throw new IOException("Cannot prepare " + file);
+        new File(file.getPath() + EnrollmentWriter.TEMP_SUFFIX).deleteOnExit();
+        return file;
+    }
+}
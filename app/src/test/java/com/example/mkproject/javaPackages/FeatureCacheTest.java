@@ -0,0 +1,190 @@
+package com.example.mkproject.javaPackages;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+// A .mfcc file must give back exactly the template that was stored, and only while its WAV is the one it was built from
+public class FeatureCacheTest {
+    private static final long MODIFIED = 1_600_000_000_000L;
+
+    @Test
+    public void roundTripKeepsTheTemplate() throws IOException {
+        File wav = wav(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        CompiledTemplate template = template(new Random(31), 40);
+        FeatureCache.store(wav, template);
+
+        CompiledTemplate loaded = FeatureCache.load("renamed", wav);
+        assertNotNull(loaded);
+        assertEquals("renamed", loaded.getName());
+        assertEquals(AudioMatcher.TEMPLATE_ENCODING, loaded.getEncoding());
+        assertEquals(template.getUntrimmedFrameCount(), loaded.getUntrimmedFrameCount());
+        assertEquals(template.getSampleCount(), loaded.getSampleCount());
+        assertEquals(template.getSampleRate(), loaded.getSampleRate());
+        FeatureMatrix expected = template.encode(AudioMatcher.TEMPLATE_ENCODING).getFeatures();
+        FeatureMatrix actual = loaded.getFeatures();
+        assertEquals(expected.frameCount(), actual.frameCount());
+        assertArrayEquals(expected.data(), actual.data(), 0.0f);
+        assertFalse("Temp file left behind", new File(FeatureCache.cacheFileFor(wav).getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void emptyTemplateRoundTrips() throws IOException {
+        File wav = wav(new byte[] {1, 2});
+        FeatureCache.store(wav, template(new Random(32), 0));
+        CompiledTemplate loaded = FeatureCache.load("empty", wav);
+        assertNotNull(loaded);
+        assertTrue(loaded.isEmpty());
+    }
+
+    @Test
+    public void changedWavInvalidates() throws IOException {
+        File wav = wav(new byte[] {1, 2, 3, 4});
+        FeatureCache.store(wav, template(new Random(33), 20));
+
+        // Touched but unchanged: the CRC still matches, and the new mtime is recorded so the next load skips the CRC
+        assertTrue(wav.setLastModified(MODIFIED + 5_000));
+        assertEquals(MODIFIED, storedModified(wav));
+        assertNotNull(FeatureCache.load("m", wav));
+        assertEquals(wav.lastModified(), storedModified(wav));
+        assertNotNull(FeatureCache.load("m", wav));
+
+        // Same size, new content and mtime
+        Files.write(wav.toPath(), new byte[] {1, 2, 3, 5});
+        assertTrue(wav.setLastModified(MODIFIED + 10_000));
+        assertNull(FeatureCache.load("m", wav));
+
+        // Other size
+        FeatureCache.store(wav, template(new Random(33), 20));
+        Files.write(wav.toPath(), new byte[] {1, 2, 3, 5, 0, 0});
+        assertTrue(wav.setLastModified(MODIFIED + 10_000));
+        assertNull(FeatureCache.load("m", wav));
+
+        assertTrue(wav.delete());
+        assertNull(FeatureCache.load("m", wav));
+    }
+
+    @Test
+    public void corruptCachesAreIgnored() throws IOException {
+        File wav = wav(new byte[] {9, 8, 7, 6});
+        File cache = FeatureCache.cacheFileFor(wav);
+        FeatureCache.store(wav, template(new Random(34), 30));
+        long length = cache.length();
+
+        try (RandomAccessFile raf = new RandomAccessFile(cache, "rw")) {
+            raf.setLength(length - 1);
+        }
+        assertNull("Truncated", FeatureCache.load("m", wav));
+
+        FeatureCache.store(wav, template(new Random(34), 30));
+        try (RandomAccessFile raf = new RandomAccessFile(cache, "rw")) {
+            raf.setLength(length + 4);
+        }
+        assertNull("Trailing bytes", FeatureCache.load("m", wav));
+
+        FeatureCache.store(wav, template(new Random(34), 30));
+        try (RandomAccessFile raf = new RandomAccessFile(cache, "rw")) {
+            raf.writeInt(0);
+        }
+        assertNull("Bad magic", FeatureCache.load("m", wav));
+
+        Files.write(cache.toPath(), new byte[10]);
+        assertNull("Shorter than the header", FeatureCache.load("m", wav));
+    }
+
+    @Test
+    public void deleteRemovesTheCache() throws IOException {
+        File wav = wav(new byte[] {1});
+        FeatureCache.store(wav, template(new Random(35), 10));
+        assertTrue(FeatureCache.cacheFileFor(wav).isFile());
+        FeatureCache.delete(wav);
+        assertFalse(FeatureCache.cacheFileFor(wav).exists());
+        assertNull(FeatureCache.load("m", wav));
+    }
+
+    // An averaged template is only valid for the takes it was averaged from: adding, removing or replacing one
+    // invalidates it, moving them under a renamed mantra does not
+    @Test
+    public void sourcesKeyTracksTheFurtherTakes() throws IOException {
+        assertEquals(0L, FeatureCache.sourcesKey(Collections.<File>emptyList()));
+        File directory = Files.createTempDirectory("featurecache").toFile();
+        directory.deleteOnExit();
+        List<File> takes = new ArrayList<>();
+        takes.add(take(directory, "2.wav", new byte[] {1, 2, 3, 4}));
+        takes.add(take(directory, "3.wav", new byte[] {5, 6, 7, 8}));
+        long key = FeatureCache.sourcesKey(takes);
+        assertTrue("Never 0, which means no further sources", key != 0L);
+
+        File wav = wav(new byte[] {1, 2, 3});
+        FeatureCache.store(wav, template(new Random(36), 25), key);
+        assertNotNull(FeatureCache.load("m", wav, key));
+        assertNull("Stored for takes, loaded without", FeatureCache.load("m", wav));
+
+        takes.add(take(directory, "4.wav", new byte[] {9}));
+        assertNull("Take added", FeatureCache.load("m", wav, FeatureCache.sourcesKey(takes)));
+        assertTrue(takes.remove(2).delete());
+        assertNotNull("Added take deleted again", FeatureCache.load("m", wav, FeatureCache.sourcesKey(takes)));
+        assertNull("Take removed", FeatureCache.load("m", wav, FeatureCache.sourcesKey(takes.subList(0, 1))));
+
+        Files.write(takes.get(1).toPath(), new byte[] {5, 6, 7, 9});
+        assertTrue(takes.get(1).setLastModified(MODIFIED + 10_000));
+        assertNull("Take replaced", FeatureCache.load("m", wav, FeatureCache.sourcesKey(takes)));
+        assertTrue(takes.get(1).setLastModified(MODIFIED));
+        assertEquals("Keyed on name, size and mtime, not content", key, FeatureCache.sourcesKey(takes));
+
+        File renamed = new File(directory.getPath() + ".renamed");
+        renamed.deleteOnExit();
+        assertTrue(directory.renameTo(renamed));
+        List<File> moved = new ArrayList<>();
+        for (File take : takes) {
+            moved.add(new File(renamed, take.getName()));
+            moved.get(moved.size() - 1).deleteOnExit();
+        }
+        assertEquals("Takes moved with their mantra", key, FeatureCache.sourcesKey(moved));
+    }
+
+    private static File take(File directory, String name, byte[] bytes) throws IOException {
+        File take = new File(directory, name);
+        take.deleteOnExit();
+        Files.write(take.toPath(), bytes);
+        assertTrue(take.setLastModified(MODIFIED));
+        return take;
+    }
+
+    private static long storedModified(File wav) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(FeatureCache.cacheFileFor(wav), "r")) {
+            raf.seek(FeatureCache.SOURCE_MODIFIED_OFFSET);
+            return Long.reverseBytes(raf.readLong()); // Little endian
+        }
+    }
+
+    static CompiledTemplate template(Random random, int frames) {
+        FeatureMatrix rows = frames > 0
+                ? MfccSignals.mantra(random, frames)
+                : new FeatureMatrix(new float[0], 0, AudioMatcher.MFCC_SIZE);
+        return new CompiledTemplate("m", rows, frames + 7, 48_000, AudioMatcher.SAMPLE_RATE);
+    }
+
+    // Only the file's size, mtime and CRC matter to the cache, so any bytes stand in for the WAV
+    static File wav(byte[] bytes) throws IOException {
+        File wav = File.createTempFile("featurecache", ".wav");
+        wav.deleteOnExit();
+        FeatureCache.cacheFileFor(wav).deleteOnExit();
+        Files.write(wav.toPath(), bytes);
+        assertTrue(wav.setLastModified(MODIFIED));
+        return wav;
+    }
+}
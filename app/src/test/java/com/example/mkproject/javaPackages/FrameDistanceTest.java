@@ -0,0 +1,158 @@
+package com.example.mkproject.javaPackages;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+// Every kernel available here (the unrolled one, and the Vector API one when the :offline classes are on the test
+// classpath) must agree with the scalar reference on the rows the matchers actually feed it: FLOAT32 unit rows,
+// FLOAT16 rows widened back to floats and INT8 codes, each padded 13 -> 16 with zeros, some of them silent
+public class FrameDistanceTest {
+    private static final int DIM = AudioMatcher.MFCC_SIZE;
+    private static final int STRIDE = FrameDistance.paddedDimension(DIM);
+    private static final float TOLERANCE = 1e-5f;
+    private static final FrameDistance SCALAR = new ScalarFrameDistance();
+
+    @Test
+    public void paddingIsWholeLanes() {
+        assertEquals(16, STRIDE);
+        assertEquals(0, FrameDistance.paddedDimension(0));
+        assertEquals(16, FrameDistance.paddedDimension(1));
+        assertEquals(16, FrameDistance.paddedDimension(16));
+        assertEquals(32, FrameDistance.paddedDimension(17));
+        List<FrameDistance> kernels = FrameDistances.available();
+        assertEquals(ScalarFrameDistance.NAME, kernels.get(0).getName());
+        assertEquals(UnrolledFrameDistance.NAME, kernels.get(1).getName());
+        assertNotNull(FrameDistances.byName(FrameDistances.get().getName()));
+    }
+
+    @Test
+    public void floatRowsMatchTheScalarKernel() {
+        Random random = new Random(71);
+        FeatureMatrix features = withSilentRows(MfccSignals.mantra(random, 64));
+        float[] unit = features.unitData();
+        float[] widened = new float[unit.length]; // What a FLOAT16 row holds once widened
+        for (int i = 0; i < unit.length; i++) {
+            widened[i] = QuantizedFrames.halfToFloat(QuantizedFrames.floatToHalf(unit[i]));
+        }
+        for (FrameDistance kernel : FrameDistances.available()) {
+            for (int trial = 0; trial < 200; trial++) {
+                float[] query = query(random, STRIDE, true);
+                int frame = random.nextInt(features.frameCount());
+                for (float[] rows : new float[][] {unit, widened}) {
+                    int offset = features.unitOffset(frame);
+                    String where = kernel.getName() + ", frame " + frame;
+                    float expected = SCALAR.dot(query, 0, rows, offset, STRIDE);
+                    assertEquals(where, expected, kernel.dot(query, 0, rows, offset, STRIDE), TOLERANCE);
+                    // The garbage in the query's padding lanes meets the row's zeros and adds nothing
+                    assertEquals(where, unpaddedDot(query, rows, offset), kernel.dot(query, 0, rows, offset, STRIDE), TOLERANCE);
+                    if (features.norm(frame) == 0.0f) {
+                        assertEquals(where + " is silent", 0.0f, kernel.dot(query, 0, rows, offset, STRIDE), 0.0f);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void int8RowsMatchTheScalarKernel() {
+        Random random = new Random(72);
+        int frames = 40;
+        byte[] codes = new byte[frames * STRIDE];
+        for (int i = 0; i < frames; i++) {
+            if (i % 7 == 3) continue; // Silent row: all codes zero
+            for (int k = 0; k < DIM; k++) codes[i * STRIDE + k] = (byte) (random.nextInt(255) - 127);
+        }
+        for (FrameDistance kernel : FrameDistances.available()) {
+            for (int trial = 0; trial < 200; trial++) {
+                float[] query = query(random, STRIDE, false);
+                int frame = random.nextInt(frames);
+                int offset = frame * STRIDE;
+                String where = kernel.getName() + ", frame " + frame;
+                float expected = SCALAR.dot(query, codes, offset, STRIDE);
+                assertEquals(where, expected, kernel.dot(query, codes, offset, STRIDE), TOLERANCE * Math.max(1.0f, Math.abs(expected)));
+                if (frame % 7 == 3) assertEquals(where + " is silent", 0.0f, kernel.dot(query, codes, offset, STRIDE), 0.0f);
+            }
+        }
+    }
+
+    @Test
+    public void rowsLongerThanOneBlock() {
+        Random random = new Random(73);
+        int length = 3 * FrameDistance.LANES;
+        float[] a = query(random, 5 * length, false);
+        float[] b = query(random, 5 * length, false);
+        byte[] codes = new byte[5 * length];
+        random.nextBytes(codes);
+        for (FrameDistance kernel : FrameDistances.available()) {
+            for (int offset = 0; offset + length <= a.length; offset += length) {
+                String where = kernel.getName() + " at " + offset;
+                assertEquals(where, SCALAR.dot(a, offset, b, 2 * length, length), kernel.dot(a, offset, b, 2 * length, length), 2 * TOLERANCE);
+                float expected = SCALAR.dot(a, codes, offset, length);
+                assertEquals(where, expected, kernel.dot(a, codes, offset, length), TOLERANCE * Math.max(1.0f, Math.abs(expected)));
+            }
+        }
+    }
+
+    // Through ReferenceFrames, i.e. the selected kernel as the matchers call it: each encoding's dot is the cosine of
+    // the live row with the template row it stores, and silent template rows score 0
+    @Test
+    public void everyEncodingGivesTheCosineOfItsRows() {
+        Random random = new Random(74);
+        FeatureMatrix features = withSilentRows(MfccSignals.mantra(random, 64));
+        FeatureMatrix live = MfccSignals.take(random, features, 0.2f);
+        for (TemplateEncoding encoding : TemplateEncoding.values()) {
+            ReferenceFrames frames = encoding.encode(features);
+            FeatureMatrix stored = frames instanceof QuantizedFrames ? ((QuantizedFrames) frames).dequantize() : features;
+            float[] query = frames.newQuery();
+            assertEquals(STRIDE, query.length);
+            for (int i = 0; i < live.frameCount(); i++) {
+                float liveNorm = live.norm(i);
+                if (liveNorm == 0.0f) continue;
+                frames.prepareQuery(live.data(), live.offset(i), 1.0f / liveNorm, query);
+                for (int j = 0; j < frames.frameCount(); j++) {
+                    String where = encoding + ", live " + i + ", template " + j;
+                    assertEquals(where, features.norm(j), frames.norm(j), 0.0f);
+                    if (frames.norm(j) == 0.0f) {
+                        assertEquals(where + " is silent", 0.0f, frames.dot(j, query), 0.0f);
+                        continue;
+                    }
+                    float expected = 0.0f;
+                    for (int k = 0; k < DIM; k++) {
+                        expected += live.get(i, k) / liveNorm * stored.get(j, k) / frames.norm(j);
+                    }
+                    assertEquals(where, expected, frames.dot(j, query), 1e-4f);
+                }
+            }
+        }
+    }
+
+    // Every fifth row all zeros, as VAD-trimmed silence leaves them
+    private static FeatureMatrix withSilentRows(FeatureMatrix features) {
+        float[] data = features.data().clone();
+        for (int i = 0; i < features.frameCount(); i += 5) {
+            Arrays.fill(data, features.offset(i), features.offset(i) + DIM, 0.0f);
+        }
+        return new FeatureMatrix(data, features.frameCount(), DIM);
+    }
+
+    // Unit-scale values; with dirtyPadding the lanes past DIM of each block hold garbage instead of zeros
+    private static float[] query(Random random, int length, boolean dirtyPadding) {
+        float[] query = new float[length];
+        for (int k = 0; k < length; k++) {
+            if (k % STRIDE < DIM || dirtyPadding) query[k] = (float) random.nextGaussian() / 3.0f;
+        }
+        return query;
+    }
+
+    private static float unpaddedDot(float[] query, float[] rows, int offset) {
+        float dot = 0.0f;
+        for (int k = 0; k < DIM; k++) dot += query[k] * rows[offset + k];
+        return dot;
+    }
+}
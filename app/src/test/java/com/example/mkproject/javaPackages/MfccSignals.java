@@ -0,0 +1,46 @@
+package com.example.mkproject.javaPackages;
+
+import java.util.Random;
+
+// Random MFCC-like sequences: a mantra is a run of "phones", each a random row held for a few frames, and a take of
+// it is the same phones time-warped, with noise and the odd silent (all-zero) row
+final class MfccSignals {
+    private static final int DIM = AudioMatcher.MFCC_SIZE;
+    private static final float SILENT_FRACTION = 0.05f;
+
+    private MfccSignals() {
+    }
+
+    static FeatureMatrix mantra(Random random, int frames) {
+        float[] data = new float[frames * DIM];
+        float[] phone = new float[DIM];
+        for (int i = 0; i < frames; i++) {
+            if (i % (3 + random.nextInt(6)) == 0) {
+                phone[0] = 10.0f * (float) random.nextGaussian(); // Mean-normalised log energy
+                for (int k = 1; k < DIM; k++) phone[k] = 8.0f * (float) random.nextGaussian() / k;
+            }
+            System.arraycopy(phone, 0, data, i * DIM, DIM);
+        }
+        return new FeatureMatrix(data, frames, DIM);
+    }
+
+    // The mantra at 0.7x to 1.4x its length with a wobbling tempo; noise is relative to each coefficient's scale
+    static FeatureMatrix take(Random random, FeatureMatrix mantra, float noise) {
+        int source = mantra.frameCount();
+        int frames = Math.max(2, Math.round(source * (0.7f + 0.7f * random.nextFloat())));
+        float wobble = 0.3f * random.nextFloat();
+        double phase = 2.0 * Math.PI * random.nextDouble();
+        float[] data = new float[frames * DIM];
+        for (int i = 0; i < frames; i++) {
+            if (random.nextFloat() < SILENT_FRACTION) continue;
+            double t = (double) i / frames;
+            double warped = t + wobble * Math.sin(2.0 * Math.PI * t + phase) * t * (1.0 - t);
+            int j = Math.min(source - 1, Math.max(0, (int) (warped * source)));
+            for (int k = 0; k < DIM; k++) {
+                float scale = k == 0 ? 10.0f : 8.0f / k;
+                data[i * DIM + k] = mantra.get(j, k) + noise * scale * (float) random.nextGaussian();
+            }
+        }
+        return new FeatureMatrix(data, frames, DIM);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.mkproject.javaPackages;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+// Coarse-to-fine DTW only evaluates a corridor of the exact DTW's cells with the same costs, so it can never score
+// above the full-band alignmentSimilarity, and on long warped takes it must stay within BOUND of it
+public class MultiResolutionDtwTest {
+    // Largest loss allowed on a take of the template; unrelated pairs may lose more, far below any threshold
+    private static final float BOUND = 2e-3f;
+    private static final float UNRELATED_BOUND = 0.05f;
+    private static final float TOLERANCE = 1e-5f;
+
+    @Test
+    public void staysWithinTheBoundOfExactDtw() {
+        Random random = new Random(71);
+        for (TemplateEncoding encoding : TemplateEncoding.values()) {
+            for (int pair = 0; pair < 8; pair++) {
+                FeatureMatrix mantra = MfccSignals.mantra(random, AudioMatcher.MULTI_RESOLUTION_MIN_FRAMES + random.nextInt(900));
+                boolean unrelated = pair % 4 == 3;
+                FeatureMatrix live = unrelated
+                        ? MfccSignals.mantra(random, 400 + random.nextInt(900))
+                        : MfccSignals.take(random, mantra, 0.05f + 0.1f * (pair % 4));
+                CompiledTemplate template = new CompiledTemplate("long", mantra, mantra.frameCount(), 0,
+                        AudioMatcher.SAMPLE_RATE).encode(encoding);
+                ReferenceFrames[] levels = template.getCoarseLevels();
+                String where = encoding + ", pair " + pair + ", " + live.frameCount() + " x " + mantra.frameCount();
+                assertTrue(where + ": only " + levels.length + " coarse levels", levels.length >= 3
+                        && levels[levels.length - 1].frameCount() <= MultiResolutionDtw.COARSEST_FRAMES);
+
+                float exact = AudioMatcher.alignmentSimilarity(live, template.getFrames(), AudioMatcher.FULL_BAND_PERCENT, 0.0f);
+                float fast = MultiResolutionDtw.similarity(live, template.getFrames(), levels, AudioMatcher.FULL_BAND_PERCENT, 0.0f);
+                where += ": exact " + exact + ", fast " + fast;
+                assertTrue(where + " scores above the exact DTW", fast <= exact + TOLERANCE);
+                assertTrue(where + " loses more than the bound", exact - fast <= (unrelated ? UNRELATED_BOUND : BOUND));
+                assertEquals(where, fast, AudioMatcher.computeDTW(live, template, AudioMatcher.FULL_BAND_PERCENT, 0.0f), 0.0f);
+            }
+        }
+    }
+
+    @Test
+    public void clearedThresholdsGiveTheUnabandonedValue() {
+        Random random = new Random(72);
+        for (int pair = 0; pair < 6; pair++) {
+            FeatureMatrix mantra = MfccSignals.mantra(random, AudioMatcher.MULTI_RESOLUTION_MIN_FRAMES + random.nextInt(600));
+            FeatureMatrix live = MfccSignals.take(random, mantra, 0.1f);
+            CompiledTemplate template = new CompiledTemplate("long", mantra, mantra.frameCount(), 0, AudioMatcher.SAMPLE_RATE);
+            float fast = AudioMatcher.computeDTW(live, template, AudioMatcher.FULL_BAND_PERCENT, 0.0f);
+            assertEquals("pair " + pair, fast, AudioMatcher.computeDTW(live, template, AudioMatcher.FULL_BAND_PERCENT, fast - 0.01f), 0.0f);
+            float other = AudioMatcher.computeDTW(MfccSignals.mantra(random, live.frameCount()), template,
+                    AudioMatcher.FULL_BAND_PERCENT, 0.9f);
+            assertTrue("pair " + pair + ": unrelated utterance at " + other, other < 0.9f);
+        }
+    }
+}
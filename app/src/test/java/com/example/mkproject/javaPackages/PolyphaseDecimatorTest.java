@@ -0,0 +1,58 @@
+package com.example.mkproject.javaPackages;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+public class PolyphaseDecimatorTest {
+
+    @Test
+    public void chunkingDoesNotChangeTheOutput() {
+        Random random = new Random(11);
+        float[] signal = new float[20_000];
+        for (int i = 0; i < signal.length; i++) signal[i] = (float) random.nextGaussian() * 0.3f;
+        for (int[] config : new int[][] {{3, 24}, {2, 16}, {4, 5}, {1, 24}}) {
+            float[] whole = new PolyphaseDecimator(config[0], config[1]).process(signal);
+            // Single samples, chunks around the block size and beyond it, and empty chunks in between
+            for (int maxChunk : new int[] {1, 7, 256 * config[0] + 1, 1000, 5000}) {
+                PolyphaseDecimator decimator = new PolyphaseDecimator(config[0], config[1]);
+                float[] chunked = new float[whole.length];
+                int written = 0;
+                for (int offset = 0; offset < signal.length; ) {
+                    int length = Math.min(signal.length - offset, random.nextInt(maxChunk + 1));
+                    int expected = decimator.outputsFor(length);
+                    int produced = decimator.process(signal, offset, length, chunked, written);
+                    assertEquals("outputsFor", expected, produced);
+                    written += produced;
+                    offset += length;
+                }
+                assertArrayEquals("factor " + config[0] + ", chunks up to " + maxChunk, whole,
+                        Arrays.copyOf(chunked, written), 0.0f);
+            }
+        }
+    }
+
+    @Test
+    public void resetStartsOver() {
+        PolyphaseDecimator decimator = AnalysisConfig.DECIMATED_16K.newDecimator();
+        float[] signal = new float[3000];
+        for (int i = 0; i < signal.length; i++) signal[i] = (float) Math.sin(i * 0.01);
+        float[] first = decimator.process(signal);
+        decimator.process(new float[] {1.0f, -1.0f, 0.5f, 0.25f});
+        decimator.reset();
+        assertArrayEquals(first, decimator.process(signal), 0.0f);
+    }
+
+    @Test
+    public void passesDcAtUnitGain() {
+        PolyphaseDecimator decimator = AnalysisConfig.DECIMATED_16K.newDecimator();
+        float[] ones = new float[3000];
+        Arrays.fill(ones, 1.0f);
+        float[] out = decimator.process(ones);
+        assertEquals(1000, out.length);
+        for (int i = 100; i < out.length; i++) assertEquals(1.0f, out[i], 1e-4f); // Past the filter's start-up
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.mkproject.javaPackages;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import org.junit.Test;
+
+public class QuantizedFramesTest {
+
+    @Test
+    public void everyHalfSurvivesTheRoundTrip() {
+        for (int bits = 0; bits <= 0xFFFF; bits++) {
+            float value = QuantizedFrames.halfToFloat((short) bits);
+            short back = QuantizedFrames.floatToHalf(value);
+            boolean nan = (bits & 0x7C00) == 0x7C00 && (bits & 0x3FF) != 0;
+            if (nan) {
+                assertTrue("NaN half " + Integer.toHexString(bits), Float.isNaN(value));
+                assertTrue("NaN half " + Integer.toHexString(bits), Float.isNaN(QuantizedFrames.halfToFloat(back)));
+            } else {
+                assertEquals("Half " + Integer.toHexString(bits), bits, back & 0xFFFF);
+            }
+        }
+    }
+
+    @Test
+    public void subnormalsAreExact() {
+        assertEquals(0x1p-24f, QuantizedFrames.halfToFloat((short) 0x0001), 0.0f);
+        assertEquals(0x3FFp-24f, QuantizedFrames.halfToFloat((short) 0x03FF), 0.0f);
+        assertEquals(-0x200p-24f, QuantizedFrames.halfToFloat((short) 0x8200), 0.0f);
+        assertEquals(0x1p-14f, QuantizedFrames.halfToFloat((short) 0x0400), 0.0f); // Smallest normal
+        for (int mantissa = 1; mantissa < 0x400; mantissa++) {
+            assertEquals(mantissa, QuantizedFrames.floatToHalf(mantissa * 0x1p-24f));
+        }
+        // Ties go to the even neighbour, also below the smallest subnormal
+        assertEquals(0, QuantizedFrames.floatToHalf(0x1p-25f));
+        assertEquals(2, QuantizedFrames.floatToHalf(3 * 0x1p-25f));
+        assertEquals(2, QuantizedFrames.floatToHalf(5 * 0x1p-25f));
+        assertEquals(1, QuantizedFrames.floatToHalf(0x1.000002p-25f));
+        assertEquals(0x0400, QuantizedFrames.floatToHalf(0x7FFp-25f)); // Rounds up into the normals
+        assertEquals(0x8000, QuantizedFrames.floatToHalf(-0x1p-30f) & 0xFFFF);
+    }
+
+    @Test
+    public void infinitiesAndOverflow() {
+        assertEquals(Float.POSITIVE_INFINITY, QuantizedFrames.halfToFloat((short) 0x7C00), 0.0f);
+        assertEquals(Float.NEGATIVE_INFINITY, QuantizedFrames.halfToFloat((short) 0xFC00), 0.0f);
+        assertEquals(0x7C00, QuantizedFrames.floatToHalf(Float.POSITIVE_INFINITY));
+        assertEquals(0xFC00, QuantizedFrames.floatToHalf(Float.NEGATIVE_INFINITY) & 0xFFFF);
+        assertEquals(0x7BFF, QuantizedFrames.floatToHalf(65504.0f)); // Largest half
+        assertEquals(0x7BFF, QuantizedFrames.floatToHalf(65519.0f));
+        assertEquals(0x7C00, QuantizedFrames.floatToHalf(65520.0f)); // Halfway to 65536 rounds to even, i.e. up
+        assertEquals(0x7C00, QuantizedFrames.floatToHalf(1e10f));
+        assertEquals(0xFC00, QuantizedFrames.floatToHalf(-1e10f) & 0xFFFF);
+        assertTrue(Float.isNaN(QuantizedFrames.halfToFloat(QuantizedFrames.floatToHalf(Float.NaN))));
+    }
+
+    @Test
+    public void roundingIsWithinHalfAnUlp() {
+        Random random = new Random(3);
+        for (int i = 0; i < 200_000; i++) {
+            float value = (float) (random.nextGaussian() * Math.pow(2.0, random.nextInt(40) - 24));
+            if (Math.abs(value) >= 65504.0f) continue;
+            short half = QuantizedFrames.floatToHalf(value);
+            float back = QuantizedFrames.halfToFloat(half);
+            // Spacing of halves around the value: 2^-24 among subnormals, 2^(e - 10) for exponent e
+            float ulp = Math.max(0x1p-24f, Math.scalb(1.0f, Math.getExponent(back == 0.0f ? value : back) - 10));
+            assertTrue(value + " became " + back, Math.abs(back - value) <= ulp / 2);
+        }
+    }
+}
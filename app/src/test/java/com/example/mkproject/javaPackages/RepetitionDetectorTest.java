@@ -0,0 +1,156 @@
+package com.example.mkproject.javaPackages;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+
+// The detector's routing: in continuous mode each MATCH of the subsequence matcher is one onMatch and each REFINED one
+// onMatchRefined with the same bounds, so a refinement is never counted again; with more than one template it falls
+// back to pause segmentation and counts each take once, for its own template
+public class RepetitionDetectorTest {
+    // Takes of an MfccSignals mantra score above 0.92 against it, other mantras below 0.78 (see SubsequenceDtwMatcherTest)
+    private static final float THRESHOLD = 0.85f;
+    private static final int PAUSE_FRAMES = RepetitionDetector.SILENCE_FRAMES_THRESHOLD;
+    // Pause-delimited utterances carry up to two pauses' worth of silent rows, which cost 1 each against the template
+    private static final float PAUSED_THRESHOLD = 0.7f;
+
+    @Test
+    public void continuousModeReportsWhatTheMatcherFinds() {
+        Random random = new Random(81);
+        int refinements = 0;
+        for (int session = 0; session < 8; session++) {
+            CompiledTemplate template = template("mantra", MfccSignals.mantra(random, 25 + random.nextInt(40)));
+            List<float[]> rows = new ArrayList<>();
+            List<Boolean> silent = new ArrayList<>();
+            for (int r = 0; r < 6; r++) {
+                append(rows, silent, MfccSignals.take(random, template.getFeatures(), 0.15f), false);
+                if (r % 2 == 1) append(rows, silent, new FeatureMatrix(new float[3 * AudioMatcher.MFCC_SIZE], 3, AudioMatcher.MFCC_SIZE), true);
+            }
+            // The matcher the detector wraps, driven by hand on the same frames
+            SubsequenceDtwMatcher reference = new SubsequenceDtwMatcher(template.getFrames(), THRESHOLD, PAUSE_FRAMES);
+            List<Event> expected = new ArrayList<>();
+            for (int i = 0; i < rows.size(); i++) {
+                int result = reference.push(rows.get(i), 0, silent.get(i));
+                if (result == SubsequenceDtwMatcher.NO_MATCH) continue;
+                expected.add(new Event(result == SubsequenceDtwMatcher.REFINED, template, reference.getLastMatchSimilarity(),
+                        reference.getLastMatchStart(), reference.getLastMatchEnd()));
+            }
+
+            Recorder recorder = new Recorder();
+            RepetitionDetector detector = new RepetitionDetector(List.of(template), THRESHOLD,
+                    AudioMatcher.FULL_BAND_PERCENT, true, null, null, recorder);
+            for (int pass = 0; pass < 2; pass++) { // The second pass after reset() must repeat the first
+                recorder.events.clear();
+                detector.reset();
+                for (int i = 0; i < rows.size(); i++) detector.onFrame(rows.get(i), 0, silent.get(i));
+                detector.flush();
+                String where = "session " + session + ", pass " + pass;
+                assertEquals(where, expected.toString(), recorder.events.toString());
+                int counted = 0;
+                for (Event event : recorder.events) {
+                    if (!event.refined) counted++;
+                    assertTrue(where + ": " + event, event.start <= event.end && event.similarity >= THRESHOLD);
+                }
+                assertTrue(where + ": " + counted + " counts for 6 takes", counted > 0 && counted <= 6);
+            }
+            for (Event event : expected) if (event.refined) refinements++;
+        }
+        assertTrue("No refinement was exercised", refinements > 0);
+    }
+
+    @Test
+    public void severalTemplatesFallBackToPauses() {
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (ExecutorService scoring : new ExecutorService[] {null, pool}) {
+                Random random = new Random(82);
+                List<CompiledTemplate> templates = List.of(
+                        template("a", MfccSignals.mantra(random, 60 + random.nextInt(30))),
+                        template("b", MfccSignals.mantra(random, 60 + random.nextInt(30))));
+                List<float[]> rows = new ArrayList<>();
+                List<Boolean> silent = new ArrayList<>();
+                List<Event> takes = new ArrayList<>();
+                for (int r = 0; r < 8; r++) {
+                    CompiledTemplate said = templates.get(random.nextInt(templates.size()));
+                    long start = rows.size();
+                    append(rows, silent, MfccSignals.take(random, said.getFeatures(), 0.15f), false);
+                    takes.add(new Event(false, said, 1.0f, start, rows.size() - 1));
+                    int pause = PAUSE_FRAMES + random.nextInt(PAUSE_FRAMES);
+                    append(rows, silent, new FeatureMatrix(new float[pause * AudioMatcher.MFCC_SIZE], pause, AudioMatcher.MFCC_SIZE), true);
+                }
+
+                Recorder recorder = new Recorder();
+                RepetitionDetector detector = new RepetitionDetector(templates, PAUSED_THRESHOLD, AudioMatcher.FULL_BAND_PERCENT,
+                        true, scoring, null, recorder);
+                for (int i = 0; i < rows.size(); i++) detector.onFrame(rows.get(i), 0, silent.get(i));
+                detector.flush();
+                String where = scoring == null ? "sequential" : "pool";
+                assertEquals(where + ": " + recorder.events, takes.size(), recorder.events.size());
+                for (int r = 0; r < takes.size(); r++) {
+                    Event take = takes.get(r);
+                    Event event = recorder.events.get(r);
+                    String what = where + ", take " + r + " " + take + ": " + event;
+                    assertTrue(what, !event.refined && event.template == take.template);
+                    // The utterance runs from the silence before the take to the end of the pause that closed it
+                    assertTrue(what, event.start <= take.start && event.end >= take.end);
+                    assertTrue(what, r + 1 == takes.size() || event.end < takes.get(r + 1).start);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static CompiledTemplate template(String name, FeatureMatrix rows) {
+        return new CompiledTemplate(name, rows, rows.frameCount(), 0, AudioMatcher.SAMPLE_RATE)
+                .encode(AudioMatcher.TEMPLATE_ENCODING);
+    }
+
+    private static void append(List<float[]> rows, List<Boolean> silent, FeatureMatrix frames, boolean quiet) {
+        for (int i = 0; i < frames.frameCount(); i++) {
+            rows.add(frames.copyFrame(i));
+            silent.add(quiet);
+        }
+    }
+
+    private static final class Event {
+        final boolean refined;
+        final CompiledTemplate template;
+        final float similarity;
+        final long start;
+        final long end;
+
+        Event(boolean refined, CompiledTemplate template, float similarity, long start, long end) {
+            this.refined = refined;
+            this.template = template;
+            this.similarity = similarity;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public String toString() {
+            return (refined ? "refined " : "match ") + template.getName() + " " + similarity + " [" + start + ", " + end + "]";
+        }
+    }
+
+    private static final class Recorder implements RepetitionDetector.MatchSink {
+        final List<Event> events = new ArrayList<>();
+
+        @Override
+        public void onMatch(CompiledTemplate template, float similarity, long startFrame, long endFrame) {
+            events.add(new Event(false, template, similarity, startFrame, endFrame));
+        }
+
+        @Override
+        public void onMatchRefined(CompiledTemplate template, float similarity, long startFrame, long endFrame) {
+            events.add(new Event(true, template, similarity, startFrame, endFrame));
+        }
+    }
+}
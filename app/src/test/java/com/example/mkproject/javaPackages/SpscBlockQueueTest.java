@@ -0,0 +1,126 @@
+package com.example.mkproject.javaPackages;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+
+public class SpscBlockQueueTest {
+
+    @Test
+    public void capacityRoundsUpToAPowerOfTwo() {
+        int[][] cases = {{1, 2}, {2, 2}, {3, 4}, {4, 4}, {5, 8}, {64, 64}, {65, 128}, {512, 512}};
+        for (int[] c : cases) {
+            assertEquals("requested " + c[0], c[1], new SpscBlockQueue(c[0], 1).capacity());
+        }
+    }
+
+    @Test
+    public void blocksComeOutInOrderWithTheirSlotData() {
+        SpscBlockQueue queue = new SpscBlockQueue(4, 3);
+        for (int round = 0; round < 3; round++) { // Wraps around the ring
+            for (int i = 0; i < 4; i++) {
+                float[] block = queue.claim();
+                assertNotNull(block);
+                block[0] = round * 10 + i;
+                queue.publish(i + 1, 100 + i, 1000L * round + i);
+            }
+            assertNull("Full", queue.claim());
+            assertEquals(4, queue.size());
+            for (int i = 0; i < 4; i++) {
+                float[] block = queue.peek();
+                assertNotNull(block);
+                assertSame("Peek is idempotent", block, queue.peek());
+                assertEquals(round * 10 + i, block[0], 0.0f);
+                assertEquals(i + 1, queue.peekLength());
+                assertEquals(100 + i, queue.peekTag());
+                assertEquals(1000L * round + i, queue.peekStamp());
+                queue.release();
+            }
+            assertNull("Empty", queue.peek());
+            assertEquals(0, queue.size());
+        }
+        assertEquals(4, queue.highWaterMark());
+    }
+
+    @Test
+    public void highWaterMarkKeepsTheDeepestBacklog() {
+        SpscBlockQueue queue = new SpscBlockQueue(8, 1);
+        for (int i = 0; i < 3; i++) {
+            queue.claim();
+            queue.publish(1, 0, 0L);
+        }
+        queue.peek();
+        queue.release();
+        queue.peek();
+        queue.release();
+        queue.claim();
+        queue.publish(1, 0, 0L);
+        assertEquals(2, queue.size());
+        assertEquals(3, queue.highWaterMark());
+    }
+
+    @Test
+    public void clearDropsEverythingPublished() {
+        SpscBlockQueue queue = new SpscBlockQueue(4, 1);
+        for (int i = 0; i < 3; i++) {
+            queue.claim()[0] = i;
+            queue.publish(1, 0, 0L);
+        }
+        queue.clear();
+        assertNull(queue.peek());
+        assertEquals(0, queue.size());
+        queue.claim()[0] = 7.0f;
+        queue.publish(1, 0, 0L);
+        assertEquals(7.0f, queue.peek()[0], 0.0f);
+    }
+
+    // One producer and one consumer thread on a small ring: every block arrives once, in order and fully written
+    @Test
+    public void handsBlocksBetweenThreads() throws Exception {
+        final int blocks = 200_000;
+        final int blockSize = 16;
+        SpscBlockQueue queue = new SpscBlockQueue(8, blockSize);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread producer = new Thread(() -> {
+            for (int n = 0; n < blocks; n++) {
+                float[] block;
+                while ((block = queue.claim()) == null) {
+                    if (failure.get() != null) return; // Consumer gave up
+                    Thread.yield();
+                }
+                for (int k = 0; k < blockSize; k++) block[k] = n;
+                queue.publish(n % blockSize + 1, n, n);
+            }
+        }, "producer");
+        Thread consumer = new Thread(() -> {
+            try {
+                for (int n = 0; n < blocks; n++) {
+                    float[] block;
+                    while ((block = queue.peek()) == null) Thread.yield();
+                    assertEquals(n, queue.peekTag());
+                    assertEquals(n, queue.peekStamp());
+                    assertEquals(n % blockSize + 1, queue.peekLength());
+                    for (int k = 0; k < blockSize; k++) assertEquals("block " + n, n, block[k], 0.0f);
+                    queue.release();
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        }, "consumer");
+        producer.setDaemon(true);
+        consumer.setDaemon(true);
+        producer.start();
+        consumer.start();
+        consumer.join(60_000);
+        producer.join(1_000);
+        if (failure.get() != null) throw new AssertionError(failure.get());
+        assertTrue("Consumer did not finish", !consumer.isAlive());
+        assertNull(queue.peek());
+        assertTrue(queue.highWaterMark() <= queue.capacity());
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.mkproject.javaPackages;
+
+import static org.junit.Assert.assertEquals;
+
+import be.tarsos.dsp.AudioEvent;
+import be.tarsos.dsp.io.TarsosDSPAudioFormat;
+import be.tarsos.dsp.mfcc.MFCC;
+import java.util.Random;
+import org.junit.Test;
+
+// The streaming extractor replaced one TarsosDSP MFCC per frame and must keep producing exactly its coefficients: the
+// same stream-level pre-emphasis and Hamming window, then TarsosDSP's FFT, filterbank and DCT, for any input chunking
+public class StreamingMfccExtractorTest {
+    private static final AnalysisConfig[] CONFIGS = {AnalysisConfig.FULL_RATE, AnalysisConfig.DECIMATED_16K};
+
+    @Test
+    public void matchesTarsosMfcc() {
+        Random random = new Random(3);
+        for (AnalysisConfig config : CONFIGS) {
+            float[] signal = signal(random, config.getSampleRate(), 2.0);
+            float[] expected = tarsos(config, signal);
+            float[] actual = extract(config, signal, signal.length);
+            assertCoefficients(config + ", one call", expected, actual);
+        }
+    }
+
+    @Test
+    public void chunkingDoesNotChangeTheFrames() {
+        Random random = new Random(4);
+        for (AnalysisConfig config : CONFIGS) {
+            float[] signal = signal(random, config.getSampleRate(), 1.0);
+            float[] whole = extract(config, signal, signal.length);
+            for (int maxChunk : new int[] {1, 13, config.getHopSize(), config.getFrameSize() + 1}) {
+                float[] chunked = extract(config, signal, maxChunk);
+                assertEquals(whole.length, chunked.length);
+                for (int i = 0; i < whole.length; i++) {
+                    assertEquals(config + ", chunks up to " + maxChunk + ", value " + i, whole[i], chunked[i], 0.0f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void resetStartsAFreshStream() {
+        AnalysisConfig config = AnalysisConfig.DECIMATED_16K;
+        float[] signal = signal(new Random(5), config.getSampleRate(), 0.5);
+        StreamingMfccExtractor extractor = config.newExtractor();
+        float[] first = new float[extractor.framesFor(signal.length) * AudioMatcher.MFCC_SIZE];
+        extractor.process(signal, 0, signal.length, first, 0);
+        float[] scrap = new float[extractor.framesFor(1000) * AudioMatcher.MFCC_SIZE];
+        extractor.process(signal, 7, 1000, scrap, 0);
+        extractor.reset();
+        float[] second = new float[extractor.framesFor(signal.length) * AudioMatcher.MFCC_SIZE];
+        extractor.process(signal, 0, signal.length, second, 0);
+        assertCoefficients("after reset", first, second);
+    }
+
+    // Voiced-like input: a few harmonics with drifting pitch plus noise, so every mel band carries energy
+    private static float[] signal(Random random, int sampleRate, double seconds) {
+        float[] signal = new float[(int) (sampleRate * seconds)];
+        double phase = 0.0;
+        for (int i = 0; i < signal.length; i++) {
+            double pitch = 140.0 + 30.0 * Math.sin(2.0 * Math.PI * i / sampleRate);
+            phase += 2.0 * Math.PI * pitch / sampleRate;
+            double sample = 0.0;
+            for (int h = 1; h <= 6; h++) sample += Math.sin(h * phase) / h;
+            signal[i] = (float) (0.2 * sample + 0.01 * random.nextGaussian());
+        }
+        return signal;
+    }
+
+    private static float[] extract(AnalysisConfig config, float[] signal, int maxChunk) {
+        StreamingMfccExtractor extractor = config.newExtractor();
+        int dim = extractor.getCoefficientCount();
+        float[] out = new float[(signal.length / config.getHopSize() + 1) * dim];
+        int frames = 0;
+        Random chunks = new Random(maxChunk);
+        for (int offset = 0; offset < signal.length; ) {
+            int length = Math.min(signal.length - offset, 1 + chunks.nextInt(maxChunk));
+            frames += extractor.process(signal, offset, length, out, frames * dim);
+            offset += length;
+        }
+        float[] result = new float[frames * dim];
+        System.arraycopy(out, 0, result, 0, result.length);
+        return result;
+    }
+
+    // What extractMFCC did before the streaming extractor: one TarsosDSP MFCC fed pre-emphasised, windowed frames
+    private static float[] tarsos(AnalysisConfig config, float[] signal) {
+        int size = config.getFrameSize();
+        int hop = config.getHopSize();
+        int dim = AudioMatcher.MFCC_SIZE;
+        float[] emphasised = new float[signal.length];
+        for (int i = 0; i < signal.length; i++) {
+            emphasised[i] = signal[i] - AudioMatcher.PRE_EMPHASIS * (i > 0 ? signal[i - 1] : 0.0f);
+        }
+        float[] window = AudioMatcher.WindowType.HAMMING.table(size);
+        MFCC mfcc = new MFCC(size, config.getSampleRate(), dim, 40, 50.0f, 8000.0f);
+        TarsosDSPAudioFormat format = new TarsosDSPAudioFormat(config.getSampleRate(), 16, 1, true, false);
+        int frames = signal.length < size ? 0 : (signal.length - size) / hop + 1;
+        float[] out = new float[frames * dim];
+        for (int f = 0; f < frames; f++) {
+            float[] frame = new float[size];
+            for (int i = 0; i < size; i++) frame[i] = emphasised[f * hop + i] * window[i];
+            AudioEvent event = new AudioEvent(format);
+            event.setFloatBuffer(frame);
+            mfcc.process(event);
+            System.arraycopy(mfcc.getMFCC(), 0, out, f * dim, dim);
+        }
+        return out;
+    }
+
+    private static void assertCoefficients(String where, float[] expected, float[] actual) {
+        assertEquals(where + ": coefficient count", expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(where + ": frame " + i / AudioMatcher.MFCC_SIZE + ", coefficient " + i % AudioMatcher.MFCC_SIZE,
+                    expected[i], actual[i], 0.0f);
+        }
+    }
+}
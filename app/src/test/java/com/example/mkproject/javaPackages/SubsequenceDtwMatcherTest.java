@@ -0,0 +1,182 @@
+package com.example.mkproject.javaPackages;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+// Continuous-mode counting: never more than one count per repetition however the takes are warped, nothing for other
+// speech, and each count reported by the time its repetition ends rather than after a settle delay. The first version
+// of this matcher reported 334 matches on a 40-repetition session.
+public class SubsequenceDtwMatcherTest {
+    // Takes of an MfccSignals mantra score above 0.92 against it in computeDTW, other mantras below 0.78
+    private static final float THRESHOLD = 0.85f;
+    private static final int PAUSE_FRAMES = RepetitionDetector.SILENCE_FRAMES_THRESHOLD;
+    // Back to back, the alignment may take in the first frames of the next take before it clears the threshold
+    private static final int BOUNDARY_FRAMES = 4;
+
+    @Test
+    public void countsBackToBackRepetitionsOnce() {
+        Random random = new Random(21);
+        int repetitions = 0;
+        int counted = 0;
+        for (int session = 0; session < 12; session++) {
+            FeatureMatrix mantra = MfccSignals.mantra(random, 25 + random.nextInt(40));
+            Stream stream = new Stream();
+            int takes = 5 + random.nextInt(16);
+            for (int r = 0; r < takes; r++) stream.repetition(MfccSignals.take(random, mantra, 0.15f));
+            repetitions += takes;
+            counted += assertCounts("session " + session, stream, run(mantra, stream));
+        }
+        // With no gap a take squeezed to 0.7x can lose its first frames to the one before and miss the threshold
+        assertTrue(counted + " of " + repetitions, counted >= 0.97f * repetitions);
+    }
+
+    @Test
+    public void countsRepetitionsSeparatedByPauses() {
+        Random random = new Random(22);
+        for (int session = 0; session < 6; session++) {
+            FeatureMatrix mantra = MfccSignals.mantra(random, 25 + random.nextInt(40));
+            Stream stream = new Stream();
+            int takes = 3 + random.nextInt(8);
+            for (int r = 0; r < takes; r++) {
+                stream.repetition(MfccSignals.take(random, mantra, 0.15f));
+                stream.silence(1 + random.nextInt(2 * PAUSE_FRAMES));
+            }
+            assertEquals("session " + session, takes, assertCounts("session " + session, stream, run(mantra, stream)));
+        }
+    }
+
+    @Test
+    public void ignoresOtherSpeech() {
+        Random random = new Random(23);
+        for (int session = 0; session < 6; session++) {
+            FeatureMatrix mantra = MfccSignals.mantra(random, 25 + random.nextInt(40));
+            Stream stream = new Stream();
+            for (int r = 0; r < 10; r++) {
+                stream.other(MfccSignals.take(random, MfccSignals.mantra(random, 25 + random.nextInt(40)), 0.15f));
+            }
+            assertEquals("session " + session, 0, run(mantra, stream).size());
+        }
+    }
+
+    @Test
+    public void reportsBeforeTheRepetitionIsOver() {
+        Random random = new Random(24);
+        for (int session = 0; session < 12; session++) {
+            FeatureMatrix mantra = MfccSignals.mantra(random, 25 + random.nextInt(40));
+            Stream stream = new Stream();
+            stream.repetition(MfccSignals.take(random, mantra, 0.15f));
+            // Voiced frames of something else: nothing but the settle window could hold the report back
+            stream.other(MfccSignals.mantra(random, mantra.frameCount()));
+            List<Report> reports = run(mantra, stream);
+            assertEquals("session " + session, 1, reports.size());
+            assertTrue("session " + session + ": reported at frame " + reports.get(0).frame + ", repetition ends at "
+                    + stream.ends.get(0), reports.get(0).frame <= stream.ends.get(0));
+            assertTrue("session " + session + ": starts at " + reports.get(0).start,
+                    reports.get(0).start <= mantra.frameCount() / 4);
+        }
+    }
+
+    // Each report belongs to the repetition its settled bounds overlap most, no repetition has two, and each was
+    // reported by the time that repetition ended. Returns the number of repetitions counted.
+    private static int assertCounts(String where, Stream stream, List<Report> reports) {
+        int previous = -1;
+        for (Report report : reports) {
+            int repetition = -1;
+            long best = 0;
+            for (int r = 0; r < stream.starts.size(); r++) {
+                long overlap = Math.min(report.end, stream.ends.get(r)) - Math.max(report.start, stream.starts.get(r)) + 1;
+                if (overlap > best) {
+                    best = overlap;
+                    repetition = r;
+                }
+            }
+            String what = where + ": report at " + report.frame + " settled on [" + report.start + ", " + report.end + "]";
+            assertTrue(what + " overlaps no repetition", repetition >= 0);
+            assertTrue(what + " counts repetition " + repetition + " again", repetition > previous);
+            assertTrue(what + " comes after repetition " + repetition + " ended at " + stream.ends.get(repetition),
+                    report.frame <= stream.ends.get(repetition) + BOUNDARY_FRAMES);
+            previous = repetition;
+        }
+        return reports.size();
+    }
+
+    private static List<Report> run(FeatureMatrix mantra, Stream stream) {
+        CompiledTemplate template = new CompiledTemplate("mantra", mantra, mantra.frameCount(), 0, AudioMatcher.SAMPLE_RATE)
+                .encode(AudioMatcher.TEMPLATE_ENCODING);
+        SubsequenceDtwMatcher matcher = new SubsequenceDtwMatcher(template.getFrames(), THRESHOLD, PAUSE_FRAMES);
+        List<Report> reports = new ArrayList<>();
+        int dim = AudioMatcher.MFCC_SIZE;
+        float[] data = stream.data();
+        for (int i = 0; i < stream.silent.size(); i++) {
+            int result = matcher.push(data, i * dim, stream.silent.get(i));
+            if (result == SubsequenceDtwMatcher.MATCH) {
+                reports.add(new Report(i));
+            } else if (result == SubsequenceDtwMatcher.REFINED) {
+                assertTrue("Refined before any report", !reports.isEmpty());
+            } else {
+                continue;
+            }
+            Report last = reports.get(reports.size() - 1);
+            last.start = matcher.getLastMatchStart();
+            last.end = matcher.getLastMatchEnd();
+            assertTrue(matcher.getLastMatchSimilarity() >= THRESHOLD);
+            assertTrue(last.start <= last.end && last.end == i);
+            assertTrue("Refined to an alignment starting in an earlier repetition",
+                    reports.size() < 2 || last.start > reports.get(reports.size() - 2).end);
+        }
+        return reports;
+    }
+
+    private static final class Report {
+        final int frame; // Frame whose push() reported the repetition
+        long start;
+        long end;
+
+        Report(int frame) {
+            this.frame = frame;
+        }
+    }
+
+    // Live frames with their VAD decision, and where the template's repetitions lie
+    private static final class Stream {
+        final List<float[]> rows = new ArrayList<>();
+        final List<Boolean> silent = new ArrayList<>();
+        final List<Long> starts = new ArrayList<>();
+        final List<Long> ends = new ArrayList<>();
+
+        void repetition(FeatureMatrix take) {
+            starts.add((long) rows.size());
+            other(take);
+            ends.add((long) rows.size() - 1);
+        }
+
+        void other(FeatureMatrix frames) {
+            for (int i = 0; i < frames.frameCount(); i++) {
+                float[] row = new float[frames.dimension()];
+                for (int k = 0; k < row.length; k++) row[k] = frames.get(i, k);
+                rows.add(row);
+                silent.add(false);
+            }
+        }
+
+        void silence(int frames) {
+            for (int i = 0; i < frames; i++) {
+                rows.add(new float[AudioMatcher.MFCC_SIZE]);
+                silent.add(true);
+            }
+        }
+
+        float[] data() {
+            float[] data = new float[rows.size() * AudioMatcher.MFCC_SIZE];
+            for (int i = 0; i < rows.size(); i++) {
+                System.arraycopy(rows.get(i), 0, data, i * AudioMatcher.MFCC_SIZE, AudioMatcher.MFCC_SIZE);
+            }
+            return data;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.mkproject.javaPackages;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.Test;
+
+// Averaging starts from the medoid take and keeps an update only if it lowers the summed alignment cost, so the
+// result must never align worse than the medoid. Takes stay within MultiResolutionDtw.COARSEST_FRAMES, where its
+// warping paths are exact.
+public class TemplateAveragerTest {
+    // Relative slack for storing both in TEMPLATE_ENCODING
+    private static final float TOLERANCE = 1e-3f;
+
+    @Test
+    public void averageDoesNotRaiseTheSummedCost() throws Exception {
+        Random random = new Random(5);
+        for (int trial = 0; trial < 40; trial++) {
+            FeatureMatrix mantra = MfccSignals.mantra(random, 14 + random.nextInt(10));
+            List<CompiledTemplate> takes = new ArrayList<>();
+            int count = 2 + random.nextInt(5);
+            for (int t = 0; t < count; t++) {
+                FeatureMatrix rows = MfccSignals.take(random, mantra, 0.1f + 0.6f * random.nextFloat());
+                assertTrue(rows.frameCount() <= MultiResolutionDtw.COARSEST_FRAMES);
+                takes.add(new CompiledTemplate("take" + t, rows, rows.frameCount(), 0, AudioMatcher.SAMPLE_RATE));
+            }
+
+            CompiledTemplate average = TemplateAverager.average("mantra", takes, null);
+            assertNotNull(average);
+            assertEquals(AudioMatcher.TEMPLATE_ENCODING, average.getEncoding());
+            CompiledTemplate medoid = takes.get(medoid(takes)).encode(AudioMatcher.TEMPLATE_ENCODING);
+            float averageCost = summedCost(average.getFeatures(), takes);
+            float medoidCost = summedCost(medoid.getFeatures(), takes);
+            assertTrue("Trial " + trial + ": average costs " + averageCost + ", medoid " + medoidCost,
+                    averageCost <= medoidCost * (1.0f + TOLERANCE));
+        }
+    }
+
+    @Test
+    public void executorGivesTheSameAverage() throws Exception {
+        Random random = new Random(9);
+        FeatureMatrix mantra = MfccSignals.mantra(random, 20);
+        List<CompiledTemplate> takes = new ArrayList<>();
+        for (int t = 0; t < 5; t++) {
+            FeatureMatrix rows = MfccSignals.take(random, mantra, 0.3f);
+            takes.add(new CompiledTemplate("take" + t, rows, rows.frameCount(), 0, AudioMatcher.SAMPLE_RATE));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            FeatureMatrix serial = TemplateAverager.average("mantra", takes, null).getFeatures();
+            FeatureMatrix parallel = TemplateAverager.average("mantra", takes, executor).getFeatures();
+            assertEquals(serial.frameCount(), parallel.frameCount());
+            assertArrayEquals(serial.data(), parallel.data(), 0.0f);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Same choice as TemplateAverager: least summed full-band DTW distance to the other takes
+    private static int medoid(List<CompiledTemplate> takes) {
+        int count = takes.size();
+        if (count <= 2) return 0;
+        float[] totals = new float[count];
+        for (int a = 0; a < count; a++) {
+            for (int b = a + 1; b < count; b++) {
+                float distance = 1.0f - AudioMatcher.alignmentSimilarity(takes.get(a).getFeatures(),
+                        takes.get(b).getFeatures(), AudioMatcher.FULL_BAND_PERCENT, 0.0f);
+                totals[a] += distance;
+                totals[b] += distance;
+            }
+        }
+        int medoid = 0;
+        for (int t = 1; t < count; t++) {
+            if (totals[t] < totals[medoid]) medoid = t;
+        }
+        return medoid;
+    }
+
+    // Sum over the takes of their cheapest full-band path cost against the reference
+    private static float summedCost(FeatureMatrix reference, List<CompiledTemplate> takes) {
+        float cost = 0.0f;
+        for (CompiledTemplate take : takes) {
+            FeatureMatrix rows = take.getFeatures();
+            int[] path = MultiResolutionDtw.warpingPath(reference, rows, AudioMatcher.FULL_BAND_PERCENT);
+            for (int p = 0; p < path.length; p += 2) {
+                cost += 1.0f - reference.cosineSimilarity(path[p], rows, path[p + 1]);
+            }
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.mkproject.javaPackages;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+// The pruning bounds must never claim less than computeDTW finds, or the recognizer would skip a real match
+public class TemplateIndexTest {
+    private static final float[] BANDS = {5.0f, 10.0f, 25.0f, AudioMatcher.FULL_BAND_PERCENT};
+    private static final float[] THRESHOLDS = {0.3f, 0.6f, 0.8f, 0.9f, 0.95f};
+    private static final float TOLERANCE = 1e-5f;
+
+    @Test
+    public void boundsNeverFallBelowDtwSimilarity() {
+        Random random = new Random(7);
+        for (TemplateEncoding encoding : TemplateEncoding.values()) {
+            for (int library = 0; library < 4; library++) {
+                FeatureMatrix mantra = MfccSignals.mantra(random, 20 + random.nextInt(100));
+                List<CompiledTemplate> templates = new ArrayList<>();
+                for (int t = 0; t < 10; t++) {
+                    FeatureMatrix rows = t < 7
+                            ? MfccSignals.take(random, mantra, 0.05f + 0.3f * t)
+                            : MfccSignals.mantra(random, 20 + random.nextInt(150));
+                    templates.add(new CompiledTemplate("t" + t, rows, rows.frameCount(), 0, AudioMatcher.SAMPLE_RATE)
+                            .encode(encoding));
+                }
+                TemplateIndex index = new TemplateIndex(templates);
+                for (int utterance = 0; utterance < 6; utterance++) {
+                    FeatureMatrix live = MfccSignals.take(random, mantra, 0.1f + 0.25f * utterance);
+                    for (float band : BANDS) {
+                        check(index, live, band, encoding);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void check(TemplateIndex index, FeatureMatrix live, float band, TemplateEncoding encoding) {
+        float[] similarity = new float[index.size()];
+        for (int t = 0; t < index.size(); t++) {
+            similarity[t] = AudioMatcher.computeDTW(live, index.get(t), band, 0.0f);
+            String where = encoding + ", band " + band + ", template " + t + ", similarity " + similarity[t];
+            assertTrue("LB_Keogh ruled out a reached similarity: " + where,
+                    index.mayReach(t, live, band, similarity[t] - TOLERANCE));
+        }
+        int[] order = new int[index.size()];
+        float[] maxSimilarity = new float[index.size()];
+        TemplateIndex.Scratch scratch = index.newScratch();
+        for (float threshold : THRESHOLDS) {
+            int count = index.candidates(live, band, threshold, order, maxSimilarity, scratch);
+            boolean[] kept = new boolean[index.size()];
+            for (int c = 0; c < count; c++) {
+                int t = order[c];
+                kept[t] = true;
+                assertTrue("Bound " + maxSimilarity[c] + " below the DTW: " + encoding + ", band " + band + ", template "
+                        + t + ", similarity " + similarity[t], similarity[t] <= maxSimilarity[c] + TOLERANCE);
+                assertTrue("Candidates out of order", c == 0 || maxSimilarity[c] <= maxSimilarity[c - 1]);
+            }
+            for (int t = 0; t < index.size(); t++) {
+                assertTrue("Pruned a template reaching " + threshold + ": " + encoding + ", band " + band + ", template "
+                        + t + ", similarity " + similarity[t], kept[t] || similarity[t] < threshold + TOLERANCE);
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.mkproject.javaPackages;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+// The detector's state machine on synthetic analysis-rate input: onset within the first frame that is all voice,
+// the hangover bridging short dips and ending long ones on time, and the noise floor following the room both ways
+public class VoiceActivityDetectorTest {
+    private static final AnalysisConfig CONFIG = AnalysisConfig.DECIMATED_16K;
+    private static final int RATE = CONFIG.getSampleRate();
+    private static final int HOPS_PER_FRAME = CONFIG.getFrameSize() / CONFIG.getHopSize();
+    private static final float VOICED_C0 = 0.0f; // Clears the C0 check
+    private static final float QUIET_C0 = CONFIG.getC0SilenceThreshold() - 10.0f;
+
+    @Test
+    public void speechStartsWithinAFrameOfTheVoice() {
+        Random random = new Random(51);
+        Detector detector = new Detector(VadConfig.DEFAULT);
+        List<Boolean> room = detector.feed(noise(random, 2.0, 0.001f), VOICED_C0);
+        assertFalse(room.contains(false));
+        List<Boolean> voice = detector.feed(tone(1.0, 150.0, 0.5f), VOICED_C0);
+        int onset = voice.indexOf(false);
+        assertTrue("onset at frame " + onset, onset >= 0 && onset < HOPS_PER_FRAME);
+        assertFalse("dropped out after onset", voice.subList(onset, voice.size()).contains(true));
+    }
+
+    @Test
+    public void loudFramesFailingC0OrZcrAreNotSpeech() {
+        Random random = new Random(52);
+        assertFalse("C0 below its threshold",
+                new Detector(VadConfig.DEFAULT).feed(tone(1.0, 150.0, 0.5f), QUIET_C0).contains(false));
+        assertFalse("Broadband noise",
+                new Detector(VadConfig.DEFAULT).feed(noise(random, 1.0, 0.5f), VOICED_C0).contains(false));
+    }
+
+    @Test
+    public void hangoverBridgesShortDipsAndEndsLongOnes() {
+        Random random = new Random(53);
+        VadConfig vad = VadConfig.DEFAULT.withHangoverSeconds(0.24);
+        int hangover = CONFIG.framesForSeconds(vad.getHangoverSeconds());
+        Detector detector = new Detector(vad);
+        detector.feed(noise(random, 1.0, 0.001f), VOICED_C0);
+        detector.feed(tone(0.5, 150.0, 0.5f), VOICED_C0);
+
+        // Shorter than the hangover: still one utterance
+        double shortDip = (hangover - HOPS_PER_FRAME) * CONFIG.getSecondsPerFrame();
+        assertFalse(detector.feed(noise(random, shortDip, 0.001f), VOICED_C0).contains(true));
+        assertFalse(detector.feed(tone(0.5, 150.0, 0.5f), VOICED_C0).contains(true));
+
+        // A pause: speech lasts for the hangover after the first frame below the level, then ends for good
+        List<Boolean> pause = detector.feed(noise(random, 1.0, 0.001f), VOICED_C0);
+        int end = pause.indexOf(true);
+        assertTrue("ended at frame " + end, end >= hangover && end <= hangover + HOPS_PER_FRAME);
+        assertFalse(pause.subList(end, pause.size()).contains(false));
+    }
+
+    @Test
+    public void noiseFloorFollowsTheRoom() {
+        Random random = new Random(54);
+        VadConfig vad = new VadConfig(3.0f, 2.0f, 0.064, 1.0);
+        Detector detector = new Detector(vad);
+
+        // A hum above the absolute floor passes every fixed check, so it counts as speech until the floor learns it
+        List<Boolean> hum = detector.feed(tone(3.0, 100.0, 0.28f), VOICED_C0);
+        assertFalse("hum taken for speech at first", hum.get(HOPS_PER_FRAME));
+        int learnt = CONFIG.framesForSeconds(vad.getNoiseWindowSeconds() + vad.getHangoverSeconds()) + 2 * HOPS_PER_FRAME;
+        assertFalse("hum still speech after the noise window", hum.subList(learnt, hum.size()).contains(false));
+
+        // Voice over the hum is still found
+        float[] voiced = tone(1.0, 100.0, 0.28f);
+        float[] voice = tone(1.0, 170.0, 0.6f);
+        for (int i = 0; i < voiced.length; i++) voiced[i] += voice[i];
+        assertTrue(detector.feed(voiced, VOICED_C0).contains(false));
+
+        // Once the hum stops, a voice that the hum's floor would have hidden is speech again within a window
+        detector.feed(noise(random, vad.getNoiseWindowSeconds() + 0.2, 0.001f), VOICED_C0);
+        List<Boolean> soft = detector.feed(tone(0.5, 150.0, 0.22f), VOICED_C0);
+        assertFalse("soft voice missed in the quiet room", soft.get(HOPS_PER_FRAME));
+    }
+
+    @Test
+    public void resetForgetsTheStream() {
+        Random random = new Random(55);
+        float[] stream = noise(random, 1.0, 0.001f);
+        float[] voice = tone(0.5, 150.0, 0.5f);
+        Detector detector = new Detector(VadConfig.DEFAULT);
+        List<Boolean> first = new ArrayList<>(detector.feed(stream, VOICED_C0));
+        first.addAll(detector.feed(voice, VOICED_C0));
+        detector.feed(tone(2.0, 100.0, 0.3f), VOICED_C0); // Would raise the floor and leave the detector mid-hop
+        detector.feed(new float[7], VOICED_C0);
+        detector.reset();
+        List<Boolean> second = new ArrayList<>(detector.feed(stream, VOICED_C0));
+        second.addAll(detector.feed(voice, VOICED_C0));
+        assertEquals(first, second);
+    }
+
+    private static float[] tone(double seconds, double frequency, float amplitude) {
+        float[] samples = new float[(int) Math.round(seconds * RATE)];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = amplitude * (float) Math.sin(2.0 * Math.PI * frequency * i / RATE);
+        }
+        return samples;
+    }
+
+    private static float[] noise(Random random, double seconds, float sigma) {
+        float[] samples = new float[(int) Math.round(seconds * RATE)];
+        for (int i = 0; i < samples.length; i++) samples[i] = sigma * (float) random.nextGaussian();
+        return samples;
+    }
+
+    // Drives the detector as FeatureFrontEnd does: samples first, then one decision per frame the extractor emits,
+    // i.e. per completed hop once the first frame is full
+    private static final class Detector {
+        private final VoiceActivityDetector vad;
+        private int fill = 0;
+        private int hops = 0;
+
+        Detector(VadConfig config) {
+            vad = new VoiceActivityDetector(CONFIG, config);
+        }
+
+        // Decisions (true = silent) for the frames completed by these samples
+        List<Boolean> feed(float[] samples, float c0) {
+            List<Boolean> silent = new ArrayList<>();
+            int hop = CONFIG.getHopSize();
+            for (int offset = 0; offset < samples.length; ) {
+                int length = Math.min(samples.length - offset, hop - fill);
+                vad.addSamples(samples, offset, length);
+                offset += length;
+                fill += length;
+                if (fill < hop) break;
+                fill = 0;
+                if (++hops >= HOPS_PER_FRAME) silent.add(vad.isSilent(c0));
+            }
+            return silent;
+        }
+
+        void reset() {
+            vad.reset();
+            fill = 0;
+            hops = 0;
+        }
+    }
+}
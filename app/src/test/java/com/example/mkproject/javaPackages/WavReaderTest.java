@@ -0,0 +1,139 @@
+package com.example.mkproject.javaPackages;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import org.junit.Test;
+
+public class WavReaderTest {
+    private static final int RATE = AudioMatcher.SAMPLE_RATE;
+    private static final short[] SAMPLES = {0, 1, -1, 32767, -32768, 1000, -1000, 12345, -54, 7};
+    private static final long UNPATCHED = 0xFFFFFFFFL;
+
+    @Test
+    public void skipsOddSizedChunksBeforeData() throws IOException {
+        Wav wav = new Wav().riff().fmt(RATE).chunk("LIST", 3).chunk("junk", 1).chunk("fact", 4)
+                .data(SAMPLES.length * 2L).samples(SAMPLES);
+        assertSamples(SAMPLES, WavReader.read(wav.write(), RATE));
+    }
+
+    @Test
+    public void unpatchedDataSizeReadsToTheEnd() throws IOException {
+        for (long size : new long[] {0, UNPATCHED, SAMPLES.length * 2L + 100}) {
+            Wav wav = new Wav().riffUnpatched().fmt(RATE).chunk("LIST", 5).data(size).samples(SAMPLES);
+            assertSamples(SAMPLES, WavReader.read(wav.write(), RATE));
+        }
+    }
+
+    @Test
+    public void dropsATrailingHalfSample() throws IOException {
+        Wav wav = new Wav().riffUnpatched().fmt(RATE).data(0).samples(SAMPLES).bytes(0x12);
+        assertSamples(SAMPLES, WavReader.read(wav.write(), RATE));
+    }
+
+    @Test
+    public void honoursAPatchedDataSizeFollowedByMoreChunks() throws IOException {
+        Wav wav = new Wav().riff().fmt(RATE).data(4).samples(SAMPLES).chunk("LIST", 3);
+        assertSamples(new short[] {SAMPLES[0], SAMPLES[1]}, WavReader.read(wav.write(), RATE));
+    }
+
+    @Test
+    public void rejectsOtherRatesAndMissingData() throws IOException {
+        assertNull(WavReader.read(new Wav().riff().fmt(44100).data(0).samples(SAMPLES).write(), RATE));
+        assertNull(WavReader.read(new Wav().riff().fmt(RATE).chunk("LIST", 7).write(), RATE));
+        assertNull(WavReader.read(new Wav().riff().data(0).samples(SAMPLES).write(), RATE)); // data before fmt
+    }
+
+    private static void assertSamples(short[] expected, float[] actual) {
+        assertNotNull(actual);
+        float[] scaled = new float[expected.length];
+        for (int i = 0; i < expected.length; i++) scaled[i] = expected[i] / 32768.0f;
+        assertArrayEquals(scaled, actual, 0.0f);
+    }
+
+    // RIFF bytes assembled chunk by chunk; the RIFF size is patched on write unless left unpatched
+    private static final class Wav {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private boolean patchRiff;
+
+        Wav riff() {
+            patchRiff = true;
+            return riffUnpatched();
+        }
+
+        Wav riffUnpatched() {
+            ascii("RIFF");
+            int32(UNPATCHED);
+            ascii("WAVE");
+            return this;
+        }
+
+        Wav fmt(int sampleRate) {
+            ascii("fmt ");
+            int32(16);
+            int16(1); // PCM
+            int16(1); // Mono
+            int32(sampleRate);
+            int32(sampleRate * 2L);
+            int16(2);
+            int16(16);
+            return this;
+        }
+
+        // A chunk of size bytes of filler, plus the pad byte when size is odd
+        Wav chunk(String id, int size) {
+            ascii(id);
+            int32(size);
+            for (int i = 0; i < size + (size & 1); i++) out.write(i < size ? 'x' : 0);
+            return this;
+        }
+
+        Wav data(long size) {
+            ascii("data");
+            int32(size);
+            return this;
+        }
+
+        Wav samples(short[] samples) {
+            for (short sample : samples) int16(sample);
+            return this;
+        }
+
+        Wav bytes(int... values) {
+            for (int value : values) out.write(value);
+            return this;
+        }
+
+        File write() throws IOException {
+            byte[] bytes = out.toByteArray();
+            if (patchRiff) ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putInt(4, bytes.length - 8);
+            File file = File.createTempFile("wavreader", ".wav");
+            file.deleteOnExit();
+            Files.write(file.toPath(), bytes);
+            return file;
+        }
+
+        private void ascii(String id) {
+            assertEquals(4, id.length());
+            for (int i = 0; i < 4; i++) out.write(id.charAt(i));
+        }
+
+        private void int16(int value) {
+            out.write(value & 0xFF);
+            out.write((value >>> 8) & 0xFF);
+        }
+
+        private void int32(long value) {
+            int16((int) value);
+            int16((int) (value >>> 16));
+        }
+    }
+}
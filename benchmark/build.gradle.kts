@@ -0,0 +1,29 @@
+// JVM-only JMH benchmarks for the recognizer's DSP and matching code, run against the headless :offline build
+// of the app's sources, so no device or emulator is needed.
+//   ./gradlew :benchmark:jmh
+// Results (ns/op plus the gc profiler's allocation rate) land in benchmark/build/results/jmh/results.json.
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_18
+    targetCompatibility = JavaVersion.VERSION_18
+}
+
+dependencies {
+    implementation(project(":offline"))
+    jmh(libs.jmh.core)
+    jmhAnnotationProcessor(libs.jmh.generator.annprocess)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    profilers.add("gc")
+    jvmArgsAppend.add("--add-modules=jdk.incubator.vector") // Makes the "vector" FrameDistance kernel available
+    resultFormat.set("JSON")
+}
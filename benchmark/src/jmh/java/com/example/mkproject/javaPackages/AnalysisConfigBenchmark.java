@@ -0,0 +1,78 @@
+package com.example.mkproject.javaPackages;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// What the analysis framing costs per second of capture: the whole front end (decimator, MFCC, VAD) as the live
+// pipeline runs it, and the full-band DTW of a take against a template of the same length, whose size follows the
+// frame rate. "decimated512" is the power-of-two framing at 16 kHz, for comparison with the shipped 768/384.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnalysisConfigBenchmark {
+
+    @Param({"decimated768", "decimated512", "fullRate"})
+    public String analysis;
+
+    @Param({"3"})
+    public int seconds;
+
+    private FeatureFrontEnd frontEnd;
+    private float[] audio;
+    private FeatureMatrix take;
+    private FeatureMatrix template;
+    private final RecognitionPipeline.FrameConsumer discard = (frame, offset, silent) -> { };
+
+    static AnalysisConfig config(String name) {
+        switch (name) {
+            case "decimated768":
+                return AnalysisConfig.DECIMATED_16K;
+            case "decimated512":
+                return new AnalysisConfig(3, 512, 256, -43.0f, 0.01f, 0.3f);
+            case "fullRate":
+                return AnalysisConfig.FULL_RATE;
+            default:
+                throw new IllegalArgumentException("Unknown analysis config: " + name);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        AnalysisConfig config = config(analysis);
+        frontEnd = new FeatureFrontEnd(config, RecognizerMetrics.NONE);
+        audio = BenchmarkSignals.chant(seconds * AudioMatcher.SAMPLE_RATE, 5L);
+        take = features(config, audio);
+        template = features(config, BenchmarkSignals.chant(seconds * AudioMatcher.SAMPLE_RATE, 5L + 1L));
+    }
+
+    // Decimation, MFCC and VAD over the whole capture, one hop at a time
+    @Benchmark
+    public int frontEnd() {
+        frontEnd.reset();
+        return frontEnd.process(audio, 0, audio.length, discard);
+    }
+
+    @Benchmark
+    public float fullBandDtw() {
+        return AudioMatcher.alignmentSimilarity(take, template, AudioMatcher.FULL_BAND_PERCENT, 0.0f);
+    }
+
+    static FeatureMatrix features(AnalysisConfig config, float[] audio) {
+        FeatureFrontEnd frontEnd = new FeatureFrontEnd(config, RecognizerMetrics.NONE);
+        int dim = frontEnd.getCoefficientCount();
+        float[] data = new float[(audio.length / (config.getHopSize() * config.getDecimation()) + 1) * dim];
+        int[] frames = {0};
+        frontEnd.process(audio, 0, audio.length, (frame, offset, silent) -> {
+            System.arraycopy(frame, offset, data, frames[0]++ * dim, dim);
+        });
+        return new FeatureMatrix(Arrays.copyOf(data, frames[0] * dim), frames[0], dim);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.mkproject.javaPackages;
+
+import java.util.Random;
+
+// Deterministic chant-like input: a harmonic tone with slow pitch and loudness drift plus a little noise.
+// Loud and low-ZCR enough that the VAD keeps every frame, so trimmed and untrimmed lengths agree.
+final class BenchmarkSignals {
+    private BenchmarkSignals() {
+    }
+
+    // Capture-rate samples that yield the given number of analysis frames
+    static int samplesForFrames(int frames) {
+        AnalysisConfig config = AudioMatcher.ANALYSIS;
+        return ((frames - 1) * config.getHopSize() + config.getFrameSize()) * config.getDecimation();
+    }
+
+    static float[] voiced(int samples, long seed) {
+        Random random = new Random(seed);
+        float[] audio = new float[samples];
+        double phase = 0.0;
+        for (int i = 0; i < samples; i++) {
+            double t = (double) i / AudioMatcher.SAMPLE_RATE;
+            double f0 = 140.0 + 20.0 * Math.sin(2.0 * Math.PI * 0.7 * t + seed);
+            phase += 2.0 * Math.PI * f0 / AudioMatcher.SAMPLE_RATE;
+            double envelope = 0.25 + 0.05 * Math.sin(2.0 * Math.PI * 1.3 * t);
+            double value = Math.sin(phase) + 0.5 * Math.sin(2.0 * phase) + 0.25 * Math.sin(3.0 * phase);
+            audio[i] = (float) (envelope * value + 0.005 * random.nextGaussian());
+        }
+        return audio;
+    }
+
+    // First three formants (Hz) of a few vowels
+    private static final double[][] VOWELS = {
+            {730, 1090, 2440}, {270, 2290, 3010}, {300, 870, 2240}, {530, 1840, 2480},
+            {570, 840, 2410}, {660, 1720, 2410}, {440, 1020, 2240}, {390, 1990, 2550}};
+
+    // A different "mantra" per seed: a sawtooth voice through two to four vowels' formant resonators
+    static float[] chant(int samples, long seed) {
+        Random random = new Random(seed);
+        int vowels = 2 + random.nextInt(3);
+        double f0 = 100.0 + 120.0 * random.nextDouble();
+        float[] audio = new float[samples];
+        double[][] state = new double[3][2];
+        double phase = 0.0;
+        for (int v = 0; v < vowels; v++) {
+            double[] formants = VOWELS[random.nextInt(VOWELS.length)];
+            for (int i = v * samples / vowels; i < (v + 1) * samples / vowels; i++) {
+                phase += f0 / AudioMatcher.SAMPLE_RATE;
+                double source = 2.0 * (phase % 1.0) - 1.0;
+                double value = 0.0;
+                for (int f = 0; f < 3; f++) {
+                    double radius = Math.exp(-Math.PI * (80.0 + 40.0 * f) / AudioMatcher.SAMPLE_RATE);
+                    double feedback = 2.0 * radius * Math.cos(2.0 * Math.PI * formants[f] / AudioMatcher.SAMPLE_RATE);
+                    double out = source * (1.0 - radius) + feedback * state[f][0] - radius * radius * state[f][1];
+                    state[f][1] = state[f][0];
+                    state[f][0] = out;
+                    value += out / (f + 1);
+                }
+                audio[i] = (float) (0.3 * value + 0.005 * random.nextGaussian());
+            }
+        }
+        return audio;
+    }
+
+    // Untrimmed features of exactly the requested length, packed like a loaded reference
+    static CompiledTemplate template(String name, int frames, long seed) {
+        float[] audio = voiced(samplesForFrames(frames), seed);
+        FeatureMatrix features = AudioMatcher.extractMFCC(audio);
+        return new CompiledTemplate(name, features, features.frameCount(), audio.length, AudioMatcher.SAMPLE_RATE);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.mkproject.javaPackages;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Front end of the recognizer: decimation, per-frame primitives and whole-utterance extraction/trimming
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FeatureExtractionBenchmark {
+
+    // Length of the utterance in MFCC frames at the analysis framing (24 ms hop at 16 kHz)
+    @Param({"50", "150", "400"})
+    public int utteranceFrames;
+
+    private float[] audio;
+    private float[] decimated;
+    private float[] frame;
+    private float frameC0;
+    private FeatureMatrix features;
+
+    @Setup
+    public void setUp() {
+        audio = BenchmarkSignals.voiced(BenchmarkSignals.samplesForFrames(utteranceFrames), 1L);
+        decimated = new float[audio.length / AudioMatcher.ANALYSIS.getDecimation()];
+        frame = new float[AudioMatcher.ANALYSIS.getFrameSize()];
+        System.arraycopy(AudioMatcher.ANALYSIS.newDecimator().process(audio), 0, frame, 0, frame.length);
+        features = AudioMatcher.extractMFCC(audio);
+        frameC0 = features.get(0, 0);
+    }
+
+    @Benchmark
+    public FeatureMatrix extractMFCC() {
+        return AudioMatcher.extractMFCC(audio);
+    }
+
+    @Benchmark
+    public float[] decimate() {
+        AudioMatcher.ANALYSIS.newDecimator().process(audio, 0, audio.length, decimated, 0);
+        return decimated;
+    }
+
+    @Benchmark
+    public CompiledTemplate compile() {
+        return CompiledTemplate.compile("bench", audio);
+    }
+
+    @Benchmark
+    public FeatureMatrix trimSilence() {
+        return AudioMatcher.trimSilence(features, audio);
+    }
+
+    @Benchmark
+    public float[] preEmphasisFrame() {
+        return AudioMatcher.preEmphasis(frame);
+    }
+
+    @Benchmark
+    public float[] hammingWindowFrame() {
+        return AudioMatcher.hammingWindow(frame);
+    }
+
+    @Benchmark
+    public boolean isSilentFrame() {
+        return AudioMatcher.isSilentFrame(frame, frameC0);
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.mkproject.javaPackages;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// One live query against every row of a reference, per FrameDistance kernel: the work of one DTW row at full band.
+// Each fork uses a single kernel, so the call site stays monomorphic as it is in the matchers.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FrameDistanceBenchmark {
+
+    @Param({"scalar", "unrolled", "vector"})
+    public String kernelName;
+
+    @Param({"150"})
+    public int templateFrames;
+
+    private FrameDistance kernel;
+    private float[] unitRows;
+    private int stride;
+    private byte[] codes;
+    private float[] query;
+    private float[][] rows;
+    private float[] live;
+
+    @Setup
+    public void setUp() {
+        kernel = FrameDistances.byName(kernelName);
+        if (kernel == null) {
+            throw new IllegalStateException("Kernel not available on this JVM: " + kernelName);
+        }
+        FeatureMatrix reference = BenchmarkSignals.template("reference", templateFrames, 3L).getFeatures();
+        FeatureMatrix utterance = BenchmarkSignals.template("live", 1, 2L).getFeatures();
+        unitRows = reference.unitData();
+        stride = FrameDistance.paddedDimension(reference.dimension());
+        // Same packing as QuantizedFrames.quantize: padded rows, one scale per coefficient folded into the query
+        int dim = reference.dimension();
+        float[] scales = new float[dim];
+        for (int i = 0; i < templateFrames; i++) {
+            for (int k = 0; k < dim; k++) {
+                scales[k] = Math.max(scales[k], Math.abs(unitRows[reference.unitOffset(i) + k]) / 127.0f);
+            }
+        }
+        codes = new byte[templateFrames * stride];
+        for (int i = 0; i < templateFrames; i++) {
+            for (int k = 0; k < dim; k++) {
+                codes[i * stride + k] = (byte) Math.round(unitRows[reference.unitOffset(i) + k] / scales[k]);
+            }
+        }
+        query = reference.newQuery();
+        reference.prepareQuery(utterance.data(), 0, 1.0f / utterance.norm(0), query);
+        rows = new float[templateFrames][];
+        for (int i = 0; i < templateFrames; i++) {
+            rows[i] = reference.copyFrame(i);
+        }
+        live = utterance.copyFrame(0);
+    }
+
+    @Benchmark
+    public float float32Rows() {
+        float sum = 0.0f;
+        for (int i = 0; i < templateFrames; i++) {
+            sum += kernel.dot(query, 0, unitRows, i * stride, stride);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public float int8Rows() {
+        float sum = 0.0f;
+        for (int i = 0; i < templateFrames; i++) {
+            sum += kernel.dot(query, codes, i * stride, stride);
+        }
+        return sum;
+    }
+
+    // Baseline: the original per-cell cosine on raw rows, independent of the kernel parameter
+    @Benchmark
+    public float cosineSimilarityRows() {
+        float sum = 0.0f;
+        for (int i = 0; i < templateFrames; i++) {
+            sum += AudioMatcher.cosineSimilarity(live, rows[i]);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.mkproject.javaPackages;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Scoring one pause-delimited utterance against libraries of growing size: the target mantra plus other chants. Runs
+// through RepetitionDetector and its TemplateIndex, so the lower bounds and the DTWs they leave are measured together.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LibraryBenchmark {
+
+    @Param({"5", "50", "500"})
+    public int librarySize;
+
+    private FeatureMatrix utterance;
+    private float[] silence;
+    private RepetitionDetector detector;
+    private int matches;
+
+    @Setup
+    public void setUp() {
+        utterance = BenchmarkSignals.template("live", 80, 2L).getFeatures();
+        silence = new float[AudioMatcher.MFCC_SIZE];
+        List<CompiledTemplate> templates = new ArrayList<>(librarySize);
+        templates.add(BenchmarkSignals.template("target", 80, 2L).encode(AudioMatcher.TEMPLATE_ENCODING));
+        for (int t = 1; t < librarySize; t++) {
+            int frames = 40 + (t * 37) % 120;
+            float[] audio = BenchmarkSignals.chant(BenchmarkSignals.samplesForFrames(frames), 100L + t);
+            templates.add(CompiledTemplate.compile("other" + t, audio));
+        }
+        detector = new RepetitionDetector(templates, 0.7f, 25.0f, false, null, null,
+                (template, similarity, startFrame, endFrame) -> matches++);
+    }
+
+    @Benchmark
+    public int scoreUtterance() {
+        float[] data = utterance.data();
+        for (int i = 0; i < utterance.frameCount(); i++) {
+            detector.onFrame(data, utterance.offset(i), false);
+        }
+        for (int i = 0; i < RepetitionDetector.SILENCE_FRAMES_THRESHOLD; i++) {
+            detector.onFrame(silence, 0, true);
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.mkproject.javaPackages;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Scoring an utterance of a long mantra (10-40 s at the 24 ms hop): the banded exact DTW against the coarse-to-fine
+// MultiResolutionDtw that computeDTW picks for templates of MULTI_RESOLUTION_MIN_FRAMES and more
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LongMantraBenchmark {
+
+    @Param({"420", "1000", "1700"})
+    public int templateFrames;
+
+    private FeatureMatrix utterance;
+    private CompiledTemplate template;
+
+    @Setup
+    public void setUp() {
+        utterance = BenchmarkSignals.template("live", templateFrames, 2L).getFeatures();
+        template = BenchmarkSignals.template("reference", templateFrames, 3L);
+    }
+
+    @Benchmark
+    public float exactBanded() {
+        return AudioMatcher.alignmentSimilarity(utterance, template.getFrames(), 25.0f, 0.0f);
+    }
+
+    @Benchmark
+    public float multiResolution() {
+        return AudioMatcher.computeDTW(utterance, template, 25.0f, 0.0f);
+    }
+}
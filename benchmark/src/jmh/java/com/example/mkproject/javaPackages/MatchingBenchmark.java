@@ -0,0 +1,68 @@
+package com.example.mkproject.javaPackages;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// DTW scoring of a live utterance against one stored reference, across utterance x template lengths and the
+// template's row encoding
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MatchingBenchmark {
+
+    @Param({"50", "150"})
+    public int utteranceFrames;
+
+    @Param({"50", "150", "400"})
+    public int templateFrames;
+
+    @Param({"FLOAT32", "FLOAT16", "INT8"})
+    public TemplateEncoding encoding;
+
+    private FeatureMatrix utterance;
+    private FeatureMatrix referenceFeatures;
+    private float[] referenceAudio;
+    private CompiledTemplate template;
+    private float[] vectorA;
+    private float[] vectorB;
+
+    @Setup
+    public void setUp() {
+        utterance = BenchmarkSignals.template("live", utteranceFrames, 2L).getFeatures();
+        referenceAudio = BenchmarkSignals.voiced(BenchmarkSignals.samplesForFrames(templateFrames), 3L);
+        referenceFeatures = AudioMatcher.extractMFCC(referenceAudio);
+        template = BenchmarkSignals.template("reference", templateFrames, 3L).encode(encoding);
+        vectorA = utterance.copyFrame(0);
+        vectorB = referenceFeatures.copyFrame(0);
+    }
+
+    @Benchmark
+    public float cosineSimilarity() {
+        return AudioMatcher.cosineSimilarity(vectorA, vectorB);
+    }
+
+    // Live path: compiled reference, default 25% band, no early abandoning
+    @Benchmark
+    public float computeDTWBanded() {
+        return AudioMatcher.computeDTW(utterance, template, 25.0f, 0.0f);
+    }
+
+    // Live path with a realistic threshold, so mismatching lengths abandon early
+    @Benchmark
+    public float computeDTWBandedAbandoning() {
+        return AudioMatcher.computeDTW(utterance, template, 25.0f, 0.7f);
+    }
+
+    // Original entry point: trims the reference from its audio on every call and runs the full matrix
+    @Benchmark
+    public float computeDTWUntrimmedReference() {
+        return AudioMatcher.computeDTW(utterance, referenceFeatures, referenceAudio);
+    }
+}
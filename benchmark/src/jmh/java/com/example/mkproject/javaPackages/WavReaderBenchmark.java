@@ -0,0 +1,59 @@
+package com.example.mkproject.javaPackages;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Loading a stored mantra recording (what loadWavToFloatArray does at start-up and on every library change)
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WavReaderBenchmark {
+
+    @Param({"150", "400", "1500"})
+    public int templateFrames;
+
+    private File wavFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        float[] audio = BenchmarkSignals.voiced(BenchmarkSignals.samplesForFrames(templateFrames), 4L);
+        wavFile = File.createTempFile("mantra-bench", ".wav");
+        int dataBytes = audio.length * 2;
+        ByteBuffer buffer = ByteBuffer.allocate(44 + dataBytes).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0x46464952).putInt(36 + dataBytes).putInt(0x45564157); // "RIFF", size, "WAVE"
+        buffer.putInt(0x20746d66).putInt(16).putShort((short) 1).putShort((short) 1); // "fmt ", PCM, mono
+        buffer.putInt(AudioMatcher.SAMPLE_RATE).putInt(AudioMatcher.SAMPLE_RATE * 2).putShort((short) 2).putShort((short) 16);
+        buffer.putInt(0x61746164).putInt(dataBytes); // "data"
+        for (float sample : audio) {
+            buffer.putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(sample * 32768.0f))));
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(wavFile, "rw")) {
+            raf.write(buffer.array());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (wavFile != null && !wavFile.delete()) {
+            wavFile.deleteOnExit();
+        }
+    }
+
+    @Benchmark
+    public float[] loadWavToFloatArray() {
+        return WavReader.read(wavFile, AudioMatcher.SAMPLE_RATE);
+    }
+}
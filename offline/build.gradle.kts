@@ -0,0 +1,72 @@
+// Headless build of the recognizer core for servers and benchmarks. Compiles the app's Context-free sources
+// straight from :app together with no-op android.util.Log / android.os.Trace shims.
+//   ./gradlew :offline:run --args="--refs app-mantras/ session1.wav session2.wav"
+plugins {
+    `java-library`
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_18
+    targetCompatibility = JavaVersion.VERSION_18
+}
+
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            // Only the Context-free classes; everything else in :app needs the Android SDK
+            include(
+                "android/**",
+                "com/example/mkproject/javaPackages/AnalysisConfig.java",
+                "com/example/mkproject/javaPackages/AudioMatcher.java",
+                "com/example/mkproject/javaPackages/CompiledTemplate.java",
+                "com/example/mkproject/javaPackages/FeatureCache.java",
+                "com/example/mkproject/javaPackages/FeatureFrontEnd.java",
+                "com/example/mkproject/javaPackages/FeatureMatrix.java",
+                "com/example/mkproject/javaPackages/FeatureRingBuffer.java",
+                "com/example/mkproject/javaPackages/FrameDistance.java",
+                "com/example/mkproject/javaPackages/FrameDistances.java",
+                "com/example/mkproject/javaPackages/FrameSequence.java",
+                "com/example/mkproject/javaPackages/HistogramRecognizerMetrics.java",
+                "com/example/mkproject/javaPackages/MultiResolutionDtw.java",
+                "com/example/mkproject/javaPackages/OfflineCountMain.java",
+                "com/example/mkproject/javaPackages/OfflineCounter.java",
+                "com/example/mkproject/javaPackages/PipelineStats.java",
+                "com/example/mkproject/javaPackages/PolyphaseDecimator.java",
+                "com/example/mkproject/javaPackages/QuantizedFrames.java",
+                "com/example/mkproject/javaPackages/RecognitionPipeline.java",
+                "com/example/mkproject/javaPackages/RecognizerMetrics.java",
+                "com/example/mkproject/javaPackages/ReferenceFrames.java",
+                "com/example/mkproject/javaPackages/RepetitionDetector.java",
+                "com/example/mkproject/javaPackages/ScalarFrameDistance.java",
+                "com/example/mkproject/javaPackages/SpscBlockQueue.java",
+                "com/example/mkproject/javaPackages/StreamingMfccExtractor.java",
+                "com/example/mkproject/javaPackages/SubsequenceDtwMatcher.java",
+                "com/example/mkproject/javaPackages/TemplateAverager.java",
+                "com/example/mkproject/javaPackages/TemplateEncoding.java",
+                "com/example/mkproject/javaPackages/TemplateIndex.java",
+                "com/example/mkproject/javaPackages/UnrolledFrameDistance.java",
+                "com/example/mkproject/javaPackages/VadConfig.java",
+                "com/example/mkproject/javaPackages/VectorFrameDistance.java",
+                "com/example/mkproject/javaPackages/VoiceActivityDetector.java",
+                "com/example/mkproject/javaPackages/WavReader.java",
+            )
+        }
+    }
+}
+
+// VectorFrameDistance (this module only) needs the incubating Vector API at compile and run time; without the
+// module at run time FrameDistances falls back to the portable kernels.
+tasks.withType<JavaCompile>().configureEach {
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+}
+
+dependencies {
+    api(files("../app/libs/TarsosDSP-Android-latest.jar"))
+}
+
+application {
+    mainClass.set("com.example.mkproject.javaPackages.OfflineCountMain")
+    applicationDefaultJvmArgs = listOf("--add-modules", "jdk.incubator.vector")
+}
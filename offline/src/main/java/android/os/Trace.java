@@ -0,0 +1,13 @@
+package android.os;
+
+// Stand-in for the framework class on a plain JVM; trace sections are dropped.
+public final class Trace {
+    private Trace() {
+    }
+
+    public static void beginSection(String sectionName) {
+    }
+
+    public static void endSection() {
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.mkproject.javaPackages;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Command line front end for OfflineCounter:
+//   OfflineCountMain --refs <mantra.wav|dir> [--refs ...] [--takes <dir> ...] [--threshold 0.7] [--band 25]
+//                    [--threads N] [--continuous] [--hangover-ms 64] <session.wav>...
+// References are compiled like the app's stored mantras (and reuse their .mfcc caches when present). The WAVs of
+// a --takes directory are takes of one mantra, named after the directory, and are averaged into one reference.
+public final class OfflineCountMain {
+
+    private OfflineCountMain() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        List<File> referenceFiles = new ArrayList<>();
+        List<File> takeDirectories = new ArrayList<>();
+        List<File> sessions = new ArrayList<>();
+        float threshold = 0.7f;
+        float band = 25.0f;
+        int threads = 0;
+        boolean continuous = false;
+        VadConfig vadConfig = VadConfig.DEFAULT;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--refs":
+                        addWavFiles(new File(args[++i]), referenceFiles);
+                        break;
+                    case "--takes":
+                        takeDirectories.add(new File(args[++i]));
+                        break;
+                    case "--threshold":
+                        threshold = Float.parseFloat(args[++i]);
+                        break;
+                    case "--band":
+                        band = Float.parseFloat(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "--continuous":
+                        continuous = true;
+                        break;
+                    case "--hangover-ms":
+                        vadConfig = vadConfig.withHangoverSeconds(Integer.parseInt(args[++i]) / 1000.0);
+                        break;
+                    default:
+                        sessions.add(new File(args[i]));
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            usage("Bad arguments: " + e.getMessage());
+            return;
+        }
+        if ((referenceFiles.isEmpty() && takeDirectories.isEmpty()) || sessions.isEmpty()) {
+            usage("Need at least one reference and one session file");
+            return;
+        }
+
+        List<CompiledTemplate> templates = new ArrayList<>();
+        for (File file : referenceFiles) {
+            String name = file.getName().substring(0, file.getName().length() - 4);
+            CompiledTemplate template = FeatureCache.load(name, file);
+            if (template == null) {
+                float[] audio = WavReader.read(file, AudioMatcher.SAMPLE_RATE);
+                if (audio == null) {
+                    System.err.println("Skipping unreadable reference " + file);
+                    continue;
+                }
+                template = CompiledTemplate.compile(name, audio);
+            }
+            if (template.isEmpty()) {
+                System.err.println("Skipping reference without speech " + file);
+                continue;
+            }
+            templates.add(template);
+        }
+        if (!takeDirectories.isEmpty()) {
+            ExecutorService pool = Executors.newFixedThreadPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+            try {
+                for (File directory : takeDirectories) {
+                    List<File> takes = new ArrayList<>();
+                    addWavFiles(directory, takes);
+                    CompiledTemplate template = TemplateAverager.fromTakes(directory.getName(), takes, pool);
+                    if (template == null) {
+                        System.err.println("Skipping takes without speech in " + directory);
+                        continue;
+                    }
+                    templates.add(template);
+                }
+            } catch (ExecutionException e) {
+                usage("Averaging takes failed: " + e.getCause());
+                return;
+            } finally {
+                pool.shutdown();
+            }
+        }
+        if (templates.isEmpty()) {
+            usage("No usable references");
+            return;
+        }
+
+        OfflineCounter counter = new OfflineCounter(templates, threshold);
+        counter.setWarpingBandPercent(band);
+        counter.setContinuousMode(continuous);
+        counter.setVadConfig(vadConfig);
+        long started = System.nanoTime();
+        List<OfflineCounter.FileResult> results = counter.countAll(sessions, threads);
+        long wallNanos = System.nanoTime() - started;
+
+        double totalAudio = 0.0;
+        int failures = 0;
+        for (OfflineCounter.FileResult result : results) {
+            totalAudio += result.getAudioSeconds();
+            if (result.getError() != null) {
+                failures++;
+                System.out.println(result.getFile() + ": FAILED " + result.getError());
+                continue;
+            }
+            StringBuilder counts = new StringBuilder();
+            for (Map.Entry<String, Integer> entry : result.getCounts().entrySet()) {
+                if (counts.length() > 0) counts.append(", ");
+                counts.append(entry.getKey()).append('=').append(entry.getValue());
+            }
+            System.out.println(String.format(Locale.ROOT, "%s: %d (%s) in %s of audio, %.1fx real time",
+                    result.getFile(), result.getTotalCount(), counts, clock(result.getAudioSeconds()), result.getRealTimeFactor()));
+            for (OfflineCounter.Detection detection : result.getDetections()) {
+                System.out.println(String.format(Locale.ROOT, "  %s-%s %s %.3f", clock(detection.getStartSeconds()),
+                        clock(detection.getEndSeconds()), detection.getMantra(), detection.getSimilarity()));
+            }
+        }
+        System.out.println(String.format(Locale.ROOT, "%d file(s), %s of audio in %.2f s wall time: %.1fx real time",
+                results.size(), clock(totalAudio), wallNanos / 1e9, wallNanos > 0 ? totalAudio * 1e9 / wallNanos : 0.0));
+        if (failures > 0) System.exit(1);
+    }
+
+    private static void addWavFiles(File path, List<File> out) {
+        if (path.isDirectory()) {
+            File[] files = path.listFiles((dir, name) -> name.toLowerCase(Locale.ROOT).endsWith(".wav"));
+            if (files != null) {
+                Arrays.sort(files);
+                for (File file : files) out.add(file);
+            }
+        } else {
+            out.add(path);
+        }
+    }
+
+    private static String clock(double seconds) {
+        long millis = Math.round(seconds * 1000.0);
+        return String.format(Locale.ROOT, "%02d:%02d:%02d.%03d", millis / 3_600_000, millis / 60_000 % 60, millis / 1000 % 60, millis % 1000);
+    }
+
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("Usage: OfflineCountMain --refs <mantra.wav|dir> [--refs ...] [--takes <dir> ...] [--threshold 0.7]"
+                + " [--band 25] [--threads N] [--continuous] [--hangover-ms 64] <session.wav>...");
+        System.exit(2);
+    }
+}
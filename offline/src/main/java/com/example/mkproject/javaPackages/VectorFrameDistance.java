@@ -0,0 +1,53 @@
+package com.example.mkproject.javaPackages;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+// JVM-only kernel on the incubating Vector API, registered through META-INF/services so FrameDistances prefers it
+// whenever the JVM runs with --add-modules jdk.incubator.vector. Uses the preferred float species when it has 8 or
+// 16 lanes (AVX2, AVX-512) and the 128-bit one (4 lanes: SSE, NEON) otherwise; either divides FrameDistance.LANES,
+// so a padded row is a few vector multiply-adds with no masked tail.
+// INT8 codes are loaded as a byte vector of at least 64 bits and widened to floats in registers, in two parts when
+// that holds more lanes than a float vector.
+public final class VectorFrameDistance implements FrameDistance {
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED.length() >= 8
+            && LANES % FloatVector.SPECIES_PREFERRED.length() == 0 ? FloatVector.SPECIES_PREFERRED : FloatVector.SPECIES_128;
+    // Same lane count as FLOATS (64-bit shape for AVX2, 128-bit for AVX-512), or twice it for 128-bit floats since
+    // no byte shape is narrower than 64 bits
+    private static final VectorSpecies<Byte> BYTES =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(Math.max(64, FLOATS.length() * Byte.SIZE)));
+    private static final int PARTS = BYTES.length() / FLOATS.length();
+
+    @Override
+    public String getName() {
+        return "vector";
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector sum = FloatVector.zero(FLOATS);
+        for (int k = 0; k < length; k += FLOATS.length()) {
+            FloatVector va = FloatVector.fromArray(FLOATS, a, aOffset + k);
+            FloatVector vb = FloatVector.fromArray(FLOATS, b, bOffset + k);
+            sum = va.fma(vb, sum);
+        }
+        return sum.reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public float dot(float[] query, byte[] codes, int offset, int length) {
+        FloatVector sum = FloatVector.zero(FLOATS);
+        for (int k = 0; k < length; k += BYTES.length()) {
+            ByteVector vb = ByteVector.fromArray(BYTES, codes, offset + k);
+            for (int part = 0; part < PARTS; part++) {
+                FloatVector vq = FloatVector.fromArray(FLOATS, query, k + part * FLOATS.length());
+                FloatVector vc = (FloatVector) vb.convertShape(VectorOperators.B2F, FLOATS, part);
+                sum = vq.fma(vc, sum);
+            }
+        }
+        return sum.reduceLanes(VectorOperators.ADD);
+    }
+}
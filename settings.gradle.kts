@@ -21,4 +21,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "mkproject"
 include(":app")
+include(":offline")
+include(":benchmark")
  
\ No newline at end of file